@@ -19,6 +19,8 @@ public class CorsConfig {
         corsConfig.setMaxAge(3600L);
         corsConfig.addAllowedMethod("*");
         corsConfig.addAllowedHeader("*");
+        // Lets the editor read session versions for If-None-Match
+        corsConfig.addExposedHeader("ETag");
         corsConfig.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
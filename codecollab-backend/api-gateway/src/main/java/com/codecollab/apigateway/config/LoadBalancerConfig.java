@@ -0,0 +1,11 @@
+package com.codecollab.apigateway.config;
+
+import com.codecollab.apigateway.loadbalancer.SessionAffinityLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+// Collaboration sessions are sharded across instances; see SessionAffinityLoadBalancer
+@Configuration
+@LoadBalancerClient(name = "COLLABORATION-SERVICE", configuration = SessionAffinityLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
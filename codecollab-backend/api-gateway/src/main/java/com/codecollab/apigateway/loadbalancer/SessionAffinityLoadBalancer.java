@@ -0,0 +1,83 @@
+package com.codecollab.apigateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends every request that names a session (a "sessionId" query parameter, as on the
+ * collaboration WebSocket endpoints) to the instance that owns the session on a consistent-hash
+ * ring of the registered instances. collaboration-service builds the same ring, so a session's
+ * connections all land on the one node that holds its state. Requests without a session id are
+ * spread round-robin.
+ */
+public class SessionAffinityLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String SESSION_ID_PARAMETER = "sessionId";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> instanceListSupplier;
+    private final RoundRobinLoadBalancer roundRobin;
+    private final int virtualNodes;
+    private volatile ConsistentHashRing ring;
+
+    public SessionAffinityLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> instanceListSupplier,
+                                       String serviceId, int virtualNodes) {
+        this.instanceListSupplier = instanceListSupplier;
+        this.roundRobin = new RoundRobinLoadBalancer(instanceListSupplier, serviceId);
+        this.virtualNodes = virtualNodes;
+        this.ring = new ConsistentHashRing(List.of(), virtualNodes);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        String sessionId = sessionIdOf(request);
+        if (sessionId == null) {
+            return roundRobin.choose(request);
+        }
+        ServiceInstanceListSupplier supplier = instanceListSupplier.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> choose(instances, sessionId));
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances, String sessionId) {
+        Map<String, ServiceInstance> byId = instances.stream()
+                .filter(instance -> instance.getInstanceId() != null)
+                .collect(Collectors.toMap(ServiceInstance::getInstanceId, Function.identity(), (a, b) -> a));
+        if (byId.isEmpty()) {
+            return new EmptyResponse();
+        }
+        // Rebuilt only when the set of instances changes
+        ConsistentHashRing current = ring;
+        Set<String> ids = byId.keySet();
+        if (!current.getNodes().equals(ids)) {
+            current = new ConsistentHashRing(ids, virtualNodes);
+            ring = current;
+        }
+        return new DefaultResponse(byId.get(current.ownerOf(sessionId)));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static String sessionIdOf(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            return UriComponentsBuilder.fromUri(context.getClientRequest().getUrl()).build()
+                    .getQueryParams().getFirst(SESSION_ID_PARAMETER);
+        }
+        return null;
+    }
+}
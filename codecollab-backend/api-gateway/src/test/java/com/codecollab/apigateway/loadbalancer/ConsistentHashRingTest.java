@@ -0,0 +1,29 @@
+package com.codecollab.apigateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConsistentHashRingTest {
+
+	// The same table is checked against collaboration-service's copy, so the gateway and the instances cannot
+	// drift apart on who owns a session
+	@Test
+	void ownersMatchTheSharedTable() {
+		ConsistentHashRing ring = new ConsistentHashRing(List.of("10.0.0.1:8084", "10.0.0.2:8084", "10.0.0.3:8084"), 160);
+
+		Map<String, String> expected = Map.of(
+				"a1b2c3", "10.0.0.2:8084",
+				"session-1", "10.0.0.2:8084",
+				"session-2", "10.0.0.1:8084",
+				"session-3", "10.0.0.2:8084",
+				"7f9e2d4c-1b3a-4c5d-8e6f-0a1b2c3d4e5f", "10.0.0.1:8084",
+				"x", "10.0.0.3:8084",
+				"session-42", "10.0.0.3:8084",
+				"demo", "10.0.0.3:8084");
+		expected.forEach((sessionId, owner) -> assertEquals(owner, ring.ownerOf(sessionId), sessionId));
+	}
+}
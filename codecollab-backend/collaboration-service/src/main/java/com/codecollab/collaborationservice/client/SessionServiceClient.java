@@ -1,12 +1,21 @@
 package com.codecollab.collaborationservice.client;
 
-import com.codecollab.collaborationservice.dto.CodeSessionDTO;
+import com.codecollab.collaborationservice.dto.ChatHistoryPage;
+import com.codecollab.collaborationservice.dto.ChatMessage;
 import com.codecollab.collaborationservice.dto.CodeUpdateRequest;
+import com.codecollab.collaborationservice.dto.SessionAclDTO;
+import com.codecollab.collaborationservice.dto.SessionContentDTO;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
 
 // The 'name' must exactly match the spring.application.name of the target service
 @FeignClient(name = "SESSION-SERVICE")
@@ -17,6 +26,20 @@ public interface SessionServiceClient {
             @PathVariable("uniqueId") String uniqueId,
             @RequestBody CodeUpdateRequest request);
 
-    @GetMapping("/api/sessions/{uniqueId}")
-    CodeSessionDTO getSessionById(@PathVariable String uniqueId);
-}
\ No newline at end of file
+    // Members, roles and blocked users only
+    @GetMapping("/api/sessions/{uniqueId}/acl")
+    SessionAclDTO getSessionAcl(@PathVariable String uniqueId);
+
+    // Answered with 304 if the ACL is still at that version, which Feign reports as a FeignException
+    @GetMapping("/api/sessions/{uniqueId}/acl")
+    SessionAclDTO getSessionAcl(@PathVariable String uniqueId, @RequestHeader(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch);
+
+    @GetMapping("/api/sessions/{uniqueId}/content")
+    SessionContentDTO getSessionContent(@PathVariable String uniqueId);
+
+    @PostMapping("/api/internal/chat")
+    void saveChatMessages(@RequestBody List<ChatMessage> messages);
+
+    @GetMapping("/api/internal/chat/{uniqueId}")
+    ChatHistoryPage getRecentChat(@PathVariable("uniqueId") String uniqueId, @RequestParam("limit") int limit);
+}
@@ -0,0 +1,121 @@
+package com.codecollab.collaborationservice.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-connection opt-in to CBOR payloads. A client connected to the plain WebSocket endpoint
+ * sends {@code wire-format:cbor} in its CONNECT frame; from then on every JSON MESSAGE frame
+ * addressed to it is re-encoded as CBOR and sent as a binary frame (flagged with the same
+ * header). Clients that do not ask, and all SockJS clients, keep receiving JSON text frames.
+ * Clients may send CBOR with {@code content-type:application/cbor}, see
+ * {@link WebSocketConfig#configureMessageConverters}.
+ */
+@Slf4j
+@Component
+public class BinaryWireFormatInterceptor implements ChannelInterceptor {
+
+    public static final String WIRE_FORMAT_HEADER = "wire-format";
+    public static final String CBOR = "cbor";
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final Set<String> cborConnections = ConcurrentHashMap.newKeySet();
+
+    // A broadcast hands the same payload array to every subscriber, so it is encoded only once
+    private volatile Transcoded lastTranscoded;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.CONNECT) {
+            negotiate(message);
+        } else if (type == SimpMessageType.MESSAGE
+                && cborConnections.contains(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                && message.getPayload() instanceof byte[] json) {
+            return toCborMessage(message, json);
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        cborConnections.remove(event.getSessionId());
+    }
+
+    private void negotiate(Message<?> message) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (!CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(WIRE_FORMAT_HEADER))) {
+            return;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null && Boolean.TRUE.equals(attributes.get(NativeTransportHandshakeInterceptor.NATIVE_TRANSPORT_ATTRIBUTE))) {
+            cborConnections.add(accessor.getSessionId());
+            log.debug("Connection '{}' switched to CBOR payloads", accessor.getSessionId());
+        } else {
+            log.debug("Connection '{}' asked for CBOR over SockJS, staying on JSON", accessor.getSessionId());
+        }
+    }
+
+    private Message<?> toCborMessage(Message<?> message, byte[] json) {
+        MimeType contentType = new MessageHeaderAccessor(message).getContentType();
+        if (contentType == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return message;
+        }
+        byte[] cbor;
+        try {
+            cbor = transcode(json);
+        } catch (IOException e) {
+            // Falls back to the JSON text frame, which CBOR clients still understand
+            log.warn("Could not encode message as CBOR: {}", e.getMessage());
+            return message;
+        }
+        // Octet-stream is what makes the STOMP handler send a binary WebSocket frame
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(WIRE_FORMAT_HEADER, CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    private byte[] transcode(byte[] json) throws IOException {
+        Transcoded cached = lastTranscoded;
+        if (cached != null && cached.json() == json) {
+            return cached.cbor();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = cborFactory.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        byte[] cbor = out.toByteArray();
+        lastTranscoded = new Transcoded(json, cbor);
+        return cbor;
+    }
+
+    private record Transcoded(byte[] json, byte[] cbor) {
+    }
+}
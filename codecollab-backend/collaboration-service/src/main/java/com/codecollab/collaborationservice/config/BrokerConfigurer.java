@@ -0,0 +1,12 @@
+package com.codecollab.collaborationservice.config;
+
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+
+/**
+ * Chooses where /topic and /queue messages are fanned out. Exactly one implementation is
+ * active, selected by {@code collaboration.broker.mode}; tests can register their own.
+ */
+public interface BrokerConfigurer {
+
+    void configure(MessageBrokerRegistry registry);
+}
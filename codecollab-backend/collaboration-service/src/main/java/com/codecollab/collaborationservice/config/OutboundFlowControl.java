@@ -0,0 +1,303 @@
+package com.codecollab.collaborationservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives every connection its own outbound queue, drained by a separate thread, so a client
+ * on a slow network only delays itself and never the shared clientOutboundChannel threads.
+ * Queuing a frame never writes to the socket itself, whichever thread it is called on.
+ * <ul>
+ *     <li>Frames for conflatable destinations (cursor frames by default) replace a still-queued
+ *     frame for the same destination; only the latest is sent.</li>
+ *     <li>Everything else (code edits, chat, notifications) is always delivered, in order.</li>
+ *     <li>A connection whose current send has been blocked longer than the send time limit, or
+ *     that has more undelivered frames than the queue limit, is closed. The client reconnects
+ *     and resyncs from a fresh snapshot.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class OutboundFlowControl implements WebSocketHandlerDecoratorFactory {
+
+    private static final String MESSAGE_COMMAND = "MESSAGE\n";
+    private static final String DESTINATION_HEADER = "destination:";
+    private static final byte[] MESSAGE_COMMAND_BYTES = MESSAGE_COMMAND.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DESTINATION_HEADER_BYTES = DESTINATION_HEADER.getBytes(StandardCharsets.UTF_8);
+    // STOMP headers are short; never scan further into a frame than this
+    private static final int MAX_HEADER_SCAN = 1024;
+
+    private final Map<String, OutboundQueueSession> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger totalQueued = new AtomicInteger();
+    private final ExecutorService drainExecutor;
+    private final DistributionSummary queueDepth;
+    private final Counter conflated;
+    private final Counter slowConsumerDisconnects;
+
+    @Value("${collaboration.outbound.max-queued-messages:1000}")
+    private int maxQueuedMessages;
+
+    @Value("${collaboration.outbound.send-time-limit-ms:10000}")
+    private long sendTimeLimitMillis;
+
+    @Value("${collaboration.outbound.conflate-prefixes:/topic/cursor/}")
+    private List<String> conflatePrefixes;
+
+    public OutboundFlowControl(MeterRegistry meterRegistry, TaskExecutors taskExecutors) {
+        // Connections being written to each hold a thread, so one stuck on a slow client never
+        // waits for a pool slot or keeps another connection's frames from going out
+        this.drainExecutor = taskExecutors.unbounded("ws-outbound-drain-");
+
+        this.queueDepth = DistributionSummary.builder("collaboration.websocket.outbound.queue.depth")
+                .description("Frames waiting on a connection, sampled whenever one is queued")
+                .register(meterRegistry);
+        this.conflated = meterRegistry.counter("collaboration.websocket.outbound.conflated");
+        this.slowConsumerDisconnects = meterRegistry.counter("collaboration.websocket.outbound.disconnects");
+        Gauge.builder("collaboration.websocket.outbound.queued", totalQueued, AtomicInteger::get)
+                .description("Frames waiting across all connections")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                OutboundQueueSession queue = new OutboundQueueSession(session);
+                queues.put(session.getId(), queue);
+                super.afterConnectionEstablished(queue);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                OutboundQueueSession queue = queues.remove(session.getId());
+                if (queue != null) {
+                    queue.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+    }
+
+    // Returns the destination of a MESSAGE frame if it may be conflated, null otherwise
+    private String conflationKey(WebSocketMessage<?> message) {
+        String destination;
+        if (message instanceof TextMessage text) {
+            // Read from the payload as it is; encoding it here would copy every frame once more
+            destination = destinationOf(text.getPayload());
+        } else if (message instanceof BinaryMessage binary && binary.getPayload().hasArray()
+                && binary.getPayload().arrayOffset() == 0 && binary.getPayload().position() == 0) {
+            destination = destinationOf(binary.getPayload().array());
+        } else {
+            return null;
+        }
+        if (destination == null) {
+            return null;
+        }
+        for (String prefix : conflatePrefixes) {
+            if (destination.startsWith(prefix)) {
+                return destination;
+            }
+        }
+        return null;
+    }
+
+    private static String destinationOf(String frame) {
+        if (!frame.startsWith(MESSAGE_COMMAND)) {
+            return null;
+        }
+        int limit = Math.min(frame.length(), MAX_HEADER_SCAN);
+        int lineStart = MESSAGE_COMMAND.length();
+        while (lineStart < limit && frame.charAt(lineStart) != '\n') {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && frame.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (frame.startsWith(DESTINATION_HEADER, lineStart)) {
+                return frame.substring(lineStart + DESTINATION_HEADER.length(), lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    private static String destinationOf(byte[] frame) {
+        if (!startsWith(frame, 0, MESSAGE_COMMAND_BYTES)) {
+            return null;
+        }
+        int limit = Math.min(frame.length, MAX_HEADER_SCAN);
+        int lineStart = MESSAGE_COMMAND_BYTES.length;
+        while (lineStart < limit && frame[lineStart] != '\n') {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && frame[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (startsWith(frame, lineStart, DESTINATION_HEADER_BYTES)) {
+                int valueStart = lineStart + DESTINATION_HEADER_BYTES.length;
+                return new String(frame, valueStart, lineEnd - valueStart, StandardCharsets.UTF_8);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] frame, int offset, byte[] prefix) {
+        if (frame.length - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (frame[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class OutboundQueueSession extends WebSocketSessionDecorator {
+
+        // Guarded by "pending"
+        private final Deque<Slot> pending = new ArrayDeque<>();
+        private final Map<String, Slot> conflatable = new HashMap<>();
+        private int reliableCount;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long sendStartedAt;
+        private volatile boolean closed;
+
+        OutboundQueueSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (closed) {
+                return;
+            }
+            String key = conflationKey(message);
+            int depth;
+            int reliable;
+            synchronized (pending) {
+                Slot existing = key != null ? conflatable.get(key) : null;
+                if (existing != null) {
+                    existing.message = message;
+                    conflated.increment();
+                } else {
+                    Slot slot = new Slot(key, message);
+                    pending.add(slot);
+                    totalQueued.incrementAndGet();
+                    if (key != null) {
+                        conflatable.put(key, slot);
+                    } else {
+                        reliableCount++;
+                    }
+                }
+                depth = pending.size();
+                reliable = reliableCount;
+            }
+            queueDepth.record(depth);
+
+            long sendingFor = sendStartedAt != 0 ? System.currentTimeMillis() - sendStartedAt : 0;
+            if (reliable > maxQueuedMessages || sendingFor > sendTimeLimitMillis) {
+                log.warn("Closing slow connection '{}': {} frame(s) queued, current send blocked for {} ms",
+                        getId(), depth, sendingFor);
+                slowConsumerDisconnects.increment();
+                closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                drainExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Slot next;
+                synchronized (pending) {
+                    next = pending.poll();
+                    if (next == null) {
+                        // Cleared under the lock, so a frame queued after this point starts a new drain
+                        draining.set(false);
+                        return;
+                    }
+                    totalQueued.decrementAndGet();
+                    if (next.key != null) {
+                        conflatable.remove(next.key);
+                    } else {
+                        reliableCount--;
+                    }
+                }
+                sendStartedAt = System.currentTimeMillis();
+                try {
+                    getDelegate().sendMessage(next.message);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Send to connection '{}' failed: {}", getId(), e.getMessage());
+                    closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+                } finally {
+                    sendStartedAt = 0;
+                }
+            }
+        }
+
+        private void closeQuietly(CloseStatus status) {
+            discard();
+            try {
+                getDelegate().close(status);
+            } catch (IOException e) {
+                log.debug("Failed to close connection '{}': {}", getId(), e.getMessage());
+            }
+        }
+
+        void discard() {
+            closed = true;
+            synchronized (pending) {
+                totalQueued.addAndGet(-pending.size());
+                pending.clear();
+                conflatable.clear();
+                reliableCount = 0;
+            }
+        }
+    }
+
+    private static final class Slot {
+
+        private final String key;
+        private WebSocketMessage<?> message;
+
+        Slot(String key, WebSocketMessage<?> message) {
+            this.key = key;
+            this.message = message;
+        }
+    }
+}
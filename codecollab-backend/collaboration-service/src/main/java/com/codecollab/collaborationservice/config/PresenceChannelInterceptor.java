@@ -0,0 +1,47 @@
+package com.codecollab.collaborationservice.config;
+
+import com.codecollab.collaborationservice.service.PresenceService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+// Feeds inbound traffic into presence: every frame keeps the connection alive, and edits,
+// cursor moves and chat mark the user active in that session
+@Component
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private static final String[] ACTIVITY_PREFIXES = {"/app/edit/", "/app/code/", "/app/cursor/", "/app/chat/"};
+
+    private final PresenceService presenceService;
+
+    // Lazy: PresenceService sends through the broker template, which is built from the
+    // WebSocket configuration this interceptor is part of
+    public PresenceChannelInterceptor(@Lazy PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String connectionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (connectionId == null) {
+            return message;
+        }
+        presenceService.seen(connectionId);
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null) {
+                for (String prefix : ACTIVITY_PREFIXES) {
+                    if (destination.startsWith(prefix)) {
+                        presenceService.active(connectionId, destination.substring(prefix.length()));
+                        break;
+                    }
+                }
+            }
+        }
+        return message;
+    }
+}
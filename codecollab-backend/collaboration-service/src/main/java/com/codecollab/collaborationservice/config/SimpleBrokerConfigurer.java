@@ -0,0 +1,32 @@
+package com.codecollab.collaborationservice.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+// In-memory broker: only reaches clients connected to this instance
+@Component
+@ConditionalOnProperty(name = "collaboration.broker.mode", havingValue = "simple", matchIfMissing = true)
+public class SimpleBrokerConfigurer implements BrokerConfigurer {
+
+    private final TaskScheduler messageBrokerTaskScheduler;
+
+    // Heartbeats in both directions; connections that stop sending are closed by the broker
+    @Value("${collaboration.broker.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    public SimpleBrokerConfigurer(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
+    @Override
+    public void configure(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                .setTaskScheduler(messageBrokerTaskScheduler);
+    }
+}
@@ -0,0 +1,29 @@
+package com.codecollab.collaborationservice.config;
+
+import com.codecollab.collaborationservice.sharding.SessionOwnerHandshakeInterceptor;
+import com.codecollab.collaborationservice.spectator.SpectatorHandshakeInterceptor;
+import com.codecollab.collaborationservice.spectator.SpectatorWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+// The read-only spectator endpoint, next to (not inside) the STOMP endpoints of WebSocketConfig
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class SpectatorWebSocketConfig implements WebSocketConfigurer {
+
+    private final SpectatorWebSocketHandler spectatorWebSocketHandler;
+    private final SpectatorHandshakeInterceptor spectatorHandshakeInterceptor;
+    private final SessionOwnerHandshakeInterceptor sessionOwnerHandshakeInterceptor;
+    private final OutboundFlowControl outboundFlowControl;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(outboundFlowControl.decorate(spectatorWebSocketHandler), "/ws-spectate")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(sessionOwnerHandshakeInterceptor, spectatorHandshakeInterceptor);
+    }
+}
@@ -0,0 +1,49 @@
+package com.codecollab.collaborationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relays /topic and /queue to an external STOMP broker (e.g. RabbitMQ with the STOMP plugin
+ * or ActiveMQ Artemis), so a message published on one instance reaches subscribers on all
+ * of them. User destinations are shared through the broker as well, which makes
+ * {@code convertAndSendToUser} work no matter which instance the user is connected to.
+ */
+@Component
+@ConditionalOnProperty(name = "collaboration.broker.mode", havingValue = "relay")
+public class StompRelayBrokerConfigurer implements BrokerConfigurer {
+
+    @Value("${collaboration.broker.relay.host:localhost}")
+    private String host;
+
+    @Value("${collaboration.broker.relay.port:61613}")
+    private int port;
+
+    @Value("${collaboration.broker.relay.login:guest}")
+    private String login;
+
+    @Value("${collaboration.broker.relay.passcode:guest}")
+    private String passcode;
+
+    @Value("${collaboration.broker.relay.virtual-host:}")
+    private String virtualHost;
+
+    @Override
+    public void configure(MessageBrokerRegistry registry) {
+        var relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(host)
+                .setRelayPort(port)
+                .setClientLogin(login)
+                .setClientPasscode(passcode)
+                .setSystemLogin(login)
+                .setSystemPasscode(passcode)
+                // Lets every instance resolve /user/** destinations for users connected elsewhere
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+        if (!virtualHost.isBlank()) {
+            relay.setVirtualHost(virtualHost);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.codecollab.collaborationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors for this service's own background work: session lanes, outbound queues and the
+ * spectator fan-out. Behind the same switch as Tomcat and the STOMP channels: with virtual
+ * threads every task gets a thread of its own, otherwise tasks share platform threads.
+ */
+@Component
+public class TaskExecutors {
+
+    private final boolean virtualThreads;
+
+    public TaskExecutors(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    // For tasks that may block for long, such as socket writes: platform threads are added as needed
+    public ExecutorService unbounded(String namePrefix) {
+        return virtualThreads
+                ? Executors.newThreadPerTaskExecutor(virtual(namePrefix))
+                : Executors.newCachedThreadPool(Thread.ofPlatform().name(namePrefix, 0).factory());
+    }
+
+    // For short tasks: at most this many platform threads run them at once
+    public ExecutorService bounded(String namePrefix, int platformThreads) {
+        return virtualThreads
+                ? Executors.newThreadPerTaskExecutor(virtual(namePrefix))
+                : Executors.newFixedThreadPool(platformThreads, Thread.ofPlatform().name(namePrefix, 0).factory());
+    }
+
+    private static ThreadFactory virtual(String namePrefix) {
+        return Thread.ofVirtual().name(namePrefix, 0).factory();
+    }
+}
@@ -0,0 +1,25 @@
+package com.codecollab.collaborationservice.config;
+
+import com.codecollab.collaborationservice.sharding.OwnerForwardingInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final OwnerForwardingInterceptor ownerForwardingInterceptor;
+
+    // Lazy: the interceptor leads to DocumentService and the Feign clients, and creating a Feign
+    // client needs the MVC conversion service, which is built from this configurer
+    public WebMvcConfig(@Lazy OwnerForwardingInterceptor ownerForwardingInterceptor) {
+        this.ownerForwardingInterceptor = ownerForwardingInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Endpoints with a {sessionId} are served by the session's owning instance
+        registry.addInterceptor(ownerForwardingInterceptor).addPathPatterns("/api/internal/**", "/api/presence/**");
+    }
+}
@@ -2,14 +2,23 @@ package com.codecollab.collaborationservice.config;
 
 import com.codecollab.collaborationservice.security.AuthChannelInterceptor;
 import com.codecollab.collaborationservice.security.CustomHandshakeHandler; // <-- NEW IMPORT
+import com.codecollab.collaborationservice.sharding.SessionOwnerHandshakeInterceptor;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -18,6 +27,18 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final AuthChannelInterceptor authChannelInterceptor;
     private final CustomHandshakeHandler customHandshakeHandler;
+    private final BrokerConfigurer brokerConfigurer;
+    private final BinaryWireFormatInterceptor binaryWireFormatInterceptor;
+    private final NativeTransportHandshakeInterceptor nativeTransportHandshakeInterceptor;
+    private final WebSocketTrafficMetrics webSocketTrafficMetrics;
+    private final OutboundFlowControl outboundFlowControl;
+    private final PresenceChannelInterceptor presenceChannelInterceptor;
+    private final SessionOwnerHandshakeInterceptor sessionOwnerHandshakeInterceptor;
+    private final ConnectionRegistry connectionRegistry;
+
+    // Same switch that moves Tomcat and @Scheduled work onto virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
     @PostConstruct
     public void init() {
@@ -30,22 +51,83 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         System.out.println("=== Registering STOMP Endpoints ===");
 
+        // Frames from one connection reach the handlers in the order they were sent, so they
+        // are queued on their session's lane in that order too
+        registry.setPreserveReceiveOrder(true);
+
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .setHandshakeHandler(customHandshakeHandler)
+                .addInterceptors(sessionOwnerHandshakeInterceptor)
                 .withSockJS();
 //                .setSupressCors(true);
+
+        // Same STOMP endpoint without SockJS framing or fallback transports; the only one that can
+        // carry binary (CBOR) frames. Tomcat compresses frames with permessage-deflate whenever
+        // the browser offers it.
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(customHandshakeHandler)
+                .addInterceptors(sessionOwnerHandshakeInterceptor, nativeTransportHandshakeInterceptor);
         System.out.println("WebSocket endpoint registered with custom handshake handler");
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic","/queue");
+        brokerConfigurer.configure(registry);
         registry.setApplicationDestinationPrefixes("/app");
+        // Edits must reach each client in revision order, however many outbound threads there are
+        registry.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // The last factory wraps the raw session first: byte counts are taken at the socket,
+        // after conflation, and per-connection queues sit above that
+        registration.addDecoratorFactory(connectionRegistry);
+        registration.addDecoratorFactory(outboundFlowControl);
+        registration.addDecoratorFactory(webSocketTrafficMetrics);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(authChannelInterceptor);
+        registration.interceptors(authChannelInterceptor, binaryWireFormatInterceptor, presenceChannelInterceptor);
+        if (virtualThreads) {
+            registration.taskExecutor(virtualThreadExecutor("ws-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(binaryWireFormatInterceptor);
+        if (virtualThreads) {
+            registration.taskExecutor(virtualThreadExecutor("ws-outbound-"));
+        }
+    }
+
+    /**
+     * A thread per in-flight message. Handlers that block on session-service (permission or
+     * document loads through Feign) only park their own virtual thread, instead of holding one
+     * of the 2 x cores platform threads every other session is queued behind.
+     */
+    private static ThreadPoolTaskExecutor virtualThreadExecutor(String namePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(Thread.ofVirtual().name(namePrefix, 0).factory());
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Reads SEND frames with content-type:application/cbor; strict so it never claims
+        // untyped outbound messages, which keep going through the default JSON converter
+        MappingJackson2MessageConverter cborConverter =
+                new MappingJackson2MessageConverter(BinaryWireFormatInterceptor.APPLICATION_CBOR);
+        cborConverter.setObjectMapper(new CBORMapper());
+        cborConverter.setStrictContentTypeMatch(true);
+        messageConverters.add(cborConverter);
+        return true;
     }
 }
\ No newline at end of file
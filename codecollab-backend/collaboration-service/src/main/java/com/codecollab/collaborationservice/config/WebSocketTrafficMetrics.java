@@ -0,0 +1,76 @@
+package com.codecollab.collaborationservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+
+/**
+ * Counts WebSocket payload bytes per direction, transport (native / sockjs) and whether the
+ * connection negotiated permessage-deflate. The counts are payload sizes before the container
+ * compresses them, so comparing the two compression tags shows how much of the traffic
+ * actually goes out compressed.
+ */
+@Component
+public class WebSocketTrafficMetrics implements WebSocketHandlerDecoratorFactory {
+
+    private static final String METRIC = "collaboration.websocket.payload.bytes";
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketTrafficMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(new CountingSession(session, counter(session, "out")));
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                counter(session, "in").increment(message.getPayloadLength());
+                super.handleMessage(session, message);
+            }
+        };
+    }
+
+    private Counter counter(WebSocketSession session, String direction) {
+        boolean deflate = session.getExtensions().stream()
+                .map(WebSocketExtension::getName)
+                .anyMatch(PERMESSAGE_DEFLATE::equals);
+        return meterRegistry.counter(METRIC,
+                "direction", direction,
+                "transport", session instanceof SockJsSession ? "sockjs" : "native",
+                "compression", deflate ? PERMESSAGE_DEFLATE : "none");
+    }
+
+    private static class CountingSession extends WebSocketSessionDecorator {
+
+        private final Counter sent;
+
+        CountingSession(WebSocketSession session, Counter sent) {
+            super(session);
+            this.sent = sent;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            sent.increment(message.getPayloadLength());
+        }
+    }
+}
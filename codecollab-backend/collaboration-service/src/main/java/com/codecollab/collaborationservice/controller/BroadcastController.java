@@ -1,6 +1,6 @@
 package com.codecollab.collaborationservice.controller;
 
-import com.codecollab.collaborationservice.dto.CodeExecutionResponse;
+import com.codecollab.collaborationservice.dto.ExecutionOutputEvent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.web.bind.annotation.*;
@@ -16,11 +16,11 @@ public class BroadcastController {
     // This is a Spring helper for sending WebSocket messages
     private final SimpMessageSendingOperations messagingTemplate;
 
-    @PostMapping("/broadcast/{sessionId}")
-    public void broadcastExecutionResult(@PathVariable String sessionId, @RequestBody CodeExecutionResponse result) {
-        System.out.println("Broadcasting result to session: " + sessionId);
-        // Send the result to the output topic for this session
-        messagingTemplate.convertAndSend("/topic/output/" + sessionId, result);
+    // Called by execution-service for every chunk of a run's output, in order, and once more when it ends
+    @PostMapping("/broadcast/{sessionId}/output")
+    public void broadcastExecutionOutput(@PathVariable String sessionId, @RequestBody ExecutionOutputEvent event) {
+        log.debug("Output {} of run {} for session {}", event.getSeq(), event.getRunId(), sessionId);
+        messagingTemplate.convertAndSend("/topic/output/" + sessionId, event);
     }
 
     @PostMapping("/broadcast/notify-owner/{ownerUsername}")
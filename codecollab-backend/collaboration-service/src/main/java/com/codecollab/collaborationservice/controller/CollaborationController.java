@@ -1,58 +1,136 @@
 package com.codecollab.collaborationservice.controller;
 
-import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.ChatHistoryPage;
 import com.codecollab.collaborationservice.dto.ChatMessage;
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
 import com.codecollab.collaborationservice.dto.CodeUpdateMessage;
-import com.codecollab.collaborationservice.dto.CodeUpdateRequest;
 import com.codecollab.collaborationservice.dto.CursorPositionDTO;
+import com.codecollab.collaborationservice.dto.DocumentSync;
+import com.codecollab.collaborationservice.dto.PresenceRoster;
+import com.codecollab.collaborationservice.exception.DocumentOutOfSyncException;
+import com.codecollab.collaborationservice.service.ChatHistoryService;
+import com.codecollab.collaborationservice.service.CursorAggregator;
+import com.codecollab.collaborationservice.service.DocumentService;
+import com.codecollab.collaborationservice.service.PresenceService;
+import com.codecollab.collaborationservice.service.SessionLanes;
+import com.codecollab.collaborationservice.spectator.SpectatorHub;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
+import java.util.function.Supplier;
+
 @Controller // Note: We use @Controller, not @RestController for WebSockets
 @RequiredArgsConstructor
 public class CollaborationController {
 
-    private final SessionServiceClient sessionServiceClient;
+    private final DocumentService documentService;
+    private final CursorAggregator cursorAggregator;
+    private final PresenceService presenceService;
+    private final ChatHistoryService chatHistoryService;
+    private final SessionLanes sessionLanes;
+    private final SpectatorHub spectatorHub;
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    // Clients subscribe to /app/document/{sessionId} on every (re)connect. A client that has seen
+    // revision N sends a "since-revision: N" header, plus the "document-epoch" that revision
+    // belongs to, and gets only the edits it missed.
+    @SubscribeMapping("/document/{sessionId}")
+    public DocumentSync handleDocumentSubscribe(
+            @DestinationVariable String sessionId,
+            @Header(name = "document-epoch", required = false) String epoch,
+            @Header(name = "since-revision", required = false) Long sinceRevision) {
+        return documentService.sync(sessionId, epoch, sinceRevision);
+    }
 
+    // Current roster; changes follow on /topic/presence/{sessionId}
+    @SubscribeMapping("/presence/{sessionId}")
+    public PresenceRoster handlePresenceSubscribe(@DestinationVariable String sessionId) {
+        return presenceService.getRoster(sessionId);
+    }
 
-    @MessageMapping("/code/{sessionId}")
-    @SendTo("/topic/code/{sessionId}")
-    public CodeUpdateMessage handleCodeUpdate(
+    // Edits are applied and broadcast on the session's lane, so each one is published only after
+    // every edit with a lower revision, whichever inbound thread the frames arrived on
+    @MessageMapping("/edit/{sessionId}")
+    public void handleEdit(
             @DestinationVariable String sessionId,
-            CodeUpdateMessage message) {
-
+            @Payload CodeOperationMessage edit,
+            SimpMessageHeaderAccessor headerAccessor) {
+        String username = headerAccessor.getUser().getName();
+        String connectionId = headerAccessor.getSessionId();
+        sessionLanes.submit(sessionId, () ->
+                broadcastEdit(sessionId, username, connectionId, () -> documentService.applyEdit(sessionId, username, edit)));
+    }
 
-        System.out.println("Received message for session " + sessionId + ": " + message.getContent());
+    // Full-content replacement (used when reverting to a snapshot). It is turned into a
+    // regular edit so that it is ordered and transformed like every other change.
+    @MessageMapping("/code/{sessionId}")
+    public void handleCodeUpdate(
+            @DestinationVariable String sessionId,
+            CodeUpdateMessage message,
+            SimpMessageHeaderAccessor headerAccessor) {
+        String username = headerAccessor.getUser().getName();
+        String connectionId = headerAccessor.getSessionId();
+        sessionLanes.submit(sessionId, () ->
+                broadcastEdit(sessionId, username, connectionId, () -> documentService.replaceContent(sessionId, username, message.getContent())));
+    }
 
-        sessionServiceClient.updateSessionCode(sessionId, new CodeUpdateRequest(message.getContent()));
-        System.out.println("Persisted code update for session " + sessionId);
+    private void broadcastEdit(String sessionId, String username, String connectionId, Supplier<CodeOperationMessage> apply) {
+        long revisionBefore = documentService.revision(sessionId);
+        CodeOperationMessage applied;
+        try {
+            applied = apply.get();
+        } catch (DocumentOutOfSyncException e) {
+            // Only the connection that sent the stale edit starts over from a snapshot
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(connectionId);
+            headers.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(username, "/queue/document",
+                    documentService.snapshot(e.getSessionId()), headers.getMessageHeaders());
+            return;
+        }
+        messagingTemplate.convertAndSend("/topic/edit/" + sessionId, applied);
+        // A resent edit is acknowledged again to editors, but spectators only see new ones
+        if (applied.getRevision() > revisionBefore) {
+            spectatorHub.publish(sessionId, applied);
+        }
+    }
 
-        return message;
+    // Recent messages from memory; older pages come from session-service's chat endpoint
+    @SubscribeMapping("/chat/{sessionId}")
+    public ChatHistoryPage handleChatSubscribe(@DestinationVariable String sessionId) {
+        return chatHistoryService.getRecent(sessionId);
     }
 
+    // On the session's lane too, so chat lines are stored and broadcast in one order
     @MessageMapping("/chat/{sessionId}")
-    @SendTo("/topic/chat/{sessionId}")
-    public ChatMessage handleChatMessage(@DestinationVariable String sessionId, ChatMessage chatMessage) {
-        System.out.println("Received chat message for session " + sessionId + ": " + chatMessage.getContent());
-        return chatMessage;
+    public void handleChatMessage(
+            @DestinationVariable String sessionId,
+            @Payload ChatMessage chatMessage,
+            SimpMessageHeaderAccessor headerAccessor) {
+        // The sender is whoever is authenticated, not whatever the client put in the message
+        String sender = headerAccessor.getUser().getName();
+        sessionLanes.submit(sessionId, () -> messagingTemplate.convertAndSend("/topic/chat/" + sessionId,
+                chatHistoryService.record(sessionId, sender, chatMessage)));
     }
 
+    // Cursors are not echoed one by one; CursorAggregator sends them as batched frames
     @MessageMapping("/cursor/{sessionId}")
-    @SendTo("/topic/cursor/{sessionId}")
-    public CursorPositionDTO handleCursorMove(
+    public void handleCursorMove(
             @DestinationVariable String sessionId,
             @Payload CursorPositionDTO cursorPosition,
             SimpMessageHeaderAccessor headerAccessor) {
         String username = headerAccessor.getUser().getName();
         cursorPosition.setUsername(username);
 
-
-        return cursorPosition;
+        cursorAggregator.submit(sessionId, cursorPosition);
     }
 
 
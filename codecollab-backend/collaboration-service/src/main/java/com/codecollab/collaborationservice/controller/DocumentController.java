@@ -0,0 +1,59 @@
+package com.codecollab.collaborationservice.controller;
+
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.ReplaceDocumentRequest;
+import com.codecollab.collaborationservice.service.DocumentService;
+import com.codecollab.collaborationservice.service.SessionLanes;
+import com.codecollab.collaborationservice.spectator.SpectatorHub;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Called by session-service (through its outbox) when a session's code is replaced there
+@Slf4j
+@RestController
+@RequestMapping("/api/internal/documents")
+@RequiredArgsConstructor
+public class DocumentController {
+
+    private final DocumentService documentService;
+    private final SessionLanes sessionLanes;
+    private final SpectatorHub spectatorHub;
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    // Applied on the session's lane like any edit, so it is ordered with the ones around it.
+    // Answers once it is applied; a failure leaves the call to be retried by the outbox.
+    @PostMapping("/{sessionId}/replace")
+    public ResponseEntity<Void> replace(@PathVariable String sessionId, @RequestBody ReplaceDocumentRequest request) {
+        CompletableFuture<Void> replaced = new CompletableFuture<>();
+        sessionLanes.submit(sessionId, () -> {
+            try {
+                CodeOperationMessage applied = documentService.replaceLive(sessionId, request.getUsername(), request.getCodeContent());
+                if (applied != null) {
+                    messagingTemplate.convertAndSend("/topic/edit/" + sessionId, applied);
+                    spectatorHub.publish(sessionId, applied);
+                }
+                replaced.complete(null);
+            } catch (RuntimeException e) {
+                replaced.completeExceptionally(e);
+            }
+        });
+        try {
+            replaced.join();
+        } catch (CompletionException e) {
+            log.warn("Could not replace the document of session '{}': {}", sessionId, e.getCause().getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.codecollab.collaborationservice.controller;
+
+import com.codecollab.collaborationservice.service.DocumentService;
+import com.codecollab.collaborationservice.sharding.SessionOwnership;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Called by the instance a session moved to, before it lets anyone load the session's document
+@RestController
+@RequestMapping("/api/internal/documents")
+@RequiredArgsConstructor
+public class HandoffController {
+
+    private final DocumentService documentService;
+    private final SessionOwnership sessionOwnership;
+
+    @PostMapping("/{sessionId}/handoff")
+    public ResponseEntity<Void> handOff(@PathVariable String sessionId) {
+        // Until this instance sees the ring change too, its clients may still be editing here
+        if (sessionOwnership.isOwner(sessionId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return documentService.handOff(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+}
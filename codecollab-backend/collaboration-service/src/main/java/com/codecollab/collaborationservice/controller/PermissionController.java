@@ -0,0 +1,24 @@
+package com.codecollab.collaborationservice.controller;
+
+import com.codecollab.collaborationservice.security.SessionPermissionCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Called by session-service whenever a session's participants, roles or blocked list change
+@RestController
+@RequestMapping("/api/internal/permissions")
+@RequiredArgsConstructor
+public class PermissionController {
+
+    private final SessionPermissionCache sessionPermissionCache;
+
+    @PostMapping("/{sessionId}/invalidate")
+    public ResponseEntity<Void> invalidate(@PathVariable String sessionId) {
+        sessionPermissionCache.invalidate(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.codecollab.collaborationservice.controller;
+
+import com.codecollab.collaborationservice.dto.PresenceRoster;
+import com.codecollab.collaborationservice.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Who is connected to a session right now (live presence, not the participant list)
+@RestController
+@RequestMapping("/api/presence")
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final PresenceService presenceService;
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<PresenceRoster> getRoster(@PathVariable String sessionId) {
+        return ResponseEntity.ok(presenceService.getRoster(sessionId));
+    }
+
+    @GetMapping("/{sessionId}/{username}")
+    public ResponseEntity<Boolean> isOnline(@PathVariable String sessionId, @PathVariable String username) {
+        return ResponseEntity.ok(presenceService.isOnline(sessionId, username));
+    }
+}
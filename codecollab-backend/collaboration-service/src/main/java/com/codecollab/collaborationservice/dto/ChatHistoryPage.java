@@ -0,0 +1,16 @@
+package com.codecollab.collaborationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Chat messages oldest first; hasMore says whether older ones can be fetched from session-service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistoryPage {
+    private List<ChatMessage> messages;
+    private boolean hasMore;
+}
@@ -8,9 +8,13 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ChatMessage {
+    // messageId, sessionId and sentAt are assigned by the server when the message arrives
+    private String messageId;
+    private String sessionId;
     private String sender;
     private String content;
     private MessageType type;
+    private long sentAt; // epoch millis
 
     public enum MessageType {
         CHAT,
@@ -0,0 +1,19 @@
+package com.codecollab.collaborationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeOperationMessage {
+    private String clientId;   // Lets the sender recognise the echo of its own edit as an acknowledgement
+    private String username;
+    private String epoch;      // Load of the document the revisions below belong to
+    private long baseRevision; // Revision the operations were written against
+    private long revision;     // Revision assigned by the server once applied
+    private List<TextOperation> operations; // Applied in order, each against the result of the previous one
+}
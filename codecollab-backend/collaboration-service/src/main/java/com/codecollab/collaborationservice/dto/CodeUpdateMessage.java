@@ -9,5 +9,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class CodeUpdateMessage {
     private String content;
-    // We can add more fields later, like senderId, cursorPosition, etc.
+    private String epoch;  // Load of the document the revision belongs to
+    private long revision; // Document revision this content corresponds to
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.codecollab.collaborationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// The latest cursor of every user in the session; a newer frame replaces an older one
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorFrame {
+    private List<CursorPositionDTO> cursors;
+}
@@ -0,0 +1,25 @@
+package com.codecollab.collaborationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Answer to a client (re)joining a document: either the edits it missed since the revision
+ * it last saw, oldest first, or, when those are no longer in the log, the full content.
+ * Exactly one of content and edits is set. Revisions restart whenever the document is loaded
+ * again, so they are only comparable within one epoch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DocumentSync {
+    private String epoch;                    // Load of the document the revision belongs to
+    private long revision;                   // Revision the client is at after applying this
+    private String content;                  // Full content, when a snapshot was needed
+    private List<CodeOperationMessage> edits; // Missed edits, when the client can catch up
+}
@@ -0,0 +1,19 @@
+package com.codecollab.collaborationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A run of output written to one stream without the program switching to the other in between
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutputSegment {
+    private Stream stream;
+    private String text;
+
+    public enum Stream {
+        STDOUT,
+        STDERR
+    }
+}
@@ -0,0 +1,21 @@
+package com.codecollab.collaborationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Everyone currently connected to a session; PresenceUpdates with a higher version apply on top
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceRoster {
+    private long version;
+    private Map<String, Status> users;
+
+    public enum Status {
+        ACTIVE,
+        IDLE
+    }
+}
@@ -0,0 +1,21 @@
+package com.codecollab.collaborationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// What changed in a session's roster since the previous update; empty lists are left out
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class PresenceUpdate {
+    private long version;
+    private List<String> joined;
+    private List<String> left;
+    private List<String> idle;
+    private List<String> active;
+}
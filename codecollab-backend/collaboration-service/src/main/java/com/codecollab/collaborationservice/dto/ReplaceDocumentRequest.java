@@ -0,0 +1,14 @@
+package com.codecollab.collaborationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// New content for a session's live document, e.g. after its owner reverted to a snapshot
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplaceDocumentRequest {
+    private String username;
+    private String codeContent;
+}
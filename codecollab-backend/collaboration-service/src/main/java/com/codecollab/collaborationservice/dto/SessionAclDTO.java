@@ -5,8 +5,10 @@ import java.util.Map;
 import java.util.Set;
 
 @Data
-public class CodeSessionDTO {
+public class SessionAclDTO {
     private String ownerUsername;
     private Map<String, String> participants;
     private Set<String> blockedUsers;
-}
\ No newline at end of file
+    // Session version the lists were read at; sent back as If-None-Match to revalidate them
+    private long version;
+}
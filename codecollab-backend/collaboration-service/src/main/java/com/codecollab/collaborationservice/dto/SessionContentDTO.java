@@ -0,0 +1,7 @@
+package com.codecollab.collaborationservice.dto;
+import lombok.Data;
+
+@Data
+public class SessionContentDTO {
+    private String codeContent;
+}
@@ -0,0 +1,36 @@
+package com.codecollab.collaborationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What a spectator receives: one SNAPSHOT when it connects, then every EDIT in revision
+ * order. Spectators apply the operations as they come; they never send anything.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SpectatorFrame {
+    private Type type;
+    private long revision;
+    private String content;                 // SNAPSHOT only
+    private List<TextOperation> operations; // EDIT only
+
+    public enum Type {
+        SNAPSHOT,
+        EDIT
+    }
+
+    public static SpectatorFrame snapshot(CodeUpdateMessage snapshot) {
+        return new SpectatorFrame(Type.SNAPSHOT, snapshot.getRevision(), snapshot.getContent(), null);
+    }
+
+    public static SpectatorFrame edit(CodeOperationMessage edit) {
+        return new SpectatorFrame(Type.EDIT, edit.getRevision(), null, edit.getOperations());
+    }
+}
@@ -0,0 +1,39 @@
+package com.codecollab.collaborationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A single insert or delete against the document, addressed by character offset.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextOperation {
+    private Type type;
+    private int position;
+    private String text;   // only used by INSERT
+    private int length;    // only used by DELETE
+
+    public enum Type {
+        INSERT,
+        DELETE
+    }
+
+    public static TextOperation insert(int position, String text) {
+        return new TextOperation(Type.INSERT, position, text, 0);
+    }
+
+    public static TextOperation delete(int position, int length) {
+        return new TextOperation(Type.DELETE, position, null, length);
+    }
+
+    @JsonIgnore
+    public boolean isInsert() {
+        return type == Type.INSERT;
+    }
+
+    public int span() {
+        return isInsert() ? text.length() : length;
+    }
+}
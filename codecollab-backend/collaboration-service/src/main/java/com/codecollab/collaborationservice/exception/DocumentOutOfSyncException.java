@@ -0,0 +1,16 @@
+package com.codecollab.collaborationservice.exception;
+
+import lombok.Getter;
+
+// Thrown when an edit cannot be applied to the server's copy of the document.
+// The sender is answered with a fresh snapshot so it can start over from a known revision.
+@Getter
+public class DocumentOutOfSyncException extends RuntimeException {
+
+    private final String sessionId;
+
+    public DocumentOutOfSyncException(String sessionId, String message) {
+        super(message);
+        this.sessionId = sessionId;
+    }
+}
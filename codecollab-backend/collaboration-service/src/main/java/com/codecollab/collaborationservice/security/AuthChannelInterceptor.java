@@ -1,7 +1,6 @@
 package com.codecollab.collaborationservice.security;
 
-import com.codecollab.collaborationservice.client.SessionServiceClient;
-import com.codecollab.collaborationservice.dto.CodeSessionDTO;
+import com.codecollab.collaborationservice.security.SessionPermissionCache.SessionPermissions;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j; // <-- NEW IMPORT for logging
 import org.springframework.messaging.Message;
@@ -19,41 +18,37 @@ import java.security.Principal;
 @RequiredArgsConstructor
 public class AuthChannelInterceptor implements ChannelInterceptor {
 
-    private final SessionServiceClient sessionServiceClient;
+    private final SessionPermissionCache sessionPermissionCache;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
 
-        log.info("--- Interceptor Running for a message ---"); // Log that the interceptor is active
-
         if (accessor != null && StompCommand.SEND.equals(accessor.getCommand())) {
             Principal user = accessor.getUser();
             String destination = accessor.getDestination();
 
-            log.info("Message Type: SEND, Destination: {}", destination);
-
             if (user != null && user.getName() != null && destination != null) {
                 String sessionId = extractSessionId(destination);
                 if (sessionId != null) {
 
-                    log.info("Extracted Session ID: {}", sessionId);
-                    log.info("Authenticated User Principal: {}", user.getName());
-
-                    // Ask the session-service for the permission details
-                    CodeSessionDTO session = sessionServiceClient.getSessionById(sessionId);
+                    // Served from the per-session cache; only a miss goes to session-service
+                    SessionPermissions permissions = sessionPermissionCache.get(sessionId);
 
-                    // --- THIS IS THE CRITICAL LOG ---
-                    // It will show us exactly what we are comparing.
-                    log.info("PERMISSION CHECK: User='{}', Blocked List='{}'", user.getName(), session.getBlockedUsers());
+                    log.debug("PERMISSION CHECK: User='{}', Session='{}', Blocked List='{}'",
+                            user.getName(), sessionId, permissions.blockedUsers());
 
                     // Security Check: Is the user blocked for this session?
-                    if (session.getBlockedUsers().contains(user.getName())) {
+                    if (permissions.isBlocked(user.getName())) {
                         log.warn("ACCESS DENIED for blocked user '{}' in session '{}'", user.getName(), sessionId);
                         throw new AccessDeniedException("You are blocked from contributing to this session.");
                     }
 
-                    log.info("ACCESS GRANTED for user '{}'", user.getName());
+                    // Security Check: Viewers may watch but not change the code.
+                    if (isCodeChange(destination) && permissions.isViewer(user.getName())) {
+                        log.warn("ACCESS DENIED for viewer '{}' editing session '{}'", user.getName(), sessionId);
+                        throw new AccessDeniedException("Viewers cannot edit this session.");
+                    }
                 }
             } else {
                 log.warn("Message is SEND type, but user principal or destination is null. Skipping security check.");
@@ -62,6 +57,10 @@ public class AuthChannelInterceptor implements ChannelInterceptor {
         return message;
     }
 
+    private boolean isCodeChange(String destination) {
+        return destination.startsWith("/app/edit/") || destination.startsWith("/app/code/");
+    }
+
     private String extractSessionId(String destination) {
         if (destination == null) return null;
         String[] parts = destination.split("/");
@@ -70,4 +69,4 @@ public class AuthChannelInterceptor implements ChannelInterceptor {
         }
         return null;
     }
-}
\ No newline at end of file
+}
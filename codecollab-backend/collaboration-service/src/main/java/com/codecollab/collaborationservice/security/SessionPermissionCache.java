@@ -0,0 +1,131 @@
+package com.codecollab.collaborationservice.security;
+
+import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.SessionAclDTO;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-session copy of the blocked list and participant roles, so that authorizing a STOMP
+ * SEND is a map lookup instead of a call to session-service. Entries expire after a TTL and
+ * are dropped immediately when session-service reports a membership change. An expired entry
+ * is revalidated by its session version, so an unchanged ACL is not downloaded again.
+ */
+@Slf4j
+@Component
+public class SessionPermissionCache {
+
+    private final SessionServiceClient sessionServiceClient;
+    private final Map<String, SessionPermissions> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SessionPermissions>> loading = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter joins;
+    private final Counter invalidations;
+    private final Counter revalidations;
+
+    @Value("${collaboration.acl.ttl-ms:60000}")
+    private long ttlMillis;
+
+    public SessionPermissionCache(SessionServiceClient sessionServiceClient, MeterRegistry meterRegistry) {
+        this.sessionServiceClient = sessionServiceClient;
+        this.hits = meterRegistry.counter("collaboration.acl.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("collaboration.acl.cache.requests", "result", "miss");
+        // Waited on another SEND's lookup, so neither served from the cache nor a lookup of its own
+        this.joins = meterRegistry.counter("collaboration.acl.cache.requests", "result", "joined");
+        this.invalidations = meterRegistry.counter("collaboration.acl.cache.invalidations");
+        this.revalidations = meterRegistry.counter("collaboration.acl.cache.revalidations");
+        Gauge.builder("collaboration.acl.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public SessionPermissions get(String sessionId) {
+        SessionPermissions cached = entries.get(sessionId);
+        if (cached != null && cached.loadedAt() + ttlMillis > System.currentTimeMillis()) {
+            hits.increment();
+            return cached;
+        }
+        // Concurrent misses for one session share a single lookup, which runs outside any map
+        // lock so that a virtual thread waiting on session-service does not pin its carrier
+        CompletableFuture<SessionPermissions> created = new CompletableFuture<>();
+        CompletableFuture<SessionPermissions> inFlight = loading.putIfAbsent(sessionId, created);
+        if (inFlight != null) {
+            joins.increment();
+            return await(inFlight);
+        }
+        misses.increment();
+        try {
+            SessionPermissions loaded = load(sessionId, cached);
+            // Not cached if an invalidation arrived while loading; the next SEND reloads
+            entries.compute(sessionId, (id, current) -> loading.remove(id, created) ? loaded : current);
+            created.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            loading.remove(sessionId, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(String sessionId) {
+        // Cancels caching of a load already in flight, then drops the entry
+        loading.remove(sessionId);
+        if (entries.remove(sessionId) != null) {
+            invalidations.increment();
+            log.info("Invalidated cached permissions for session '{}'", sessionId);
+        }
+    }
+
+    private static SessionPermissions await(CompletableFuture<SessionPermissions> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private SessionPermissions load(String sessionId, SessionPermissions expired) {
+        if (expired == null) {
+            return permissionsOf(sessionServiceClient.getSessionAcl(sessionId));
+        }
+        try {
+            return permissionsOf(sessionServiceClient.getSessionAcl(sessionId, "\"" + expired.version() + "\""));
+        } catch (FeignException e) {
+            if (e.status() != HttpStatus.NOT_MODIFIED.value()) {
+                throw e;
+            }
+            revalidations.increment();
+            return new SessionPermissions(expired.blockedUsers(), expired.roles(), expired.version(), System.currentTimeMillis());
+        }
+    }
+
+    private static SessionPermissions permissionsOf(SessionAclDTO session) {
+        return new SessionPermissions(
+                session.getBlockedUsers() != null ? Set.copyOf(session.getBlockedUsers()) : Set.of(),
+                session.getParticipants() != null ? Map.copyOf(session.getParticipants()) : Map.of(),
+                session.getVersion(),
+                System.currentTimeMillis());
+    }
+
+    public record SessionPermissions(Set<String> blockedUsers, Map<String, String> roles, long version, long loadedAt) {
+
+        public boolean isBlocked(String username) {
+            return blockedUsers.contains(username);
+        }
+
+        public boolean isViewer(String username) {
+            return "VIEWER".equals(roles.get(username));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.ChatHistoryPage;
+import com.codecollab.collaborationservice.dto.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Chat history of the sessions open on this instance. The latest messages of each session
+ * are kept in a bounded ring buffer, so a user joining gets them without a database call.
+ * New messages are written to session-service in batches by a background job (see
+ * {@link #flushUnsaved()}); sending a message never waits for the database.
+ */
+@Slf4j
+@Service
+public class ChatHistoryService {
+
+    private final SessionServiceClient sessionServiceClient;
+    private final Map<String, RecentMessages> recent = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<RecentMessages>> loading = new ConcurrentHashMap<>();
+    // Oldest first; failed batches are put back at the head
+    private final BlockingDeque<ChatMessage> unsaved = new LinkedBlockingDeque<>();
+    private final Counter dropped;
+
+    // Messages per session kept in memory
+    @Value("${collaboration.chat.recent-messages:100}")
+    private int recentMessages;
+
+    @Value("${collaboration.chat.batch-size:500}")
+    private int batchSize;
+
+    // Beyond this many unsaved messages (session-service down) the oldest are dropped
+    @Value("${collaboration.chat.max-unsaved:10000}")
+    private int maxUnsaved;
+
+    public ChatHistoryService(SessionServiceClient sessionServiceClient, MeterRegistry meterRegistry) {
+        this.sessionServiceClient = sessionServiceClient;
+        this.dropped = meterRegistry.counter("collaboration.chat.dropped");
+        Gauge.builder("collaboration.chat.unsaved", unsaved, Deque::size)
+                .description("Chat messages waiting to be written to session-service")
+                .register(meterRegistry);
+    }
+
+    // Stamps the message and queues it for saving; runs on the STOMP thread, so never blocks
+    public ChatMessage record(String sessionId, String sender, ChatMessage message) {
+        message.setMessageId(UUID.randomUUID().toString());
+        message.setSessionId(sessionId);
+        message.setSender(sender);
+        message.setSentAt(System.currentTimeMillis());
+        if (message.getType() == null) {
+            message.setType(ChatMessage.MessageType.CHAT);
+        }
+        unsaved.add(message);
+        while (unsaved.size() > maxUnsaved && unsaved.pollFirst() != null) {
+            dropped.increment();
+        }
+        // A buffer being loaded right now picks the message up from the unsaved queue
+        RecentMessages buffer = recent.get(sessionId);
+        if (buffer != null) {
+            buffer.add(message);
+        }
+        return message;
+    }
+
+    public ChatHistoryPage getRecent(String sessionId) {
+        return getBuffer(sessionId).page();
+    }
+
+    // Called when the last editor leaves; unsaved messages stay queued
+    public void release(String sessionId) {
+        recent.remove(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.chat.flush-interval-ms:1000}")
+    public void flushUnsaved() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (unsaved.drainTo(batch, batchSize) > 0) {
+            try {
+                sessionServiceClient.saveChatMessages(batch);
+                log.debug("Saved {} chat message(s)", batch.size());
+            } catch (Exception e) {
+                // Back to the head in the original order; session-service skips ones it already has
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    unsaved.offerFirst(batch.get(i));
+                }
+                log.warn("Failed to save {} chat message(s), will retry: {}", batch.size(), e.getMessage());
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        log.info("Saving {} chat message(s) before shutdown", unsaved.size());
+        flushUnsaved();
+    }
+
+    private RecentMessages getBuffer(String sessionId) {
+        RecentMessages buffer = recent.get(sessionId);
+        if (buffer != null) {
+            return buffer;
+        }
+        // Same single-flight load as DocumentService: one remote call, outside any map lock
+        CompletableFuture<RecentMessages> created = new CompletableFuture<>();
+        CompletableFuture<RecentMessages> inFlight = loading.putIfAbsent(sessionId, created);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            ChatHistoryPage saved = sessionServiceClient.getRecentChat(sessionId, recentMessages);
+            RecentMessages loaded = new RecentMessages(recentMessages, saved.isHasMore());
+            saved.getMessages().forEach(loaded::add);
+            // Messages sent while no buffer existed and not yet saved
+            RecentMessages existing = recent.computeIfAbsent(sessionId, id -> {
+                unsaved.stream()
+                        .filter(message -> sessionId.equals(message.getSessionId()))
+                        .forEach(loaded::add);
+                return loaded;
+            });
+            created.complete(existing);
+            return existing;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(sessionId, created);
+        }
+    }
+
+    private static RecentMessages await(CompletableFuture<RecentMessages> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private static final class RecentMessages {
+
+        private final int capacity;
+        private final Deque<ChatMessage> messages;
+        private final Set<String> messageIds = new HashSet<>();
+        private boolean hasOlder;
+
+        RecentMessages(int capacity, boolean hasOlder) {
+            this.capacity = capacity;
+            this.messages = new ArrayDeque<>(capacity);
+            this.hasOlder = hasOlder;
+        }
+
+        synchronized void add(ChatMessage message) {
+            // The same message can arrive from both record() and the load
+            if (!messageIds.add(message.getMessageId())) {
+                return;
+            }
+            if (messages.size() == capacity) {
+                messageIds.remove(messages.pollFirst().getMessageId());
+                hasOlder = true;
+            }
+            messages.addLast(message);
+        }
+
+        synchronized ChatHistoryPage page() {
+            return new ChatHistoryPage(new ArrayList<>(messages), hasOlder);
+        }
+    }
+}
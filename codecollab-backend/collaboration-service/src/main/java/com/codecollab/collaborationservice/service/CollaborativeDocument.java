@@ -0,0 +1,191 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.CodeUpdateMessage;
+import com.codecollab.collaborationservice.dto.TextOperation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The server's copy of one session's code plus a log of the most recent broadcast edits.
+ * The log is used to transform edits written against an older revision and to replay what
+ * a reconnecting client missed. The revision is the sequence number of the log.
+ * <p>
+ * The log lives only in memory, so revisions start over at 0 each time the document is
+ * loaded. Every load gets a new epoch, and a revision means nothing outside its epoch: an
+ * edit or a resync from an earlier load is answered with a snapshot instead.
+ */
+public class CollaborativeDocument {
+
+    private final String sessionId;
+    private final String epoch = UUID.randomUUID().toString();
+    private final int maxHistory;
+    private final PieceTable content;
+    // Newest first
+    private final Deque<CodeOperationMessage> history = new ArrayDeque<>();
+    private final Lock flushLock = new ReentrantLock();
+    private long revision;
+    private long persistedRevision;
+    private long firstUnpersistedEditAt;
+    private long lastEditAt;
+    // Set once the session has moved to another instance: from then on edits are refused
+    private boolean fenced;
+
+    public CollaborativeDocument(String sessionId, String content, int maxHistory) {
+        this.sessionId = sessionId;
+        this.content = new PieceTable(content);
+        this.maxHistory = maxHistory;
+    }
+
+    /**
+     * Transforms the incoming edit against everything applied since its base revision,
+     * applies it and returns the message to broadcast.
+     */
+    public synchronized CodeOperationMessage apply(CodeOperationMessage incoming) {
+        if (fenced) {
+            throw new IllegalStateException("Session " + sessionId + " is being handed to another instance");
+        }
+        if (!epoch.equals(incoming.getEpoch())) {
+            throw new IllegalStateException("Edit was written against epoch " + incoming.getEpoch() + ", not " + epoch);
+        }
+        long base = incoming.getBaseRevision();
+        if (base > revision || base < revision - history.size()) {
+            throw new IllegalStateException("Base revision " + base + " cannot be transformed to " + revision);
+        }
+
+        List<TextOperation> operations = incoming.getOperations() != null ? incoming.getOperations() : List.of();
+        OperationTransformer.requireWellFormed(operations);
+        // Skip what the client has already seen
+        Iterator<CodeOperationMessage> concurrent = history.descendingIterator();
+        for (long seen = revision - history.size(); seen < base; seen++) {
+            concurrent.next();
+        }
+        List<CodeOperationMessage> unseen = new ArrayList<>();
+        concurrent.forEachRemaining(unseen::add);
+        // A client has one edit in flight at a time, so an edit of its own applied after this
+        // base is this very edit, resent after a reconnect: acknowledge it again instead
+        if (incoming.getClientId() != null) {
+            for (CodeOperationMessage applied : unseen) {
+                if (incoming.getClientId().equals(applied.getClientId())) {
+                    return applied;
+                }
+            }
+        }
+        for (CodeOperationMessage applied : unseen) {
+            operations = OperationTransformer.transform(operations, applied.getOperations())[0];
+        }
+
+        OperationTransformer.validate(content.length(), operations);
+        OperationTransformer.apply(content, operations);
+
+        revision++;
+        CodeOperationMessage applied = new CodeOperationMessage(
+                incoming.getClientId(), incoming.getUsername(), epoch, revision - 1, revision, operations);
+        history.addFirst(applied);
+        if (history.size() > maxHistory) {
+            history.removeLast();
+        }
+
+        lastEditAt = System.currentTimeMillis();
+        if (firstUnpersistedEditAt == 0) {
+            firstUnpersistedEditAt = lastEditAt;
+        }
+
+        return applied;
+    }
+
+    /**
+     * The edits applied after {@code seenRevision} of {@code seenEpoch}, oldest first, or null
+     * when they are no longer all in the log (or the revision is from the future or from an
+     * earlier load) and a snapshot is needed.
+     */
+    public synchronized List<CodeOperationMessage> editsSince(String seenEpoch, long seenRevision) {
+        if (!epoch.equals(seenEpoch) || seenRevision > revision || seenRevision < revision - history.size()) {
+            return null;
+        }
+        List<CodeOperationMessage> missed = new ArrayList<>((int) (revision - seenRevision));
+        Iterator<CodeOperationMessage> newestFirst = history.iterator();
+        for (long r = revision; r > seenRevision; r--) {
+            missed.add(newestFirst.next());
+        }
+        Collections.reverse(missed);
+        return missed;
+    }
+
+    /**
+     * Builds an edit that replaces the whole document, based on the current revision.
+     */
+    public synchronized CodeOperationMessage replaceAll(String clientId, String username, String newContent) {
+        List<TextOperation> operations = content.isEmpty()
+                ? List.of(TextOperation.insert(0, newContent))
+                : List.of(TextOperation.delete(0, content.length()), TextOperation.insert(0, newContent));
+        return apply(new CodeOperationMessage(clientId, username, epoch, revision, 0, operations));
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    public synchronized CodeUpdateMessage snapshot() {
+        return new CodeUpdateMessage(content.toString(), epoch, revision);
+    }
+
+    /**
+     * A flush is due once the document has been quiet for {@code idleMillis}, has waited
+     * {@code maxDelayMillis} since its first unsaved edit, or has piled up {@code maxEdits}.
+     */
+    public synchronized boolean isFlushDue(long now, long idleMillis, long maxDelayMillis, int maxEdits) {
+        if (!isDirty()) {
+            return false;
+        }
+        return now - lastEditAt >= idleMillis
+                || now - firstUnpersistedEditAt >= maxDelayMillis
+                || revision - persistedRevision >= maxEdits;
+    }
+
+    public synchronized void fence() {
+        fenced = true;
+    }
+
+    public synchronized void unfence() {
+        fenced = false;
+    }
+
+    public synchronized boolean isFenced() {
+        return fenced;
+    }
+
+    public synchronized boolean isDirty() {
+        return revision > persistedRevision;
+    }
+
+    public synchronized void markPersisted(long persisted) {
+        if (persisted <= persistedRevision) {
+            return;
+        }
+        persistedRevision = persisted;
+        firstUnpersistedEditAt = isDirty() ? lastEditAt : 0;
+    }
+
+    // Held while writing to session-service so two flushes of one document never overlap.
+    // A Lock rather than a monitor, so a virtual thread blocked on the write does not pin its carrier.
+    public Lock getFlushLock() {
+        return flushLock;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+}
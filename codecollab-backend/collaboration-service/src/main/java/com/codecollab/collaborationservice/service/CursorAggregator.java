@@ -0,0 +1,78 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.dto.CursorFrame;
+import com.codecollab.collaborationservice.dto.CursorPositionDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects cursor moves and sends at most one {@link CursorFrame} per session per tick.
+ * Each frame carries the latest cursor of every user in the session, so a newer frame fully
+ * replaces an older one (which is what lets slow connections skip stale frames). Sessions
+ * where nobody moved or left send nothing.
+ */
+@Service
+@RequiredArgsConstructor
+public class CursorAggregator {
+
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    // session id -> (username -> latest cursor). The inner maps are only touched inside
+    // compute() on the outer map, so a tick always copies a consistent set.
+    private final Map<String, Map<String, CursorPositionDTO>> cursors = new ConcurrentHashMap<>();
+    private final Set<String> moved = ConcurrentHashMap.newKeySet();
+
+    public void submit(String sessionId, CursorPositionDTO cursor) {
+        cursors.compute(sessionId, (id, latest) -> {
+            Map<String, CursorPositionDTO> updated = latest != null ? latest : new LinkedHashMap<>();
+            updated.put(cursor.getUsername(), cursor);
+            return updated;
+        });
+        moved.add(sessionId);
+    }
+
+    // The user left the session; the next frame goes out without their cursor
+    public void leave(String sessionId, String username) {
+        boolean[] removed = new boolean[1];
+        cursors.computeIfPresent(sessionId, (id, latest) -> {
+            removed[0] = latest.remove(username) != null;
+            return latest;
+        });
+        if (removed[0]) {
+            moved.add(sessionId);
+        }
+    }
+
+    // Drops a session's cursors once its last editor has left
+    public void forget(String sessionId) {
+        cursors.remove(sessionId);
+        moved.remove(sessionId);
+    }
+
+    @Scheduled(fixedRateString = "${collaboration.cursor.flush-interval-ms:50}")
+    public void flush() {
+        for (String sessionId : moved) {
+            moved.remove(sessionId);
+            List<CursorPositionDTO> frame = new ArrayList<>();
+            boolean[] present = new boolean[1];
+            cursors.computeIfPresent(sessionId, (id, latest) -> {
+                frame.addAll(latest.values());
+                present[0] = true;
+                return latest;
+            });
+            // Sent even when empty, so the cursor of the last one to leave disappears too
+            if (present[0]) {
+                messagingTemplate.convertAndSend("/topic/cursor/" + sessionId, new CursorFrame(frame));
+            }
+        }
+    }
+}
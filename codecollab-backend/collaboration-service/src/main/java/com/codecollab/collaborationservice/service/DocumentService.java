@@ -0,0 +1,291 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.CodeUpdateMessage;
+import com.codecollab.collaborationservice.dto.CodeUpdateRequest;
+import com.codecollab.collaborationservice.dto.DocumentSync;
+import com.codecollab.collaborationservice.exception.DocumentOutOfSyncException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Owns the live copy of every open document. Edits only touch memory; the content is
+ * written back to session-service in the background (see {@link #flushDueDocuments()}),
+ * when the last editor leaves, and on shutdown.
+ */
+@Slf4j
+@Service
+public class DocumentService {
+
+    private final SessionServiceClient sessionServiceClient;
+    private final Map<String, CollaborativeDocument> documents = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<CollaborativeDocument>> loading = new ConcurrentHashMap<>();
+    // Documents whose last editor left, with the check release() was given; saved and dropped by the flusher
+    private final Map<String, BooleanSupplier> pendingReleases = new ConcurrentHashMap<>();
+    private final Counter resyncs;
+    private final Counter snapshots;
+
+    // How many past revisions an edit may lag behind and still be transformed, and how far
+    // behind a reconnecting client may be and still catch up without a full snapshot
+    @Value("${collaboration.document.max-history:500}")
+    private int maxHistory;
+
+    // Write back once nobody has typed for this long...
+    @Value("${collaboration.document.flush-idle-ms:2000}")
+    private long flushIdleMillis;
+
+    // ...but never hold unsaved edits longer than this...
+    @Value("${collaboration.document.flush-max-delay-ms:10000}")
+    private long flushMaxDelayMillis;
+
+    // ...or let more than this many pile up
+    @Value("${collaboration.document.flush-max-edits:200}")
+    private int flushMaxEdits;
+
+    public DocumentService(SessionServiceClient sessionServiceClient, MeterRegistry meterRegistry) {
+        this.sessionServiceClient = sessionServiceClient;
+        this.resyncs = meterRegistry.counter("collaboration.document.sync", "result", "edits");
+        this.snapshots = meterRegistry.counter("collaboration.document.sync", "result", "snapshot");
+    }
+
+    public CodeOperationMessage applyEdit(String sessionId, String username, CodeOperationMessage edit) {
+        edit.setUsername(username);
+        return update(sessionId, username, () -> getDocument(sessionId), document -> document.apply(edit));
+    }
+
+    public CodeOperationMessage replaceContent(String sessionId, String username, String content) {
+        return update(sessionId, username, () -> getDocument(sessionId), document -> document.replaceAll(null, username, content));
+    }
+
+    public CodeUpdateMessage snapshot(String sessionId) {
+        return getDocument(sessionId).snapshot();
+    }
+
+    public long revision(String sessionId) {
+        return getDocument(sessionId).getRevision();
+    }
+
+    /**
+     * What a client that last saw {@code seenRevision} of {@code seenEpoch} needs to be current:
+     * the missed edits if the log still has them all, the full content otherwise (or when it saw
+     * nothing yet, or saw an earlier load of the document).
+     */
+    public DocumentSync sync(String sessionId, String seenEpoch, Long seenRevision) {
+        CollaborativeDocument document = getDocument(sessionId);
+        if (seenRevision != null) {
+            List<CodeOperationMessage> missed = document.editsSince(seenEpoch, seenRevision);
+            if (missed != null) {
+                resyncs.increment();
+                return new DocumentSync(document.getEpoch(), seenRevision + missed.size(), null, missed);
+            }
+        }
+        snapshots.increment();
+        CodeUpdateMessage snapshot = document.snapshot();
+        return new DocumentSync(snapshot.getEpoch(), snapshot.getRevision(), snapshot.getContent(), null);
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.document.flush-interval-ms:500}")
+    public void flushDueDocuments() {
+        long now = System.currentTimeMillis();
+        documents.values().stream()
+                .filter(document -> document.isFlushDue(now, flushIdleMillis, flushMaxDelayMillis, flushMaxEdits))
+                .forEach(this::flush);
+        pendingReleases.forEach((sessionId, stillUnused) -> {
+            if (pendingReleases.remove(sessionId, stillUnused)) {
+                releaseNow(sessionId, stillUnused);
+            }
+        });
+    }
+
+    /**
+     * Called when the last editor of a session disconnects, on the thread that reported it:
+     * the next scheduled flush saves the document and drops it from memory, unless someone
+     * rejoined in the meantime. It is reloaded from session-service the next time someone
+     * joins. A document that cannot be saved holds the only copy of its edits, so it stays in
+     * memory and is dropped once a later flush saves it.
+     */
+    public void release(String sessionId, BooleanSupplier stillUnused) {
+        if (documents.containsKey(sessionId)) {
+            pendingReleases.put(sessionId, stillUnused);
+        }
+    }
+
+    /**
+     * Puts content replaced in session-service (a revert to a snapshot) into the live document
+     * and returns the edit to broadcast. Returns null if the document is not open here; the
+     * content is then saved again, since a release that raced the revert may have written the
+     * old content back, and the next load reads it.
+     */
+    public CodeOperationMessage replaceLive(String sessionId, String username, String content) {
+        CollaborativeDocument document = documents.get(sessionId);
+        CompletableFuture<CollaborativeDocument> inFlight = loading.get(sessionId);
+        // A load that started before the revert was saved may have read the old content
+        if (document == null && inFlight != null) {
+            document = await(inFlight);
+        }
+        if (document == null) {
+            sessionServiceClient.updateSessionCode(sessionId, new CodeUpdateRequest(content));
+            return null;
+        }
+        CollaborativeDocument open = document;
+        return update(sessionId, username, () -> open, current -> current.replaceAll(null, username, content));
+    }
+
+    private void releaseNow(String sessionId, BooleanSupplier stillUnused) {
+        CollaborativeDocument document = documents.get(sessionId);
+        if (document == null) {
+            return;
+        }
+        flush(document);
+        if (!stillUnused.getAsBoolean()) {
+            return;
+        }
+        if (document.isDirty()) {
+            keepUntilSaved(sessionId, stillUnused);
+            return;
+        }
+        documents.remove(sessionId, document);
+        // An edit may have slipped in between the flush and the removal
+        if (document.isDirty()) {
+            flush(document);
+            if (document.isDirty() && documents.putIfAbsent(sessionId, document) == null) {
+                keepUntilSaved(sessionId, stillUnused);
+                return;
+            }
+        }
+        log.info("Released document for session '{}'", sessionId);
+    }
+
+    private void keepUntilSaved(String sessionId, BooleanSupplier stillUnused) {
+        pendingReleases.put(sessionId, stillUnused);
+        log.warn("Keeping unsaved document for session '{}' in memory until it can be persisted", sessionId);
+    }
+
+    /**
+     * Stops accepting edits to a document whose session moved to another instance, and saves it
+     * so the new owner loads the latest content. Returns true once nothing unsaved is left here.
+     * A document that could not be saved stays fenced in memory; the scheduled flush keeps
+     * retrying it and a later call reports when it has been saved.
+     */
+    public boolean handOff(String sessionId) {
+        CollaborativeDocument document = documents.get(sessionId);
+        if (document == null) {
+            return true;
+        }
+        document.fence();
+        flush(document);
+        return !document.isDirty();
+    }
+
+    /**
+     * Undoes {@link #handOff} for a session that has come back to this instance. A handed-off
+     * document that was saved may have been changed elsewhere since, so it is dropped and loaded
+     * again on the next join; one that was never saved cannot have been loaded elsewhere.
+     */
+    public void reclaim(String sessionId) {
+        CollaborativeDocument document = documents.get(sessionId);
+        if (document == null || !document.isFenced()) {
+            return;
+        }
+        if (document.isDirty()) {
+            document.unfence();
+        } else if (documents.remove(sessionId, document)) {
+            pendingReleases.remove(sessionId);
+            log.info("Dropped handed-off document for session '{}'", sessionId);
+        }
+    }
+
+    public Set<String> openSessionIds() {
+        return Set.copyOf(documents.keySet());
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        log.info("Flushing {} open document(s) before shutdown", documents.size());
+        documents.values().forEach(this::flush);
+    }
+
+    private CodeOperationMessage update(String sessionId, String username, Supplier<CollaborativeDocument> document,
+                                        Function<CollaborativeDocument, CodeOperationMessage> change) {
+        try {
+            return change.apply(document.get());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Rejected edit from '{}' in session '{}': {}", username, sessionId, e.getMessage());
+            throw new DocumentOutOfSyncException(sessionId, e.getMessage());
+        }
+    }
+
+    private CollaborativeDocument getDocument(String sessionId) {
+        CollaborativeDocument document = documents.get(sessionId);
+        if (document != null) {
+            return document;
+        }
+        // Concurrent first requests share one load. The remote call is made outside any map
+        // lock, which would otherwise pin a virtual thread to its carrier for the whole call.
+        CompletableFuture<CollaborativeDocument> created = new CompletableFuture<>();
+        CompletableFuture<CollaborativeDocument> inFlight = loading.putIfAbsent(sessionId, created);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            document = documents.get(sessionId);
+            if (document == null) {
+                String content = sessionServiceClient.getSessionContent(sessionId).getCodeContent();
+                log.info("Loaded document for session '{}' ({} chars)", sessionId, content != null ? content.length() : 0);
+                document = new CollaborativeDocument(sessionId, content, maxHistory);
+                documents.put(sessionId, document);
+            }
+            created.complete(document);
+            return document;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(sessionId, created);
+        }
+    }
+
+    private static CollaborativeDocument await(CompletableFuture<CollaborativeDocument> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void flush(CollaborativeDocument document) {
+        document.getFlushLock().lock();
+        try {
+            if (!document.isDirty()) {
+                return;
+            }
+            CodeUpdateMessage snapshot = document.snapshot();
+            try {
+                sessionServiceClient.updateSessionCode(document.getSessionId(), new CodeUpdateRequest(snapshot.getContent()));
+                document.markPersisted(snapshot.getRevision());
+                log.debug("Persisted session '{}' at revision {}", document.getSessionId(), snapshot.getRevision());
+            } catch (Exception e) {
+                // Stays dirty, so the next scheduled run retries it
+                log.warn("Failed to persist session '{}': {}", document.getSessionId(), e.getMessage());
+            }
+        } finally {
+            document.getFlushLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.codecollab.collaborationservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Counts subscribers of each /topic/edit/{sessionId} so the document (and the session's
+ * cursors and recent chat) can be saved and released as soon as the last editor goes away.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentSubscriptionTracker {
+
+    private static final String EDIT_TOPIC_PREFIX = "/topic/edit/";
+
+    private final DocumentService documentService;
+    private final CursorAggregator cursorAggregator;
+    private final ChatHistoryService chatHistoryService;
+
+    // STOMP connection id -> (subscription id -> document session id)
+    private final Map<String, Map<String, String>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(EDIT_TOPIC_PREFIX)) {
+            return;
+        }
+        String sessionId = destination.substring(EDIT_TOPIC_PREFIX.length());
+        subscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), sessionId);
+        subscriberCounts.merge(sessionId, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> connectionSubscriptions = subscriptions.get(accessor.getSessionId());
+        if (connectionSubscriptions != null) {
+            String sessionId = connectionSubscriptions.remove(accessor.getSubscriptionId());
+            if (sessionId != null) {
+                leave(sessionId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> connectionSubscriptions = subscriptions.remove(event.getSessionId());
+        if (connectionSubscriptions != null) {
+            connectionSubscriptions.values().forEach(this::leave);
+        }
+    }
+
+    public boolean hasEditors(String sessionId) {
+        return subscriberCounts.containsKey(sessionId);
+    }
+
+    // Connections subscribed to at least one session matching the filter
+    public Set<String> connectionsIn(Predicate<String> sessionFilter) {
+        Set<String> matching = new HashSet<>();
+        subscriptions.forEach((connectionId, connectionSubscriptions) -> {
+            if (connectionSubscriptions.values().stream().anyMatch(sessionFilter)) {
+                matching.add(connectionId);
+            }
+        });
+        return matching;
+    }
+
+    private void leave(String sessionId) {
+        Integer remaining = subscriberCounts.computeIfPresent(sessionId, (id, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            log.info("Last editor left session '{}'", sessionId);
+            documentService.release(sessionId, () -> !subscriberCounts.containsKey(sessionId));
+            cursorAggregator.forget(sessionId);
+            chatHistoryService.release(sessionId);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.dto.TextOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operational transformation for {@link TextOperation} sequences.
+ * <p>
+ * {@code transform(client, applied)} rewrites two sequences that were both written against
+ * the same document so that each can be applied after the other. The {@code applied}
+ * side always wins ties (two inserts at the same offset), which is the rule the
+ * frontend uses as well, so server and clients converge on the same text.
+ */
+public final class OperationTransformer {
+
+    private OperationTransformer() {
+    }
+
+    /**
+     * @return a two element array: {@code [client', applied']}
+     */
+    public static List<TextOperation>[] transform(List<TextOperation> client, List<TextOperation> applied) {
+        if (client.isEmpty() || applied.isEmpty()) {
+            return pair(client, applied);
+        }
+        if (client.size() == 1 && applied.size() == 1) {
+            TextOperation c = client.get(0);
+            TextOperation a = applied.get(0);
+            return pair(transformOne(c, a, false), transformOne(a, c, true));
+        }
+        if (client.size() > 1) {
+            List<TextOperation>[] head = transform(client.subList(0, 1), applied);
+            List<TextOperation>[] tail = transform(client.subList(1, client.size()), head[1]);
+            return pair(concat(head[0], tail[0]), tail[1]);
+        }
+        List<TextOperation>[] head = transform(client, applied.subList(0, 1));
+        List<TextOperation>[] tail = transform(head[0], applied.subList(1, applied.size()));
+        return pair(tail[0], concat(head[1], tail[1]));
+    }
+
+    /**
+     * Rewrites {@code op} so it applies after {@code other}. {@code op} goes first only when
+     * both are inserts at the same offset and {@code opWinsTies} is set.
+     */
+    static List<TextOperation> transformOne(TextOperation op, TextOperation other, boolean opWinsTies) {
+        int pos = op.getPosition();
+        int otherPos = other.getPosition();
+
+        if (op.isInsert()) {
+            if (other.isInsert()) {
+                boolean shift = otherPos < pos || (otherPos == pos && !opWinsTies);
+                return List.of(TextOperation.insert(shift ? pos + other.span() : pos, op.getText()));
+            }
+            int otherEnd = otherPos + other.getLength();
+            if (pos <= otherPos) {
+                return List.of(op);
+            }
+            return List.of(TextOperation.insert(pos >= otherEnd ? pos - other.getLength() : otherPos, op.getText()));
+        }
+
+        int end = pos + op.getLength();
+        if (other.isInsert()) {
+            if (otherPos <= pos) {
+                return List.of(TextOperation.delete(pos + other.span(), op.getLength()));
+            }
+            if (otherPos >= end) {
+                return List.of(op);
+            }
+            // The insert landed inside the deleted range: delete around it, never through it.
+            return List.of(
+                    TextOperation.delete(pos, otherPos - pos),
+                    TextOperation.delete(pos + other.span(), end - otherPos));
+        }
+
+        int otherEnd = otherPos + other.getLength();
+        if (end <= otherPos) {
+            return List.of(op);
+        }
+        if (pos >= otherEnd) {
+            return List.of(TextOperation.delete(pos - other.getLength(), op.getLength()));
+        }
+        int overlap = Math.min(end, otherEnd) - Math.max(pos, otherPos);
+        int remaining = op.getLength() - overlap;
+        return remaining == 0 ? List.of() : List.of(TextOperation.delete(Math.min(pos, otherPos), remaining));
+    }
+
+    /**
+     * Rejects structurally broken operations before they are transformed.
+     */
+    public static void requireWellFormed(List<TextOperation> operations) {
+        for (TextOperation op : operations) {
+            if (op == null || op.getType() == null || op.getPosition() < 0
+                    || (op.isInsert() ? op.getText() == null : op.getLength() < 0)) {
+                throw new IllegalArgumentException("Malformed operation: " + op);
+            }
+        }
+    }
+
+    /**
+     * Checks that the operations can be applied in order to a document of the given length.
+     */
+    public static void validate(int documentLength, List<TextOperation> operations) {
+        int length = documentLength;
+        for (TextOperation op : operations) {
+            if (op == null || op.getType() == null || op.getPosition() < 0 || op.getPosition() > length) {
+                throw new IllegalArgumentException("Operation out of bounds: " + op);
+            }
+            if (op.isInsert()) {
+                if (op.getText() == null) {
+                    throw new IllegalArgumentException("Insert without text: " + op);
+                }
+                length += op.getText().length();
+            } else {
+                if (op.getLength() < 0 || op.getPosition() + op.getLength() > length) {
+                    throw new IllegalArgumentException("Delete out of bounds: " + op);
+                }
+                length -= op.getLength();
+            }
+        }
+    }
+
+    /**
+     * Applies already validated operations in order.
+     */
+    public static void apply(StringBuilder document, List<TextOperation> operations) {
+        for (TextOperation op : operations) {
+            if (op.isInsert()) {
+                document.insert(op.getPosition(), op.getText());
+            } else {
+                document.delete(op.getPosition(), op.getPosition() + op.getLength());
+            }
+        }
+    }
+
+    public static void apply(PieceTable document, List<TextOperation> operations) {
+        for (TextOperation op : operations) {
+            if (op.isInsert()) {
+                document.insert(op.getPosition(), op.getText());
+            } else {
+                document.delete(op.getPosition(), op.getLength());
+            }
+        }
+    }
+
+    private static List<TextOperation> concat(List<TextOperation> first, List<TextOperation> second) {
+        List<TextOperation> result = new ArrayList<>(first.size() + second.size());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TextOperation>[] pair(List<TextOperation> client, List<TextOperation> applied) {
+        return new List[]{client, applied};
+    }
+}
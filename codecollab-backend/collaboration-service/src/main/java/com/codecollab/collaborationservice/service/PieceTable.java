@@ -0,0 +1,400 @@
+package com.codecollab.collaborationservice.service;
+
+import java.util.Arrays;
+
+/**
+ * Mutable text made of pieces of two buffers: the content it was loaded with, which is
+ * never copied, and an append-only buffer holding everything inserted since. The pieces
+ * are kept in a treap ordered by position, where every node knows the length and number of
+ * line feeds of its subtree, so inserting, deleting and converting between offsets and
+ * line/column positions cost O(log n) in the number of pieces, whatever the document size.
+ * <p>
+ * Line numbers and columns are 1-based UTF-16 positions, as in Monaco (and
+ * {@code CursorPositionDTO}). Lines are separated by {@code \n}; a {@code \r} before it is
+ * not part of the line, so CRLF text has the same line/column positions as in the editor.
+ * <p>
+ * Not thread-safe; {@link CollaborativeDocument} guards it.
+ */
+public final class PieceTable {
+
+    // Inserted text is compacted into a fresh original buffer once the append-only buffer
+    // outgrows the document by this factor, so deleted text does not accumulate forever
+    private static final int COMPACT_FACTOR = 4;
+    private static final int COMPACT_MIN_CHARS = 64 * 1024;
+
+    private Buffer original;
+    private Buffer added;
+    private Node root;
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    public PieceTable(String content) {
+        reset(content != null ? content : "");
+    }
+
+    public int length() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public int lineCount() {
+        return lines(root) + 1;
+    }
+
+    public void insert(int offset, String text) {
+        checkOffset(offset);
+        if (text.isEmpty()) {
+            return;
+        }
+        int start = added.length();
+        added.append(text);
+        int lineFeeds = added.lineFeedsIn(start, start + text.length());
+
+        Node[] parts = split(root, offset);
+        // Typing extends the piece that the previous keystroke created instead of adding a node
+        if (!extendLast(parts[0], start, text.length(), lineFeeds)) {
+            parts[0] = merge(parts[0], new Node(added, start, text.length(), lineFeeds, nextPriority()));
+        }
+        root = merge(parts[0], parts[1]);
+
+        if (added.length() > COMPACT_MIN_CHARS && added.length() > COMPACT_FACTOR * length()) {
+            reset(toString());
+        }
+    }
+
+    public void delete(int offset, int length) {
+        checkOffset(offset);
+        if (length < 0 || offset + length > length()) {
+            throw new IndexOutOfBoundsException("Cannot delete " + length + " chars at " + offset + " of " + length());
+        }
+        if (length == 0) {
+            return;
+        }
+        Node[] head = split(root, offset);
+        Node[] tail = split(head[1], length);
+        root = merge(head[0], tail[1]);
+    }
+
+    public char charAt(int offset) {
+        if (offset < 0 || offset >= length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " outside 0.." + length());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (offset < leftSize) {
+                node = node.left;
+            } else if (offset < leftSize + node.length) {
+                return node.buffer.text.charAt(node.start + offset - leftSize);
+            } else {
+                offset -= leftSize + node.length;
+                node = node.right;
+            }
+        }
+    }
+
+    public String getText(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("Range " + start + ".." + end + " outside 0.." + length());
+        }
+        StringBuilder text = new StringBuilder(end - start);
+        appendRange(root, start, end, text);
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getText(0, length());
+    }
+
+    /**
+     * Offset of the first character of a line.
+     */
+    public int lineStartOffset(int lineNumber) {
+        checkLine(lineNumber);
+        int lineFeed = lineNumber - 1;
+        if (lineFeed == 0) {
+            return 0;
+        }
+        // Find the node holding that line feed; the line starts right after it
+        int offset = 0;
+        Node node = root;
+        while (true) {
+            int leftLines = lines(node.left);
+            if (lineFeed <= leftLines) {
+                node = node.left;
+                continue;
+            }
+            offset += size(node.left);
+            lineFeed -= leftLines;
+            if (lineFeed <= node.lineFeeds) {
+                int position = node.buffer.lineFeedAt(node.buffer.lineFeedsBefore(node.start) + lineFeed - 1);
+                return offset + position - node.start + 1;
+            }
+            lineFeed -= node.lineFeeds;
+            offset += node.length;
+            node = node.right;
+        }
+    }
+
+    /**
+     * Length of a line, without its line break.
+     */
+    public int lineLength(int lineNumber) {
+        int start = lineStartOffset(lineNumber);
+        int end = lineNumber < lineCount() ? lineStartOffset(lineNumber + 1) - 1 : length();
+        if (end > start && charAt(end - 1) == '\r' && lineNumber < lineCount()) {
+            end--;
+        }
+        return end - start;
+    }
+
+    public String getLineContent(int lineNumber) {
+        int start = lineStartOffset(lineNumber);
+        return getText(start, start + lineLength(lineNumber));
+    }
+
+    /**
+     * Offset of a Monaco position. Like Monaco, a column past the end of its line is clamped to it.
+     */
+    public int offsetAt(int lineNumber, int column) {
+        int clamped = Math.max(1, Math.min(column, lineLength(lineNumber) + 1));
+        return lineStartOffset(lineNumber) + clamped - 1;
+    }
+
+    public Position positionAt(int offset) {
+        checkOffset(offset);
+        int lineNumber = lineFeedsBefore(offset) + 1;
+        return new Position(lineNumber, offset - lineStartOffset(lineNumber) + 1);
+    }
+
+    private int lineFeedsBefore(int offset) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (offset <= leftSize) {
+                node = node.left;
+                continue;
+            }
+            count += lines(node.left);
+            offset -= leftSize;
+            if (offset <= node.length) {
+                return count + node.buffer.lineFeedsIn(node.start, node.start + offset);
+            }
+            count += node.lineFeeds;
+            offset -= node.length;
+            node = node.right;
+        }
+        return count;
+    }
+
+    private void reset(String content) {
+        original = new Buffer(content);
+        added = new Buffer(new StringBuilder());
+        root = content.isEmpty()
+                ? null
+                : new Node(original, 0, content.length(), original.lineFeedsIn(0, content.length()), nextPriority());
+    }
+
+    // [first offset chars, the rest]; a piece straddling the offset is cut in two
+    private Node[] split(Node node, int offset) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        int leftSize = size(node.left);
+        if (offset <= leftSize) {
+            Node[] parts = split(node.left, offset);
+            node.left = parts[1];
+            node.update();
+            return new Node[]{parts[0], node};
+        }
+        if (offset >= leftSize + node.length) {
+            Node[] parts = split(node.right, offset - leftSize - node.length);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        int cut = offset - leftSize;
+        Node tail = new Node(node.buffer, node.start + cut, node.length - cut,
+                node.buffer.lineFeedsIn(node.start + cut, node.start + node.length), nextPriority());
+        node.lineFeeds -= tail.lineFeeds;
+        node.length = cut;
+        Node right = node.right;
+        node.right = null;
+        node.update();
+        return new Node[]{node, merge(tail, right)};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    // Grows the last piece of the tree by text just appended right after it in the add buffer
+    private boolean extendLast(Node node, int addedStart, int length, int lineFeeds) {
+        if (node == null) {
+            return false;
+        }
+        boolean extended = node.right != null
+                ? extendLast(node.right, addedStart, length, lineFeeds)
+                : node.buffer == added && node.start + node.length == addedStart;
+        if (node.right == null && extended) {
+            node.length += length;
+            node.lineFeeds += lineFeeds;
+        }
+        if (extended) {
+            node.update();
+        }
+        return extended;
+    }
+
+    private static void appendRange(Node node, int start, int end, StringBuilder text) {
+        if (node == null || start >= end) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (start < leftSize) {
+            appendRange(node.left, start, Math.min(end, leftSize), text);
+        }
+        int pieceStart = Math.max(start - leftSize, 0);
+        int pieceEnd = Math.min(end - leftSize, node.length);
+        if (pieceStart < pieceEnd) {
+            text.append(node.buffer.text, node.start + pieceStart, node.start + pieceEnd);
+        }
+        int rightStart = leftSize + node.length;
+        if (end > rightStart) {
+            appendRange(node.right, Math.max(start - rightStart, 0), end - rightStart, text);
+        }
+    }
+
+    private int nextPriority() {
+        // xorshift; deterministic per instance, which is all a treap needs
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) seed;
+    }
+
+    private void checkOffset(int offset) {
+        if (offset < 0 || offset > length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " outside 0.." + length());
+        }
+    }
+
+    private void checkLine(int lineNumber) {
+        if (lineNumber < 1 || lineNumber > lineCount()) {
+            throw new IndexOutOfBoundsException("Line " + lineNumber + " outside 1.." + lineCount());
+        }
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static int lines(Node node) {
+        return node != null ? node.lines : 0;
+    }
+
+    public record Position(int lineNumber, int column) {
+    }
+
+    private static final class Node {
+
+        private final Buffer buffer;
+        private final int start;
+        private final int priority;
+        private int length;
+        private int lineFeeds;
+        private Node left;
+        private Node right;
+        // Totals of this subtree
+        private int size;
+        private int lines;
+
+        Node(Buffer buffer, int start, int length, int lineFeeds, int priority) {
+            this.buffer = buffer;
+            this.start = start;
+            this.length = length;
+            this.lineFeeds = lineFeeds;
+            this.priority = priority;
+            update();
+        }
+
+        void update() {
+            size = size(left) + length + size(right);
+            lines = lines(left) + lineFeeds + lines(right);
+        }
+    }
+
+    // Text plus the sorted offsets of its line feeds
+    private static final class Buffer {
+
+        private final CharSequence text;
+        private int[] lineFeeds = new int[16];
+        private int lineFeedCount;
+
+        Buffer(CharSequence text) {
+            this.text = text;
+            indexLineFeeds(0);
+        }
+
+        int length() {
+            return text.length();
+        }
+
+        void append(String more) {
+            int from = text.length();
+            ((StringBuilder) text).append(more);
+            indexLineFeeds(from);
+        }
+
+        int lineFeedAt(int index) {
+            return lineFeeds[index];
+        }
+
+        // Line feeds at offsets below the given one
+        int lineFeedsBefore(int offset) {
+            int low = 0;
+            int high = lineFeedCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (lineFeeds[mid] < offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        int lineFeedsIn(int from, int to) {
+            return lineFeedsBefore(to) - lineFeedsBefore(from);
+        }
+
+        private void indexLineFeeds(int from) {
+            for (int i = from; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    if (lineFeedCount == lineFeeds.length) {
+                        lineFeeds = Arrays.copyOf(lineFeeds, lineFeedCount * 2);
+                    }
+                    lineFeeds[lineFeedCount++] = i;
+                }
+            }
+        }
+    }
+}
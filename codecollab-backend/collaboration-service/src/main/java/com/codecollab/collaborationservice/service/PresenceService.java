@@ -0,0 +1,302 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.config.ConnectionRegistry;
+import com.codecollab.collaborationservice.dto.PresenceRoster;
+import com.codecollab.collaborationservice.dto.PresenceUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who is connected to each session. A user joins a session by subscribing to
+ * /topic/presence/{sessionId} and leaves on unsubscribe or disconnect; several tabs of one
+ * user count once. Users who send nothing (no edits, cursor moves or chat) for a while are
+ * marked idle. Connections that negotiated STOMP heartbeats and then stopped sending anything
+ * are closed even if no DISCONNECT ever arrives, so a client that recovers reconnects and
+ * rejoins instead of editing while shown as gone.
+ * <p>
+ * Changes are published on the presence topic as {@link PresenceUpdate} diffs, batched per tick,
+ * so a user who drops and reconnects within one tick produces no update at all.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PresenceService {
+
+    private static final String PRESENCE_TOPIC_PREFIX = "/topic/presence/";
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final CursorAggregator cursorAggregator;
+    private final ConnectionRegistry connectionRegistry;
+
+    // session id -> roster. Rosters are only changed inside compute() on this map.
+    private final Map<String, Roster> rosters = new ConcurrentHashMap<>();
+    // STOMP connection id -> connection
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    @Value("${collaboration.presence.idle-after-ms:60000}")
+    private long idleAfterMillis;
+
+    // How often the broker asks clients for heartbeats (0 = never)
+    @Value("${collaboration.broker.heartbeat-ms:10000}")
+    private long serverHeartbeatMillis;
+
+    // A connection is considered dead after this many missed client heartbeats
+    @Value("${collaboration.presence.missed-heartbeats:3}")
+    private int missedHeartbeats;
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Principal user = accessor.getUser();
+        if (user == null) {
+            return;
+        }
+        // STOMP: the client heartbeats at the slower of what it offers and what the server asks for
+        long clientHeartbeat = accessor.getHeartbeat()[0];
+        long interval = clientHeartbeat > 0 && serverHeartbeatMillis > 0 ? Math.max(clientHeartbeat, serverHeartbeatMillis) : 0;
+        connections.put(accessor.getSessionId(), new Connection(user.getName(), interval));
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        Connection connection = connections.get(accessor.getSessionId());
+        if (connection == null || destination == null || !destination.startsWith(PRESENCE_TOPIC_PREFIX)) {
+            return;
+        }
+        String sessionId = destination.substring(PRESENCE_TOPIC_PREFIX.length());
+        connection.subscriptions.put(accessor.getSubscriptionId(), sessionId);
+        join(sessionId, connection.username);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Connection connection = connections.get(accessor.getSessionId());
+        if (connection != null) {
+            String sessionId = connection.subscriptions.remove(accessor.getSubscriptionId());
+            if (sessionId != null) {
+                leave(sessionId, connection.username);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        drop(event.getSessionId());
+    }
+
+    // Any inbound frame, heartbeats included, proves the connection is alive
+    public void seen(String connectionId) {
+        Connection connection = connections.get(connectionId);
+        if (connection != null) {
+            connection.lastSeenAt = System.currentTimeMillis();
+        }
+    }
+
+    // The user did something in the session: edit, cursor move or chat
+    public void active(String connectionId, String sessionId) {
+        Connection connection = connections.get(connectionId);
+        if (connection == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        rosters.computeIfPresent(sessionId, (id, roster) -> {
+            Member member = roster.members.get(connection.username);
+            if (member == null) {
+                return roster;
+            }
+            member.lastActiveAt = now;
+            if (member.idle) {
+                member.idle = false;
+                if (!roster.idle.remove(connection.username)) {
+                    roster.active.add(connection.username);
+                }
+                changed.add(id);
+            }
+            return roster;
+        });
+    }
+
+    public boolean isOnline(String sessionId, String username) {
+        Roster roster = rosters.get(sessionId);
+        return roster != null && roster.members.containsKey(username);
+    }
+
+    public PresenceRoster getRoster(String sessionId) {
+        Map<String, PresenceRoster.Status> users = new HashMap<>();
+        long[] version = new long[1];
+        rosters.computeIfPresent(sessionId, (id, roster) -> {
+            roster.members.forEach((username, member) ->
+                    users.put(username, member.idle ? PresenceRoster.Status.IDLE : PresenceRoster.Status.ACTIVE));
+            version[0] = roster.version;
+            return roster;
+        });
+        return new PresenceRoster(version[0], users);
+    }
+
+    @Scheduled(fixedRateString = "${collaboration.presence.flush-interval-ms:250}")
+    public void publishChanges() {
+        for (String sessionId : changed) {
+            changed.remove(sessionId);
+            PresenceUpdate[] update = new PresenceUpdate[1];
+            rosters.computeIfPresent(sessionId, (id, roster) -> {
+                if (roster.hasPendingChanges()) {
+                    update[0] = roster.takeUpdate();
+                }
+                return roster.members.isEmpty() ? null : roster;
+            });
+            if (update[0] != null) {
+                messagingTemplate.convertAndSend(PRESENCE_TOPIC_PREFIX + sessionId, update[0]);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.presence.sweep-interval-ms:5000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        connections.forEach((connectionId, connection) -> {
+            if (connection.heartbeatMillis > 0 && now - connection.lastSeenAt > missedHeartbeats * connection.heartbeatMillis) {
+                log.info("Closing connection '{}' of '{}' after missed heartbeats", connectionId, connection.username);
+                // Dropped from the rosters now; the disconnect that follows the close finds nothing left
+                drop(connectionId);
+                connectionRegistry.close(connectionId, CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        });
+        for (String sessionId : rosters.keySet()) {
+            rosters.computeIfPresent(sessionId, (id, roster) -> {
+                roster.members.forEach((username, member) -> {
+                    if (!member.idle && now - member.lastActiveAt > idleAfterMillis) {
+                        member.idle = true;
+                        if (!roster.active.remove(username)) {
+                            roster.idle.add(username);
+                        }
+                        changed.add(id);
+                    }
+                });
+                return roster;
+            });
+        }
+    }
+
+    private void drop(String connectionId) {
+        Connection connection = connections.remove(connectionId);
+        if (connection != null) {
+            connection.subscriptions.values().forEach(sessionId -> leave(sessionId, connection.username));
+        }
+    }
+
+    private void join(String sessionId, String username) {
+        rosters.compute(sessionId, (id, current) -> {
+            Roster roster = current != null ? current : new Roster();
+            Member member = roster.members.get(username);
+            if (member != null) {
+                member.connections++;
+                return roster;
+            }
+            roster.members.put(username, new Member(System.currentTimeMillis()));
+            // Left and came back before anyone was told: nothing to report
+            if (!roster.left.remove(username)) {
+                roster.joined.add(username);
+            }
+            changed.add(id);
+            return roster;
+        });
+    }
+
+    private void leave(String sessionId, String username) {
+        boolean[] gone = new boolean[1];
+        rosters.computeIfPresent(sessionId, (id, roster) -> {
+            Member member = roster.members.get(username);
+            if (member == null || --member.connections > 0) {
+                return roster;
+            }
+            gone[0] = true;
+            roster.members.remove(username);
+            roster.idle.remove(username);
+            roster.active.remove(username);
+            if (!roster.joined.remove(username)) {
+                roster.left.add(username);
+            }
+            changed.add(id);
+            return roster;
+        });
+        // Their last tab is gone, so is their cursor
+        if (gone[0]) {
+            cursorAggregator.leave(sessionId, username);
+        }
+    }
+
+    private static final class Roster {
+
+        // Read without the map lock by isOnline()
+        private final Map<String, Member> members = new ConcurrentHashMap<>();
+        private final Set<String> joined = new LinkedHashSet<>();
+        private final Set<String> left = new LinkedHashSet<>();
+        private final Set<String> idle = new LinkedHashSet<>();
+        private final Set<String> active = new LinkedHashSet<>();
+        private long version;
+
+        boolean hasPendingChanges() {
+            return !joined.isEmpty() || !left.isEmpty() || !idle.isEmpty() || !active.isEmpty();
+        }
+
+        PresenceUpdate takeUpdate() {
+            return new PresenceUpdate(++version, drain(joined), drain(left), drain(idle), drain(active));
+        }
+
+        private static List<String> drain(Set<String> usernames) {
+            List<String> drained = new ArrayList<>(usernames);
+            usernames.clear();
+            return drained;
+        }
+    }
+
+    private static final class Member {
+
+        // Only touched inside compute() on the roster map
+        private int connections = 1;
+        private long lastActiveAt;
+        private boolean idle;
+
+        Member(long now) {
+            this.lastActiveAt = now;
+        }
+    }
+
+    private static final class Connection {
+
+        private final String username;
+        private final long heartbeatMillis;
+        // subscription id -> session id, for presence subscriptions only
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+        private volatile long lastSeenAt = System.currentTimeMillis();
+
+        Connection(String username, long heartbeatMillis) {
+            this.username = username;
+            this.heartbeatMillis = heartbeatMillis;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.config.TaskExecutors;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs each session's work on its own lane: tasks for one session run one at a time, in the
+ * order they were submitted, while different sessions run in parallel on a shared pool.
+ * A lane has no thread of its own; it exists only while it has work queued.
+ * <p>
+ * Edits are applied and broadcast on their session's lane, so every client receives them in
+ * revision order no matter which inbound thread they arrived on.
+ */
+@Slf4j
+@Component
+public class SessionLanes {
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ExecutorService executor;
+
+    public SessionLanes(MeterRegistry meterRegistry, TaskExecutors taskExecutors,
+                        @Value("${collaboration.lanes.threads:0}") int threads) {
+        // With virtual threads, a lane waiting on session-service (a document load) only parks its own thread
+        this.executor = taskExecutors.bounded("session-lane-", threads > 0 ? threads : 2 * Runtime.getRuntime().availableProcessors());
+
+        Gauge.builder("collaboration.lanes.active", lanes, Map::size)
+                .description("Sessions with work queued or running")
+                .register(meterRegistry);
+        Gauge.builder("collaboration.lanes.queued", queued, AtomicInteger::get)
+                .description("Tasks waiting on their session's lane")
+                .register(meterRegistry);
+    }
+
+    public void submit(String sessionId, Runnable task) {
+        // Queued inside compute(), so a lane is never retired with work in it
+        Lane lane = lanes.compute(sessionId, (id, current) -> {
+            Lane target = current != null ? current : new Lane(id);
+            target.tasks.add(task);
+            return target;
+        });
+        queued.incrementAndGet();
+        lane.schedule();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private final class Lane {
+
+        private final String sessionId;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        Lane(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void schedule() {
+            if (running.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    running.set(false);
+                    lanes.computeIfPresent(sessionId, (id, lane) -> lane == this && tasks.isEmpty() ? null : lane);
+                    // A task queued after the poll but before running was cleared is ours to run
+                    if (tasks.isEmpty() || !running.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                queued.decrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("Task on the lane of session '{}' failed", sessionId, e);
+                }
+            }
+        }
+    }
+}
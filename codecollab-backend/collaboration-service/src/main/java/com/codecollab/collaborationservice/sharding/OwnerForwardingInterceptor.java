@@ -0,0 +1,83 @@
+package com.codecollab.collaborationservice.sharding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sends REST calls about a session (broadcasts, permission invalidations, presence) to the
+ * instance that owns it, since only that instance has the session's clients and state.
+ * Callers such as session-service can keep calling any instance.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OwnerForwardingInterceptor implements HandlerInterceptor {
+
+    // Set on forwarded calls, so that two instances with different views never bounce a call
+    static final String FORWARDED_HEADER = "X-Collaboration-Forwarded";
+
+    private final SessionOwnership sessionOwnership;
+    private final RestClient restClient = RestClient.create();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (request.getHeader(FORWARDED_HEADER) != null) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String sessionId = variables != null ? variables.get("sessionId") : null;
+        ServiceInstance owner = sessionId != null ? sessionOwnership.remoteOwner(sessionId) : null;
+        if (owner == null) {
+            return true;
+        }
+
+        String query = request.getQueryString();
+        String target = owner.getUri() + request.getRequestURI() + (query != null ? "?" + query : "");
+        byte[] body = request.getInputStream().readAllBytes();
+        ResponseEntity<byte[]> forwarded;
+        try {
+            forwarded = restClient.method(HttpMethod.valueOf(request.getMethod()))
+                    .uri(target)
+                    .headers(headers -> {
+                        headers.set(FORWARDED_HEADER, "true");
+                        if (request.getContentType() != null) {
+                            headers.set(HttpHeaders.CONTENT_TYPE, request.getContentType());
+                        }
+                    })
+                    .body(body)
+                    .retrieve()
+                    .toEntity(byte[].class);
+        } catch (RestClientResponseException e) {
+            forwarded = ResponseEntity.status(e.getStatusCode()).headers(e.getResponseHeaders()).body(e.getResponseBodyAsByteArray());
+        } catch (RestClientException e) {
+            log.warn("Could not forward {} to the owner of session '{}': {}", request.getRequestURI(), sessionId, e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+            return false;
+        }
+
+        response.setStatus(forwarded.getStatusCode().value());
+        if (forwarded.getHeaders().getContentType() != null) {
+            response.setContentType(forwarded.getHeaders().getContentType().toString());
+        }
+        if (forwarded.getBody() != null) {
+            response.getOutputStream().write(forwarded.getBody());
+        }
+        return false;
+    }
+}
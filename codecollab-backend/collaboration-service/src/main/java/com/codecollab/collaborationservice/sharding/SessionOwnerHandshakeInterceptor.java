@@ -0,0 +1,58 @@
+package com.codecollab.collaborationservice.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Turns away connections for a session owned by another instance, which happens while the
+ * gateway's view of the registry lags behind a node joining or leaving. The client retries
+ * and gets routed to the owner once the views agree. Connections for a session that just moved
+ * here are turned away the same way until its previous owner has saved the document.
+ */
+@Slf4j
+@Component
+public class SessionOwnerHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String SESSION_ID_PARAMETER = "sessionId";
+
+    private final SessionOwnership sessionOwnership;
+
+    // Lazy: SessionOwnership reaches the broker template (through the connections it closes),
+    // which is built from the WebSocket configuration this interceptor is part of
+    public SessionOwnerHandshakeInterceptor(@Lazy SessionOwnership sessionOwnership) {
+        this.sessionOwnership = sessionOwnership;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String sessionId = UriComponentsBuilder.fromUri(request.getURI()).build()
+                .getQueryParams().getFirst(SESSION_ID_PARAMETER);
+        if (sessionId == null) {
+            return true;
+        }
+        if (!sessionOwnership.isOwner(sessionId)) {
+            log.debug("Refusing connection for session '{}', owned by another instance", sessionId);
+        } else if (!sessionOwnership.awaitHandoff(sessionId)) {
+            log.debug("Refusing connection for session '{}' until its previous owner has saved it", sessionId);
+        } else {
+            return true;
+        }
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,202 @@
+package com.codecollab.collaborationservice.sharding;
+
+import com.codecollab.collaborationservice.config.ConnectionRegistry;
+import com.codecollab.collaborationservice.service.DocumentService;
+import com.codecollab.collaborationservice.service.DocumentSubscriptionTracker;
+import com.codecollab.collaborationservice.spectator.SpectatorHub;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides which collaboration-service instance owns each session, using a consistent-hash ring
+ * over the instances registered in Eureka. The api-gateway routes a session's WebSocket
+ * connections to its owner with the same ring, so a session's document, cursors, presence and
+ * chat live in exactly one JVM.
+ * <p>
+ * The ring is rebuilt whenever the Eureka registry is refreshed. Documents of sessions this
+ * instance no longer owns stop taking edits and are saved, and only then are their clients
+ * disconnected; they reconnect through the gateway to the new owner. The new owner in turn
+ * turns them away until every instance that owned the session since it was last here confirms
+ * the document is saved, so it never loads content older than what those clients have seen.
+ * Rebalancing saves documents, so it runs on its own thread, never on the registry's.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionOwnership {
+
+    // How many ring changes back a session's earlier owners are looked for
+    private static final int MAX_PREVIOUS_RINGS = 8;
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final DocumentSubscriptionTracker documentSubscriptionTracker;
+    private final ConnectionRegistry connectionRegistry;
+    private final SpectatorHub spectatorHub;
+    private final DocumentService documentService;
+    private final RestClient restClient = RestClient.create();
+    // Sessions whose previous owners have all confirmed the handoff, since the last ring change
+    private final Set<String> handedOver = ConcurrentHashMap.newKeySet();
+    private final ExecutorService rebalancer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-rebalance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 0);
+    // Earlier rings, newest first, so a session that moved several times in quick succession
+    // is asked of every owner it had in between
+    private volatile List<ConsistentHashRing> previousRings = List.of();
+    private volatile Map<String, ServiceInstance> instances = Map.of();
+
+    @Value("${spring.application.name}")
+    private String serviceId;
+
+    // Must match collaboration.sharding.virtual-nodes of the api-gateway
+    @Value("${collaboration.sharding.virtual-nodes:160}")
+    private int virtualNodes;
+
+    @Value("${collaboration.sharding.enabled:true}")
+    private boolean enabled;
+
+    // Ready and heartbeat events arrive on different threads
+    @EventListener({ApplicationReadyEvent.class, HeartbeatEvent.class})
+    public synchronized void refresh() {
+        Map<String, ServiceInstance> current = new LinkedHashMap<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            if (instance.getInstanceId() != null) {
+                current.put(instance.getInstanceId(), instance);
+            }
+        }
+        instances = current;
+        if (current.keySet().equals(ring.getNodes())) {
+            return;
+        }
+        if (!ring.getNodes().isEmpty()) {
+            List<ConsistentHashRing> previous = new ArrayList<>(MAX_PREVIOUS_RINGS);
+            previous.add(ring);
+            previous.addAll(previousRings.subList(0, Math.min(previousRings.size(), MAX_PREVIOUS_RINGS - 1)));
+            previousRings = List.copyOf(previous);
+        }
+        ring = new ConsistentHashRing(current.keySet(), virtualNodes);
+        handedOver.clear();
+        log.info("Session ring is now {} (this instance: {})", ring.getNodes(), selfId());
+        // Queued, so rebalances run one at a time, each against the ring current when it starts
+        rebalancer.execute(this::rebalance);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebalancer.shutdown();
+    }
+
+    /**
+     * True if this instance should serve the session. Until this instance sees itself in the
+     * registry (or when sharding is off) it serves everything, as a single node would.
+     */
+    public boolean isOwner(String sessionId) {
+        String self = selfId();
+        if (!enabled || self == null || !ring.getNodes().contains(self)) {
+            return true;
+        }
+        return self.equals(ring.ownerOf(sessionId));
+    }
+
+    // The instance that owns the session, or null when that is this one
+    public ServiceInstance remoteOwner(String sessionId) {
+        if (isOwner(sessionId)) {
+            return null;
+        }
+        return instances.get(ring.ownerOf(sessionId));
+    }
+
+    /**
+     * True once the session may be loaded here: when every instance that owned it in the rings
+     * since it was last owned here is gone or has confirmed that it saved the session's document
+     * and stopped accepting edits. Asks those that have not confirmed yet.
+     */
+    public boolean awaitHandoff(String sessionId) {
+        String self = selfId();
+        if (!enabled || self == null || handedOver.contains(sessionId)) {
+            return true;
+        }
+        List<ConsistentHashRing> rings = previousRings;
+        Set<String> asked = new HashSet<>();
+        for (ConsistentHashRing previous : rings) {
+            String previousOwner = previous.ownerOf(sessionId);
+            // Whoever owned it before that handed it over to this instance back then
+            if (self.equals(previousOwner)) {
+                break;
+            }
+            ServiceInstance instance = instances.get(previousOwner);
+            if (instance != null && asked.add(previousOwner) && !requestHandoff(sessionId, instance)) {
+                return false;
+            }
+        }
+        // Not remembered if the ring changed meanwhile; the next attempt asks again
+        if (rings == previousRings) {
+            handedOver.add(sessionId);
+        }
+        return true;
+    }
+
+    private boolean requestHandoff(String sessionId, ServiceInstance previousOwner) {
+        try {
+            restClient.post()
+                    .uri(previousOwner.getUri() + "/api/internal/documents/" + sessionId + "/handoff")
+                    .header(OwnerForwardingInterceptor.FORWARDED_HEADER, "true")
+                    .retrieve()
+                    .toBodilessEntity();
+            return true;
+        } catch (RestClientException e) {
+            log.info("Session '{}' not handed over by '{}' yet: {}", sessionId, previousOwner.getInstanceId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void rebalance() {
+        // Save what moved before letting anyone go, so the new owners load the latest content
+        for (String sessionId : documentService.openSessionIds()) {
+            if (isOwner(sessionId)) {
+                documentService.reclaim(sessionId);
+            } else if (!documentService.handOff(sessionId)) {
+                log.warn("Could not save session '{}' before handing it over; its new owner waits until it is saved", sessionId);
+            }
+        }
+        spectatorHub.closeWhere(sessionId -> !isOwner(sessionId), CloseStatus.SERVICE_RESTARTED);
+        Set<String> moved = documentSubscriptionTracker.connectionsIn(sessionId -> !isOwner(sessionId));
+        if (moved.isEmpty()) {
+            return;
+        }
+        log.info("Handing {} connection(s) over to their sessions' new owners", moved.size());
+        moved.forEach(connectionId -> connectionRegistry.close(connectionId, CloseStatus.SERVICE_RESTARTED));
+    }
+
+    private String selfId() {
+        Registration self = registration.getIfAvailable();
+        return self != null ? self.getInstanceId() : null;
+    }
+}
@@ -0,0 +1,72 @@
+package com.codecollab.collaborationservice.spectator;
+
+import com.codecollab.collaborationservice.security.JwtUtil;
+import com.codecollab.collaborationservice.security.SessionPermissionCache;
+import com.codecollab.collaborationservice.sharding.SessionOwnerHandshakeInterceptor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Spectator connections are authorized once, here, instead of per frame: a valid token and
+ * not being blocked from the session are all that watching takes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SpectatorHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String SESSION_ID_ATTRIBUTE = "spectatedSessionId";
+
+    private final JwtUtil jwtUtil;
+    private final SessionPermissionCache sessionPermissionCache;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        MultiValueMap<String, String> parameters = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+        String sessionId = parameters.getFirst(SessionOwnerHandshakeInterceptor.SESSION_ID_PARAMETER);
+        if (sessionId == null) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+        String token = parameters.getFirst("token");
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (token == null && authHeader != null && authHeader.startsWith("Bearer ")) {
+            token = authHeader.substring(7);
+        }
+        if (token == null || !jwtUtil.isTokenValid(token)) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        String username = jwtUtil.extractUsername(token);
+        try {
+            if (sessionPermissionCache.get(sessionId).isBlocked(username)) {
+                log.warn("Refusing spectator '{}', blocked in session '{}'", username, sessionId);
+                response.setStatusCode(HttpStatus.FORBIDDEN);
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.debug("Refusing spectator of unknown session '{}': {}", sessionId, e.getMessage());
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return false;
+        }
+        attributes.put(SESSION_ID_ATTRIBUTE, sessionId);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.codecollab.collaborationservice.spectator;
+
+import com.codecollab.collaborationservice.config.TaskExecutors;
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.SpectatorFrame;
+import com.codecollab.collaborationservice.service.DocumentService;
+import com.codecollab.collaborationservice.service.DocumentSubscriptionTracker;
+import com.codecollab.collaborationservice.service.SessionLanes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Read-only audiences of sessions. Every update is encoded once, as UTF-8 JSON in one byte
+ * array, and each spectator gets a binary frame wrapping that same array; nothing is
+ * serialized per spectator. The frames go out through {@code OutboundFlowControl}, so a slow
+ * spectator only delays (and eventually disconnects) itself.
+ * <p>
+ * Joining and publishing both run on the session's lane, so a spectator's snapshot is taken
+ * exactly between two edits and it sees every later edit once, in order. The lane only
+ * encodes a frame and hands it to the session's audience; a separate thread per audience
+ * sends it to the spectators, so thousands of them never hold up the session's editors.
+ */
+@Slf4j
+@Component
+public class SpectatorHub {
+
+    private final DocumentService documentService;
+    private final DocumentSubscriptionTracker documentSubscriptionTracker;
+    private final SessionLanes sessionLanes;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Audience> audiences = new ConcurrentHashMap<>();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final ExecutorService fanOutExecutor;
+    private final Counter rejected;
+    private final Counter frames;
+    private final Counter deliveries;
+
+    @Value("${collaboration.spectators.max-per-session:5000}")
+    private int maxPerSession;
+
+    @Value("${collaboration.spectators.max-total:20000}")
+    private int maxTotal;
+
+    public SpectatorHub(DocumentService documentService, DocumentSubscriptionTracker documentSubscriptionTracker,
+                        SessionLanes sessionLanes, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                        TaskExecutors taskExecutors) {
+        this.documentService = documentService;
+        this.documentSubscriptionTracker = documentSubscriptionTracker;
+        this.sessionLanes = sessionLanes;
+        this.objectMapper = objectMapper;
+        this.rejected = meterRegistry.counter("collaboration.spectators.rejected");
+        this.frames = Counter.builder("collaboration.spectators.frames")
+                .description("Updates encoded for spectators, once each however many are watching")
+                .register(meterRegistry);
+        this.deliveries = meterRegistry.counter("collaboration.spectators.deliveries");
+        Gauge.builder("collaboration.spectators.connected", connected, AtomicInteger::get).register(meterRegistry);
+        // Fanning out only queues frames on connections, so a few platform threads keep up
+        this.fanOutExecutor = taskExecutors.bounded("spectator-fan-out-", Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+
+    /**
+     * Admits a spectator if the session and the instance have room, then sends it the current
+     * document. Returns false when it was turned away.
+     */
+    public boolean join(String sessionId, WebSocketSession spectator) {
+        if (connected.incrementAndGet() > maxTotal) {
+            connected.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        boolean[] admitted = new boolean[1];
+        audiences.compute(sessionId, (id, audience) -> {
+            Audience target = audience != null ? audience : new Audience();
+            admitted[0] = target.size < maxPerSession;
+            if (admitted[0]) {
+                target.size++;
+            }
+            return target.size > 0 ? target : null;
+        });
+        if (!admitted[0]) {
+            connected.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        sessionLanes.submit(sessionId, () -> {
+            Audience audience = audiences.get(sessionId);
+            if (audience == null || !spectator.isOpen()) {
+                return;
+            }
+            // Behind the edits already handed over, so it gets exactly those after its snapshot
+            audience.handOver(encode(SpectatorFrame.snapshot(documentService.snapshot(sessionId))), spectator);
+        });
+        return true;
+    }
+
+    // Only for spectators that join() admitted
+    public void leave(String sessionId, WebSocketSession spectator) {
+        boolean[] empty = new boolean[1];
+        audiences.computeIfPresent(sessionId, (id, audience) -> {
+            audience.spectators.remove(spectator);
+            audience.size--;
+            connected.decrementAndGet();
+            empty[0] = audience.size == 0;
+            return empty[0] ? null : audience;
+        });
+        // Spectators alone do not keep a document in memory
+        if (empty[0] && !documentSubscriptionTracker.hasEditors(sessionId)) {
+            documentService.release(sessionId,
+                    () -> !documentSubscriptionTracker.hasEditors(sessionId) && !audiences.containsKey(sessionId));
+        }
+    }
+
+    /**
+     * Hands an applied edit over for the session's spectators. Must be called on the session's
+     * lane, once per edit; the sending happens elsewhere.
+     */
+    public void publish(String sessionId, CodeOperationMessage applied) {
+        Audience audience = audiences.get(sessionId);
+        if (audience == null) {
+            return;
+        }
+        audience.handOver(encode(SpectatorFrame.edit(applied)), null);
+    }
+
+    // Disconnects the spectators of matching sessions; they reconnect through the gateway
+    public void closeWhere(Predicate<String> sessionFilter, CloseStatus status) {
+        audiences.forEach((sessionId, audience) -> {
+            if (sessionFilter.test(sessionId)) {
+                audience.spectators.forEach(spectator -> close(spectator, status));
+            }
+        });
+    }
+
+    private byte[] encode(SpectatorFrame frame) {
+        try {
+            byte[] encoded = objectMapper.writeValueAsBytes(frame);
+            frames.increment();
+            return encoded;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode spectator frame", e);
+        }
+    }
+
+    private void send(WebSocketSession spectator, byte[] frame) {
+        if (!spectator.isOpen()) {
+            return;
+        }
+        try {
+            // Wraps the shared array; only the buffer position is per spectator
+            spectator.sendMessage(new BinaryMessage(frame));
+            deliveries.increment();
+        } catch (IOException | RuntimeException e) {
+            log.debug("Send to spectator '{}' failed: {}", spectator.getId(), e.getMessage());
+            close(spectator, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    private static void close(WebSocketSession spectator, CloseStatus status) {
+        try {
+            spectator.close(status);
+        } catch (IOException e) {
+            log.debug("Failed to close spectator '{}': {}", spectator.getId(), e.getMessage());
+        }
+    }
+
+    private final class Audience {
+
+        // Admitted, including those still waiting for their snapshot; guarded by the map entry
+        private int size;
+        // Those that have their snapshot and receive edits
+        private final Set<WebSocketSession> spectators = ConcurrentHashMap.newKeySet();
+        // Frames from the lane, in lane order, with the spectator joining on each snapshot
+        private final Deque<Delivery> handedOver = new ArrayDeque<>();
+        private boolean fanningOut;
+
+        void handOver(byte[] frame, WebSocketSession joining) {
+            synchronized (handedOver) {
+                handedOver.addLast(new Delivery(frame, joining));
+                if (fanningOut) {
+                    return;
+                }
+                fanningOut = true;
+            }
+            fanOutExecutor.execute(this::fanOut);
+        }
+
+        private void fanOut() {
+            while (true) {
+                Delivery next;
+                synchronized (handedOver) {
+                    next = handedOver.pollFirst();
+                    if (next == null) {
+                        // Cleared under the lock, so a frame handed over after this starts a new run
+                        fanningOut = false;
+                        return;
+                    }
+                }
+                if (next.joining() != null) {
+                    send(next.joining(), next.frame());
+                    spectators.add(next.joining());
+                    // It may have left while the snapshot was being sent
+                    if (!next.joining().isOpen()) {
+                        spectators.remove(next.joining());
+                    }
+                    continue;
+                }
+                for (WebSocketSession spectator : spectators) {
+                    if (spectator.isOpen()) {
+                        send(spectator, next.frame());
+                    } else {
+                        spectators.remove(spectator);
+                    }
+                }
+            }
+        }
+    }
+
+    private record Delivery(byte[] frame, WebSocketSession joining) {
+    }
+}
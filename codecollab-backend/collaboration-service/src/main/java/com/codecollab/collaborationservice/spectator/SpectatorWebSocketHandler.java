@@ -0,0 +1,47 @@
+package com.codecollab.collaborationservice.spectator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+// Plain WebSocket (no STOMP) endpoint for spectators; see SpectatorHub
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SpectatorWebSocketHandler extends AbstractWebSocketHandler {
+
+    private static final String ADMITTED_ATTRIBUTE = "spectatorAdmitted";
+
+    private final SpectatorHub spectatorHub;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String sessionId = sessionIdOf(session);
+        if (!spectatorHub.join(sessionId, session)) {
+            log.info("Turning away spectator of session '{}': spectator limit reached", sessionId);
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+            return;
+        }
+        session.getAttributes().put(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) {
+        // Spectators are read-only; anything they send is ignored
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        if (session.getAttributes().remove(ADMITTED_ATTRIBUTE) != null) {
+            spectatorHub.leave(sessionIdOf(session), session);
+        }
+    }
+
+    private static String sessionIdOf(WebSocketSession session) {
+        return (String) session.getAttributes().get(SpectatorHandshakeInterceptor.SESSION_ID_ATTRIBUTE);
+    }
+}
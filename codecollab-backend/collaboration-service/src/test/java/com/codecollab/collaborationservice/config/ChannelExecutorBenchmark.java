@@ -0,0 +1,99 @@
+package com.codecollab.collaborationservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the default clientInboundChannel pool with the virtual-thread executor under a
+ * burst of STOMP messages where a few hit a slow session-service call (a permission or
+ * document cache miss). Reports how long the fast messages had to wait.
+ * <p>
+ * Not part of the normal build: {@code mvn test -Dtest=ChannelExecutorBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ChannelExecutorBenchmark {
+
+	private static final int MESSAGES = 5_000;
+	private static final int SLOW_EVERY = 50;
+	private static final long SLOW_CALL_MILLIS = 200;
+
+	@Test
+	void compareInboundExecutors() throws Exception {
+		// What Spring configures for the channel when nothing is set
+		ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+		platform.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+		platform.setMaxPoolSize(Integer.MAX_VALUE);
+		platform.setQueueCapacity(Integer.MAX_VALUE);
+		platform.setThreadNamePrefix("bench-platform-");
+		platform.initialize();
+
+		ThreadPoolTaskExecutor virtual = new ThreadPoolTaskExecutor();
+		virtual.setThreadFactory(Thread.ofVirtual().name("bench-virtual-", 0).factory());
+		virtual.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+		virtual.setMaxPoolSize(Integer.MAX_VALUE);
+		virtual.setQueueCapacity(0);
+		virtual.initialize();
+
+		run("warm-up", virtual);
+		run("platform pool (2 x cores)", platform);
+		run("virtual threads", virtual);
+
+		platform.shutdown();
+		virtual.shutdown();
+	}
+
+	private void run(String label, ThreadPoolTaskExecutor executor) throws InterruptedException {
+		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+		long[] fastLatencies = new long[MESSAGES - MESSAGES / SLOW_EVERY];
+		AtomicInteger fastCount = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(MESSAGES);
+
+		channel.subscribe(message -> {
+			Sample sample = (Sample) message.getPayload();
+			if (sample.slow()) {
+				sleep(SLOW_CALL_MILLIS);
+			} else {
+				fastLatencies[fastCount.getAndIncrement()] = System.nanoTime() - sample.sentAt();
+			}
+			done.countDown();
+		});
+
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			channel.send(MessageBuilder.withPayload(new Sample(i % SLOW_EVERY == 0, System.nanoTime())).build());
+		}
+		if (!done.await(5, TimeUnit.MINUTES)) {
+			throw new IllegalStateException(label + " did not finish");
+		}
+		long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		long[] sorted = Arrays.copyOf(fastLatencies, fastCount.get());
+		Arrays.sort(sorted);
+		System.out.printf("%-28s total %6d ms | fast messages p50 %8.2f ms, p99 %8.2f ms, max %8.2f ms%n",
+				label, totalMillis, millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 1.0));
+	}
+
+	private static double millis(long[] sorted, double percentile) {
+		int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+		return sorted[Math.max(index, 0)] / 1_000_000.0;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private record Sample(boolean slow, long sentAt) {
+	}
+}
@@ -0,0 +1,141 @@
+package com.codecollab.collaborationservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundFlowControlTest {
+
+	private final List<String> delivered = new CopyOnWriteArrayList<>();
+	private final CountDownLatch releaseFirstSend = new CountDownLatch(1);
+	private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+
+	@Test
+	void queuedCursorFramesAreConflatedWhileEditsKeepTheirOrder() throws Exception {
+		WebSocketSession session = connect(flowControl(100), slowSocket());
+
+		session.sendMessage(frame("/topic/edit/s", "e0"));
+		assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+		session.sendMessage(frame("/topic/cursor/s", "c1"));
+		session.sendMessage(frame("/topic/edit/s", "e1"));
+		session.sendMessage(frame("/topic/cursor/s", "c2"));
+		session.sendMessage(frame("/topic/chat/s", "m1"));
+		session.sendMessage(frame("/topic/cursor/s", "c3"));
+		releaseFirstSend.countDown();
+
+		waitForDeliveries(4);
+		assertEquals(List.of("e0", "c3", "e1", "m1"), delivered);
+	}
+
+	@Test
+	void connectionThatFallsTooFarBehindIsClosed() throws Exception {
+		WebSocketSession socket = slowSocket();
+		WebSocketSession session = connect(flowControl(2), socket);
+
+		session.sendMessage(frame("/topic/edit/s", "e0"));
+		assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i <= 3; i++) {
+			session.sendMessage(frame("/topic/edit/s", "e" + i));
+		}
+
+		verify(socket, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+		releaseFirstSend.countDown();
+	}
+
+	@Test
+	void stalledConnectionsNeverMakeTheCallerWrite() throws Exception {
+		OutboundFlowControl flowControl = flowControl(100);
+		int stalled = 300;
+		CountDownLatch writesStarted = new CountDownLatch(stalled);
+		CountDownLatch unblock = new CountDownLatch(1);
+		Thread caller = Thread.currentThread();
+		List<Thread> writers = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < stalled; i++) {
+			WebSocketSession socket = mock(WebSocketSession.class);
+			when(socket.getId()).thenReturn("connection-" + i);
+			when(socket.isOpen()).thenReturn(true);
+			doAnswer(invocation -> {
+				writers.add(Thread.currentThread());
+				writesStarted.countDown();
+				unblock.await(10, TimeUnit.SECONDS);
+				return null;
+			}).when(socket).sendMessage(any(WebSocketMessage.class));
+			// Returns at once even though every write before it is still blocked
+			connect(flowControl, socket).sendMessage(frame("/topic/edit/s", "e" + i));
+		}
+
+		assertTrue(writesStarted.await(10, TimeUnit.SECONDS));
+		assertFalse(writers.contains(caller));
+		unblock.countDown();
+	}
+
+	private OutboundFlowControl flowControl(int maxQueued) {
+		OutboundFlowControl flowControl = new OutboundFlowControl(new SimpleMeterRegistry(), new TaskExecutors(true));
+		ReflectionTestUtils.setField(flowControl, "maxQueuedMessages", maxQueued);
+		ReflectionTestUtils.setField(flowControl, "sendTimeLimitMillis", 10_000L);
+		ReflectionTestUtils.setField(flowControl, "conflatePrefixes", List.of("/topic/cursor/"));
+		return flowControl;
+	}
+
+	// A socket whose first write blocks until the test releases it
+	private WebSocketSession slowSocket() throws Exception {
+		WebSocketSession socket = mock(WebSocketSession.class);
+		when(socket.getId()).thenReturn("connection-1");
+		when(socket.isOpen()).thenReturn(true);
+		doAnswer(invocation -> {
+			String body = ((TextMessage) invocation.getArgument(0)).getPayload();
+			if (delivered.isEmpty()) {
+				firstSendStarted.countDown();
+				releaseFirstSend.await(5, TimeUnit.SECONDS);
+			}
+			delivered.add(body.substring(body.indexOf("\n\n") + 2, body.length() - 1));
+			return null;
+		}).when(socket).sendMessage(any(WebSocketMessage.class));
+		return socket;
+	}
+
+	private WebSocketSession connect(OutboundFlowControl flowControl, WebSocketSession socket) throws Exception {
+		AtomicReference<WebSocketSession> decorated = new AtomicReference<>();
+		WebSocketHandler handler = flowControl.decorate(new AbstractWebSocketHandler() {
+			@Override
+			public void afterConnectionEstablished(WebSocketSession session) {
+				decorated.set(session);
+			}
+		});
+		handler.afterConnectionEstablished(socket);
+		return decorated.get();
+	}
+
+	private void waitForDeliveries(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (delivered.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static TextMessage frame(String destination, String body) {
+		return new TextMessage("MESSAGE\ndestination:" + destination + "\nsubscription:sub-0\n\n" + body + "\0");
+	}
+}
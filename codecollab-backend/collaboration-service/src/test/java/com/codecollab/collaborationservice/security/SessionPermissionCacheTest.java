@@ -0,0 +1,117 @@
+package com.codecollab.collaborationservice.security;
+
+import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.SessionAclDTO;
+import com.codecollab.collaborationservice.security.SessionPermissionCache.SessionPermissions;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionPermissionCacheTest {
+
+	private final SessionServiceClient sessionServiceClient = mock(SessionServiceClient.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SessionPermissionCache cache = new SessionPermissionCache(sessionServiceClient, meterRegistry);
+
+	SessionPermissionCacheTest() {
+		ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+	}
+
+	@Test
+	void concurrentMissesShareOneLookup() throws Exception {
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(sessionServiceClient.getSessionAcl("s")).thenAnswer(invocation -> {
+			loadStarted.countDown();
+			assertTrue(release.await(5, TimeUnit.SECONDS));
+			return acl(3, Set.of("mallory"));
+		});
+
+		CompletableFuture<SessionPermissions> first = CompletableFuture.supplyAsync(() -> cache.get("s"));
+		assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+		CompletableFuture<SessionPermissions> second = CompletableFuture.supplyAsync(() -> cache.get("s"));
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (requests("joined") < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		assertTrue(first.get().isBlocked("mallory"));
+		verify(sessionServiceClient, times(1)).getSessionAcl("s");
+		assertEquals(1, requests("miss"));
+		assertEquals(1, requests("joined"));
+	}
+
+	@Test
+	void expiredEntryUnchangedInSessionServiceIsKept() {
+		ReflectionTestUtils.setField(cache, "ttlMillis", 0L);
+		when(sessionServiceClient.getSessionAcl("s")).thenReturn(acl(3, Set.of("mallory")));
+		when(sessionServiceClient.getSessionAcl("s", "\"3\"")).thenThrow(notModified());
+
+		SessionPermissions loaded = cache.get("s");
+		SessionPermissions revalidated = cache.get("s");
+
+		verify(sessionServiceClient, times(1)).getSessionAcl("s");
+		verify(sessionServiceClient).getSessionAcl("s", "\"3\"");
+		assertEquals(1, meterRegistry.get("collaboration.acl.cache.revalidations").counter().count());
+		assertEquals(loaded.blockedUsers(), revalidated.blockedUsers());
+		assertEquals(loaded.roles(), revalidated.roles());
+		assertEquals(3, revalidated.version());
+	}
+
+	@Test
+	void invalidatedEntryIsLoadedAgain() {
+		when(sessionServiceClient.getSessionAcl("s")).thenReturn(acl(3, Set.of()), acl(4, Set.of("mallory")));
+
+		assertFalse(cache.get("s").isBlocked("mallory"));
+		assertFalse(cache.get("s").isBlocked("mallory"));
+		verify(sessionServiceClient, times(1)).getSessionAcl("s");
+
+		cache.invalidate("s");
+		assertTrue(cache.get("s").isBlocked("mallory"));
+		verify(sessionServiceClient, times(2)).getSessionAcl("s");
+		assertEquals(1, meterRegistry.get("collaboration.acl.cache.invalidations").counter().count());
+		assertEquals(1, requests("hit"));
+	}
+
+	private double requests(String result) {
+		return meterRegistry.get("collaboration.acl.cache.requests").tag("result", result).counter().count();
+	}
+
+	private static SessionAclDTO acl(long version, Set<String> blockedUsers) {
+		SessionAclDTO acl = new SessionAclDTO();
+		acl.setOwnerUsername("alice");
+		acl.setParticipants(Map.of("bob", "VIEWER"));
+		acl.setBlockedUsers(blockedUsers);
+		acl.setVersion(version);
+		return acl;
+	}
+
+	// What Feign throws for the 304 session-service answers to an If-None-Match that still matches
+	private static FeignException notModified() {
+		Request request = Request.create(Request.HttpMethod.GET, "/api/sessions/s/acl", Map.of(), null,
+				StandardCharsets.UTF_8, null);
+		return FeignException.errorStatus("getSessionAcl",
+				Response.builder().status(304).reason("Not Modified").request(request).headers(Map.of()).build());
+	}
+}
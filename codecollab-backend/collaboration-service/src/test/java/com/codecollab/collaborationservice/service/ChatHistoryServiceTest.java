@@ -0,0 +1,89 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.ChatHistoryPage;
+import com.codecollab.collaborationservice.dto.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatHistoryServiceTest {
+
+	private final SessionServiceClient sessionServiceClient = mock(SessionServiceClient.class);
+	private final ChatHistoryService chatHistoryService = new ChatHistoryService(sessionServiceClient, new SimpleMeterRegistry());
+
+	ChatHistoryServiceTest() {
+		ReflectionTestUtils.setField(chatHistoryService, "recentMessages", 3);
+		ReflectionTestUtils.setField(chatHistoryService, "batchSize", 2);
+		ReflectionTestUtils.setField(chatHistoryService, "maxUnsaved", 100);
+	}
+
+	@Test
+	void recentMessagesKeepTheNewestAndIncludeUnsavedOnes() {
+		when(sessionServiceClient.getRecentChat("s", 3))
+				.thenReturn(new ChatHistoryPage(new ArrayList<>(List.of(saved("m0"))), false));
+
+		// Sent before anyone loaded the buffer: only in the unsaved queue
+		chatHistoryService.record("s", "alice", chat("hello"));
+		assertEquals(List.of("m0", "hello"), contents(chatHistoryService.getRecent("s")));
+		assertFalse(chatHistoryService.getRecent("s").isHasMore());
+
+		chatHistoryService.record("s", "bob", chat("a"));
+		chatHistoryService.record("s", "bob", chat("b"));
+		ChatHistoryPage page = chatHistoryService.getRecent("s");
+		assertEquals(List.of("hello", "a", "b"), contents(page));
+		assertTrue(page.isHasMore());
+		verify(sessionServiceClient, times(1)).getRecentChat("s", 3);
+	}
+
+	@Test
+	void failedBatchIsRetriedInOrder() {
+		List<String> stored = new ArrayList<>();
+		doAnswer(invocation -> {
+			throw new IllegalStateException("session-service down");
+		}).doAnswer(invocation -> {
+			List<ChatMessage> batch = invocation.getArgument(0);
+			batch.forEach(message -> stored.add(message.getContent()));
+			return null;
+		}).when(sessionServiceClient).saveChatMessages(anyList());
+
+		chatHistoryService.record("s", "alice", chat("1"));
+		chatHistoryService.record("s", "alice", chat("2"));
+		chatHistoryService.record("s", "alice", chat("3"));
+		chatHistoryService.flushUnsaved();
+		assertTrue(stored.isEmpty());
+
+		chatHistoryService.flushUnsaved();
+		assertEquals(List.of("1", "2", "3"), stored);
+	}
+
+	private static ChatMessage chat(String content) {
+		ChatMessage message = new ChatMessage();
+		message.setContent(content);
+		return message;
+	}
+
+	private static ChatMessage saved(String content) {
+		ChatMessage message = chat(content);
+		message.setMessageId("id-" + content);
+		message.setSessionId("s");
+		return message;
+	}
+
+	private static List<String> contents(ChatHistoryPage page) {
+		return page.getMessages().stream().map(ChatMessage::getContent).toList();
+	}
+}
@@ -0,0 +1,86 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.dto.CursorFrame;
+import com.codecollab.collaborationservice.dto.CursorPositionDTO;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class CursorAggregatorTest {
+
+	private final SimpMessageSendingOperations messagingTemplate = mock(SimpMessageSendingOperations.class);
+	private final CursorAggregator cursorAggregator = new CursorAggregator(messagingTemplate);
+
+	@Test
+	void movesWithinOneTickAreSentAsOneFrameOfLatestCursors() {
+		cursorAggregator.submit("s", cursor("alice", 1));
+		cursorAggregator.submit("s", cursor("bob", 2));
+		cursorAggregator.submit("s", cursor("alice", 3));
+		cursorAggregator.flush();
+
+		assertEquals(List.of("alice:3", "bob:2"), cursorsIn(lastFrame()));
+		clearInvocations(messagingTemplate);
+		cursorAggregator.flush();
+		verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+	}
+
+	@Test
+	void userWhoLeftIsMissingFromTheNextFrame() {
+		cursorAggregator.submit("s", cursor("alice", 1));
+		cursorAggregator.submit("s", cursor("bob", 2));
+		cursorAggregator.flush();
+
+		cursorAggregator.leave("s", "bob");
+		cursorAggregator.flush();
+		assertEquals(List.of("alice:1"), cursorsIn(lastFrame()));
+
+		// Without anyone left the frame is empty, which clears the last cursor on clients
+		cursorAggregator.leave("s", "alice");
+		cursorAggregator.flush();
+		assertEquals(List.of(), cursorsIn(lastFrame()));
+	}
+
+	@Test
+	void leavingWithoutACursorOrAfterForgetSendsNothing() {
+		cursorAggregator.submit("s", cursor("alice", 1));
+		cursorAggregator.flush();
+		clearInvocations(messagingTemplate);
+
+		cursorAggregator.leave("s", "carol");
+		cursorAggregator.forget("s");
+		cursorAggregator.leave("s", "alice");
+		cursorAggregator.flush();
+
+		verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+	}
+
+	private CursorFrame lastFrame() {
+		ArgumentCaptor<CursorFrame> frames = ArgumentCaptor.forClass(CursorFrame.class);
+		verify(messagingTemplate, atLeastOnce()).convertAndSend(eq("/topic/cursor/s"), frames.capture());
+		return frames.getValue();
+	}
+
+	private static List<String> cursorsIn(CursorFrame frame) {
+		return frame.getCursors().stream().map(cursor -> cursor.getUsername() + ":" + cursor.getStartLineNumber()).toList();
+	}
+
+	private static CursorPositionDTO cursor(String username, int line) {
+		CursorPositionDTO cursor = new CursorPositionDTO();
+		cursor.setUsername(username);
+		cursor.setStartLineNumber(line);
+		cursor.setStartColumn(1);
+		return cursor;
+	}
+}
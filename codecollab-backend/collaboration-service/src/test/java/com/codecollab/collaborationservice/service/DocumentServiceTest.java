@@ -0,0 +1,163 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.client.SessionServiceClient;
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.CodeUpdateRequest;
+import com.codecollab.collaborationservice.dto.DocumentSync;
+import com.codecollab.collaborationservice.dto.SessionContentDTO;
+import com.codecollab.collaborationservice.dto.TextOperation;
+import com.codecollab.collaborationservice.exception.DocumentOutOfSyncException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentServiceTest {
+
+	private final SessionServiceClient sessionServiceClient = mock(SessionServiceClient.class);
+	private final DocumentService documentService = new DocumentService(sessionServiceClient, new SimpleMeterRegistry());
+	private final List<String> saved = new ArrayList<>();
+	private final AtomicBoolean sessionServiceDown = new AtomicBoolean();
+
+	DocumentServiceTest() {
+		ReflectionTestUtils.setField(documentService, "maxHistory", 100);
+		ReflectionTestUtils.setField(documentService, "flushIdleMillis", 0L);
+		ReflectionTestUtils.setField(documentService, "flushMaxDelayMillis", 0L);
+		ReflectionTestUtils.setField(documentService, "flushMaxEdits", 1);
+		SessionContentDTO content = new SessionContentDTO();
+		content.setCodeContent("original");
+		when(sessionServiceClient.getSessionContent("s")).thenReturn(content);
+		doAnswer(invocation -> {
+			if (sessionServiceDown.get()) {
+				throw new IllegalStateException("session-service down");
+			}
+			saved.add(invocation.<CodeUpdateRequest>getArgument(1).getCodeContent());
+			return null;
+		}).when(sessionServiceClient).updateSessionCode(eq("s"), any());
+	}
+
+	@Test
+	void unsavedDocumentOutlivesReleaseUntilAFlushSavesIt() {
+		documentService.replaceContent("s", "alice", "edited");
+		sessionServiceDown.set(true);
+
+		documentService.release("s", () -> true);
+		documentService.flushDueDocuments();
+		assertTrue(saved.isEmpty());
+		// Still the live copy, not reloaded from session-service
+		assertEquals("edited", documentService.snapshot("s").getContent());
+		verify(sessionServiceClient, times(1)).getSessionContent("s");
+
+		sessionServiceDown.set(false);
+		documentService.flushDueDocuments();
+		assertEquals(List.of("edited"), saved);
+		// Saved and nobody came back, so it was dropped: the next read loads it again
+		documentService.snapshot("s");
+		verify(sessionServiceClient, times(2)).getSessionContent("s");
+	}
+
+	@Test
+	void releaseLeavesTheSaveToTheFlusher() {
+		documentService.replaceContent("s", "alice", "edited");
+
+		documentService.release("s", () -> true);
+		verify(sessionServiceClient, never()).updateSessionCode(any(), any());
+
+		documentService.flushDueDocuments();
+		assertEquals(List.of("edited"), saved);
+		documentService.snapshot("s");
+		verify(sessionServiceClient, times(2)).getSessionContent("s");
+	}
+
+	@Test
+	void revertReachesTheLiveDocumentOrIsSavedAgain() {
+		documentService.snapshot("s");
+		CodeOperationMessage replaced = documentService.replaceLive("s", "owner", "reverted");
+		assertEquals(1, replaced.getRevision());
+		assertEquals("reverted", documentService.snapshot("s").getContent());
+
+		// Not open here: nothing to broadcast, and a release that raced the revert is undone
+		assertNull(documentService.replaceLive("t", "owner", "reverted"));
+		verify(sessionServiceClient).updateSessionCode(eq("t"), eq(new CodeUpdateRequest("reverted")));
+		verify(sessionServiceClient, never()).getSessionContent("t");
+	}
+
+	@Test
+	void unsavedDocumentStaysLoadedWhenSomeoneRejoins() {
+		AtomicBoolean unused = new AtomicBoolean(true);
+		documentService.replaceContent("s", "alice", "edited");
+		sessionServiceDown.set(true);
+		documentService.release("s", unused::get);
+
+		unused.set(false);
+		sessionServiceDown.set(false);
+		documentService.flushDueDocuments();
+		documentService.flushDueDocuments();
+		assertEquals(List.of("edited"), saved);
+		assertEquals("edited", documentService.snapshot("s").getContent());
+		verify(sessionServiceClient, times(1)).getSessionContent("s");
+	}
+
+	@Test
+	void revisionFromBeforeAReloadGetsASnapshot() {
+		SessionContentDTO reloaded = new SessionContentDTO();
+		reloaded.setCodeContent("edited!");
+		when(sessionServiceClient.getSessionContent("s")).thenReturn(reloaded);
+		DocumentSync joined = documentService.sync("s", null, null);
+		CodeOperationMessage first = documentService.applyEdit("s", "alice", new CodeOperationMessage(
+				"a", null, joined.getEpoch(), 0, 0, List.of(TextOperation.insert(0, "x"))));
+		documentService.release("s", () -> true);
+		documentService.flushDueDocuments();
+
+		// Loaded again with revisions counting from 0, while a client still holds revision 1
+		documentService.replaceContent("s", "bob", "edited!?");
+		DocumentSync resync = documentService.sync("s", joined.getEpoch(), first.getRevision());
+		assertNotEquals(joined.getEpoch(), resync.getEpoch());
+		assertNull(resync.getEdits());
+		assertEquals("edited!?", resync.getContent());
+		assertEquals(1, resync.getRevision());
+
+		// Its next edit, written against revision 1 of the old load, is rejected as well
+		assertThrows(DocumentOutOfSyncException.class, () -> documentService.applyEdit("s", "alice",
+				new CodeOperationMessage("a", null, joined.getEpoch(), 1, 0, List.of(TextOperation.insert(0, "y")))));
+		assertEquals("edited!?", documentService.snapshot("s").getContent());
+		assertEquals(resync.getEpoch(), documentService.sync("s", resync.getEpoch(), 1L).getEpoch());
+		assertEquals(List.of(), documentService.sync("s", resync.getEpoch(), 1L).getEdits());
+	}
+
+	@Test
+	void handedOffDocumentRefusesEditsAndReportsWhenSaved() {
+		documentService.replaceContent("s", "alice", "edited");
+		sessionServiceDown.set(true);
+
+		assertFalse(documentService.handOff("s"));
+		assertThrows(DocumentOutOfSyncException.class, () -> documentService.replaceContent("s", "alice", "late"));
+		sessionServiceDown.set(false);
+		documentService.flushDueDocuments();
+		assertTrue(documentService.handOff("s"));
+		assertEquals(List.of("edited"), saved);
+
+		// Back on this instance after the new owner may have changed it: loaded afresh
+		documentService.reclaim("s");
+		documentService.snapshot("s");
+		verify(sessionServiceClient, times(2)).getSessionContent("s");
+	}
+}
@@ -0,0 +1,131 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.TextOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationTransformerTest {
+
+	@Test
+	void concurrentInsertsAtSameOffsetKeepServerOrder() {
+		CollaborativeDocument document = new CollaborativeDocument("s", "ac", 10);
+
+		document.apply(edit(document, "alice", 0, TextOperation.insert(1, "X")));
+		CodeOperationMessage bob = document.apply(edit(document, "bob", 0, TextOperation.insert(1, "Y")));
+
+		assertEquals("aXYc", document.snapshot().getContent());
+		assertEquals(2, bob.getRevision());
+		assertEquals(2, bob.getOperations().get(0).getPosition());
+	}
+
+	@Test
+	void insertInsideConcurrentDeleteSurvives() {
+		CollaborativeDocument document = new CollaborativeDocument("s", "abcdef", 10);
+
+		document.apply(edit(document, "alice", 0, TextOperation.delete(1, 4)));
+		document.apply(edit(document, "bob", 0, TextOperation.insert(3, "X")));
+
+		assertEquals("aXf", document.snapshot().getContent());
+	}
+
+	@Test
+	void editTooFarBehindIsRejected() {
+		CollaborativeDocument document = new CollaborativeDocument("s", "", 2);
+		for (int i = 0; i < 3; i++) {
+			document.apply(edit(document, "alice", i, TextOperation.insert(0, "x")));
+		}
+
+		assertThrows(IllegalStateException.class,
+				() -> document.apply(edit(document, "bob", 0, TextOperation.insert(0, "y"))));
+	}
+
+	@Test
+	void reconnectingClientGetsOnlyTheEditsItMissed() {
+		CollaborativeDocument document = new CollaborativeDocument("s", "", 3);
+		for (int i = 0; i < 5; i++) {
+			document.apply(edit(document, "alice", i, TextOperation.insert(i, String.valueOf(i))));
+		}
+
+		List<CodeOperationMessage> missed = document.editsSince(document.getEpoch(), 3);
+		assertEquals(List.of(4L, 5L), missed.stream().map(CodeOperationMessage::getRevision).toList());
+		assertEquals(List.of(), document.editsSince(document.getEpoch(), 5));
+		assertNull(document.editsSince(document.getEpoch(), 1));
+		assertNull(document.editsSince(document.getEpoch(), 6));
+	}
+
+	@Test
+	void editResentAfterReconnectIsNotAppliedTwice() {
+		CollaborativeDocument document = new CollaborativeDocument("s", "ab", 10);
+		CodeOperationMessage first = document.apply(edit(document, "alice", 0, TextOperation.insert(1, "X")));
+		document.apply(edit(document, "bob", 1, TextOperation.insert(0, "Y")));
+
+		CodeOperationMessage resent = document.apply(edit(document, "alice", 0, TextOperation.insert(1, "X")));
+
+		assertEquals("YaXb", document.snapshot().getContent());
+		assertSame(first, resent);
+	}
+
+	@Test
+	void randomConcurrentEditsConverge() {
+		Random random = new Random(42);
+		for (int round = 0; round < 2000; round++) {
+			String base = randomText(random, random.nextInt(12));
+			List<TextOperation> a = randomOperations(random, base.length());
+			List<TextOperation> b = randomOperations(random, base.length());
+
+			List<TextOperation>[] transformed = OperationTransformer.transform(a, b);
+
+			StringBuilder viaB = new StringBuilder(base);
+			OperationTransformer.apply(viaB, b);
+			OperationTransformer.validate(viaB.length(), transformed[0]);
+			OperationTransformer.apply(viaB, transformed[0]);
+
+			StringBuilder viaA = new StringBuilder(base);
+			OperationTransformer.apply(viaA, a);
+			OperationTransformer.validate(viaA.length(), transformed[1]);
+			OperationTransformer.apply(viaA, transformed[1]);
+
+			assertEquals(viaB.toString(), viaA.toString(), "base='" + base + "' a=" + a + " b=" + b);
+		}
+	}
+
+	private static CodeOperationMessage edit(CollaborativeDocument document, String username, long baseRevision,
+											 TextOperation... operations) {
+		return new CodeOperationMessage(username, username, document.getEpoch(), baseRevision, 0, List.of(operations));
+	}
+
+	private static List<TextOperation> randomOperations(Random random, int length) {
+		List<TextOperation> operations = new ArrayList<>();
+		int count = 1 + random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			if (length == 0 || random.nextBoolean()) {
+				String text = randomText(random, 1 + random.nextInt(3));
+				operations.add(TextOperation.insert(random.nextInt(length + 1), text));
+				length += text.length();
+			} else {
+				int position = random.nextInt(length);
+				int deleted = 1 + random.nextInt(length - position);
+				operations.add(TextOperation.delete(position, deleted));
+				length -= deleted;
+			}
+		}
+		return operations;
+	}
+
+	private static String randomText(Random random, int length) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			text.append((char) ('a' + random.nextInt(26)));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,165 @@
+package com.codecollab.collaborationservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+/**
+ * Compares {@link PieceTable} with the plain {@code String} (and {@code StringBuilder}) the
+ * documents used to be, for 1 KB to 10 MB files: a burst of typing at random places, and
+ * converting Monaco line/column positions to offsets.
+ * <p>
+ * Not part of the normal build: {@code mvn test -Dtest=PieceTableBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PieceTableBenchmark {
+
+	private static final int[] SIZES = {1_024, 100 * 1_024, 1_024 * 1_024, 10 * 1_024 * 1_024};
+	private static final int EDITS = 2_000;
+	private static final int LOOKUPS = 2_000;
+
+	@Test
+	void compareWithString() {
+		System.out.printf("%-8s %-14s %14s %14s%n", "size", "model", "us/edit", "us/lookup");
+		for (int size : SIZES) {
+			String content = sourceFile(size);
+			run(size, "String", content, new StringModel(content));
+			run(size, "StringBuilder", content, new StringBuilderModel(content));
+			run(size, "PieceTable", content, new PieceTableModel(content));
+		}
+	}
+
+	private void run(int size, String label, String content, Model model) {
+		Random random = new Random(size);
+		int length = content.length();
+
+		long started = System.nanoTime();
+		for (int i = 0; i < EDITS; i++) {
+			int offset = random.nextInt(length + 1);
+			if (i % 4 == 3) {
+				int deleted = Math.min(3, length - offset);
+				model.delete(offset, deleted);
+				length -= deleted;
+			} else {
+				model.insert(offset, "x");
+				length++;
+			}
+		}
+		double perEdit = (System.nanoTime() - started) / 1_000.0 / EDITS;
+
+		int lines = model.lineCount();
+		started = System.nanoTime();
+		long checksum = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			checksum += model.offsetAt(1 + random.nextInt(lines), 5);
+		}
+		double perLookup = (System.nanoTime() - started) / 1_000.0 / LOOKUPS;
+
+		System.out.printf("%-8s %-14s %14.2f %14.2f   (%d)%n", human(size), label, perEdit, perLookup, checksum % 10);
+	}
+
+	private static String sourceFile(int size) {
+		StringBuilder text = new StringBuilder(size + 64);
+		int line = 0;
+		while (text.length() < size) {
+			text.append("    val value").append(line++).append(" = compute(input, ").append(line % 97).append(")\n");
+		}
+		text.setLength(size);
+		return text.toString();
+	}
+
+	private static String human(int size) {
+		return size >= 1_024 * 1_024 ? size / (1_024 * 1_024) + " MB" : size / 1_024 + " KB";
+	}
+
+	private interface Model {
+		void insert(int offset, String text);
+
+		void delete(int offset, int length);
+
+		int offsetAt(int lineNumber, int column);
+
+		int lineCount();
+	}
+
+	private static final class StringModel implements Model {
+		private String content;
+
+		StringModel(String content) {
+			this.content = content;
+		}
+
+		public void insert(int offset, String text) {
+			content = content.substring(0, offset) + text + content.substring(offset);
+		}
+
+		public void delete(int offset, int length) {
+			content = content.substring(0, offset) + content.substring(offset + length);
+		}
+
+		public int offsetAt(int lineNumber, int column) {
+			int start = 0;
+			for (int line = 1; line < lineNumber; line++) {
+				start = content.indexOf('\n', start) + 1;
+			}
+			return start + column - 1;
+		}
+
+		public int lineCount() {
+			return (int) content.chars().filter(c -> c == '\n').count() + 1;
+		}
+	}
+
+	private static final class StringBuilderModel implements Model {
+		private final StringBuilder content;
+
+		StringBuilderModel(String content) {
+			this.content = new StringBuilder(content);
+		}
+
+		public void insert(int offset, String text) {
+			content.insert(offset, text);
+		}
+
+		public void delete(int offset, int length) {
+			content.delete(offset, offset + length);
+		}
+
+		public int offsetAt(int lineNumber, int column) {
+			int start = 0;
+			for (int line = 1; line < lineNumber; line++) {
+				start = content.indexOf("\n", start) + 1;
+			}
+			return start + column - 1;
+		}
+
+		public int lineCount() {
+			return (int) content.chars().filter(c -> c == '\n').count() + 1;
+		}
+	}
+
+	private static final class PieceTableModel implements Model {
+		private final PieceTable content;
+
+		PieceTableModel(String content) {
+			this.content = new PieceTable(content);
+		}
+
+		public void insert(int offset, String text) {
+			content.insert(offset, text);
+		}
+
+		public void delete(int offset, int length) {
+			content.delete(offset, length);
+		}
+
+		public int offsetAt(int lineNumber, int column) {
+			return content.offsetAt(lineNumber, column);
+		}
+
+		public int lineCount() {
+			return content.lineCount();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.codecollab.collaborationservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PieceTableTest {
+
+	@Test
+	void randomEditsMatchStringBuilder() {
+		Random random = new Random(7);
+		StringBuilder expected = new StringBuilder("fun main() {\r\n    println(\"hi\")\n}\n");
+		PieceTable table = new PieceTable(expected.toString());
+
+		for (int i = 0; i < 5_000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				int offset = random.nextInt(expected.length() + 1);
+				String text = random.nextInt(5) == 0 ? "\n" : random.nextInt(8) == 0 ? "ab\r\ncd\n" : "x";
+				expected.insert(offset, text);
+				table.insert(offset, text);
+			} else {
+				int offset = random.nextInt(expected.length());
+				int length = random.nextInt(Math.min(20, expected.length() - offset) + 1);
+				expected.delete(offset, offset + length);
+				table.delete(offset, length);
+			}
+			assertEquals(expected.length(), table.length());
+		}
+		assertMatches(expected.toString(), table);
+	}
+
+	@Test
+	void compactionKeepsTextAndLinesIntact() {
+		Random random = new Random(11);
+		StringBuilder expected = new StringBuilder(text(random, 2_000));
+		PieceTable table = new PieceTable(expected.toString());
+		Object added = ReflectionTestUtils.getField(table, "added");
+		int compactions = 0;
+
+		// Large pastes that are mostly deleted again, so the append-only buffer keeps outgrowing
+		// a document that stays small and is compacted over and over
+		for (int i = 0; i < 2_000; i++) {
+			if (expected.length() < 16_000 && random.nextInt(3) > 0) {
+				int offset = random.nextInt(expected.length() + 1);
+				String text = text(random, 1 + random.nextInt(2_000));
+				expected.insert(offset, text);
+				table.insert(offset, text);
+			} else if (!expected.isEmpty()) {
+				int offset = random.nextInt(expected.length());
+				int length = random.nextInt(Math.min(3_000, expected.length() - offset) + 1);
+				expected.delete(offset, offset + length);
+				table.delete(offset, length);
+			}
+			assertEquals(expected.length(), table.length());
+			if (ReflectionTestUtils.getField(table, "added") != added) {
+				added = ReflectionTestUtils.getField(table, "added");
+				compactions++;
+				assertMatches(expected.toString(), table);
+				// Edits right after a compaction land on the fresh original buffer
+				int offset = random.nextInt(expected.length() + 1);
+				expected.insert(offset, "\r\n");
+				table.insert(offset, "\r\n");
+				assertMatches(expected.toString(), table);
+			}
+		}
+		assertTrue(compactions >= 3, "only " + compactions + " compactions");
+		assertMatches(expected.toString(), table);
+	}
+
+	@Test
+	void monacoPositionsRoundTrip() {
+		PieceTable table = new PieceTable("ab\r\ncd\n");
+		table.insert(7, "efg");
+
+		assertEquals(new PieceTable.Position(2, 2), table.positionAt(5));
+		assertEquals(5, table.offsetAt(2, 2));
+		assertEquals(6, table.offsetAt(2, 99)); // clamped to the end of the line
+		assertEquals(9, table.offsetAt(3, 3));
+		assertEquals("efg", table.getLineContent(3));
+	}
+
+	private static void assertMatches(String expected, PieceTable table) {
+		assertEquals(expected, table.toString());
+		for (int offset = 0; offset < expected.length(); offset += 97) {
+			assertEquals(expected.charAt(offset), table.charAt(offset));
+		}
+
+		String[] lines = expected.split("\n", -1);
+		assertEquals(lines.length, table.lineCount());
+		int offset = 0;
+		for (int line = 1; line <= lines.length; line++) {
+			String content = lines[line - 1];
+			if (line < lines.length && content.endsWith("\r")) {
+				content = content.substring(0, content.length() - 1);
+			}
+			assertEquals(offset, table.lineStartOffset(line));
+			assertEquals(content.length(), table.lineLength(line));
+			assertEquals(content, table.getLineContent(line));
+			assertEquals(offset, table.offsetAt(line, 1));
+			assertEquals(new PieceTable.Position(line, 1), table.positionAt(offset));
+			if (!content.isEmpty()) {
+				int column = content.length();
+				assertEquals(new PieceTable.Position(line, column), table.positionAt(offset + column - 1));
+			}
+			offset += lines[line - 1].length() + 1;
+		}
+	}
+
+	private static String text(Random random, int length) {
+		StringBuilder text = new StringBuilder(length);
+		while (text.length() < length) {
+			int pick = random.nextInt(30);
+			text.append(pick == 0 ? "\r\n" : pick < 3 ? "\n" : String.valueOf((char) ('a' + pick)));
+		}
+		return text.toString();
+	}
+}
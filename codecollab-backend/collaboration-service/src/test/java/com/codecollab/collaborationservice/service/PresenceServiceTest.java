@@ -0,0 +1,128 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.config.ConnectionRegistry;
+import com.codecollab.collaborationservice.dto.PresenceRoster;
+import com.codecollab.collaborationservice.dto.PresenceUpdate;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PresenceServiceTest {
+
+	private final SimpMessageSendingOperations messagingTemplate = mock(SimpMessageSendingOperations.class);
+	private final CursorAggregator cursorAggregator = mock(CursorAggregator.class);
+	private final ConnectionRegistry connectionRegistry = mock(ConnectionRegistry.class);
+	private final PresenceService presenceService = new PresenceService(messagingTemplate, cursorAggregator, connectionRegistry);
+
+	PresenceServiceTest() {
+		ReflectionTestUtils.setField(presenceService, "idleAfterMillis", 60000L);
+		ReflectionTestUtils.setField(presenceService, "serverHeartbeatMillis", 10000L);
+		ReflectionTestUtils.setField(presenceService, "missedHeartbeats", 3);
+	}
+
+	@Test
+	void secondTabAndReconnectWithinOneTickAreNotReported() {
+		join("c1", "alice");
+		presenceService.publishChanges();
+		verify(messagingTemplate).convertAndSend(eq("/topic/presence/s"), any(PresenceUpdate.class));
+
+		// A second tab, then the first drops and comes back before the next tick
+		join("c2", "alice");
+		disconnect("c1");
+		disconnect("c2");
+		join("c3", "alice");
+		presenceService.publishChanges();
+
+		verify(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+		PresenceRoster roster = presenceService.getRoster("s");
+		assertEquals(Map.of("alice", PresenceRoster.Status.ACTIVE), roster.getUsers());
+		assertEquals(1, roster.getVersion());
+	}
+
+	@Test
+	void leaveIsPublishedOnceTheLastConnectionCloses() {
+		join("c1", "alice");
+		join("c2", "bob");
+		presenceService.publishChanges();
+		disconnect("c2");
+		presenceService.publishChanges();
+
+		ArgumentCaptor<PresenceUpdate> updates = ArgumentCaptor.forClass(PresenceUpdate.class);
+		verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/presence/s"), updates.capture());
+		assertEquals(List.of("alice", "bob"), updates.getAllValues().get(0).getJoined().stream().sorted().toList());
+		assertEquals(List.of("bob"), updates.getAllValues().get(1).getLeft());
+		assertTrue(presenceService.isOnline("s", "alice"));
+		assertFalse(presenceService.isOnline("s", "bob"));
+		verify(cursorAggregator).leave("s", "bob");
+		verify(cursorAggregator, never()).leave("s", "alice");
+	}
+
+	@Test
+	void connectionSilentPastItsHeartbeatsIsClosedAndLeavesOnce() throws InterruptedException {
+		join("c1", "alice");
+		presenceService.publishChanges();
+		ReflectionTestUtils.setField(presenceService, "missedHeartbeats", 0);
+		Thread.sleep(5);
+
+		presenceService.sweep();
+		// The close is followed by the usual disconnect event
+		disconnect("c1");
+
+		verify(connectionRegistry).close("c1", CloseStatus.SESSION_NOT_RELIABLE);
+		assertFalse(presenceService.isOnline("s", "alice"));
+		verify(cursorAggregator, times(1)).leave("s", "alice");
+	}
+
+	@Test
+	void nothingIsPublishedForAnUnchangedRoster() {
+		presenceService.publishChanges();
+		verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+	}
+
+	private void join(String connectionId, String username) {
+		StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+		connect.setSessionId(connectionId);
+		connect.setUser(() -> username);
+		connect.setHeartbeat(10000, 10000);
+		presenceService.onConnect(new SessionConnectEvent(this, message(connect)));
+
+		StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		subscribe.setSessionId(connectionId);
+		subscribe.setSubscriptionId("sub-0");
+		subscribe.setDestination("/topic/presence/s");
+		presenceService.onSubscribe(new SessionSubscribeEvent(this, message(subscribe)));
+	}
+
+	private void disconnect(String connectionId) {
+		StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+		disconnect.setSessionId(connectionId);
+		presenceService.onDisconnect(new SessionDisconnectEvent(this, message(disconnect), connectionId, CloseStatus.NORMAL));
+	}
+
+	private static Message<byte[]> message(StompHeaderAccessor accessor) {
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
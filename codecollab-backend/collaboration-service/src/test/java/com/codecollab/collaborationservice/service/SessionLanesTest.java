@@ -0,0 +1,97 @@
+package com.codecollab.collaborationservice.service;
+
+import com.codecollab.collaborationservice.config.TaskExecutors;
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.TextOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionLanesTest {
+
+	private static final int SESSIONS = 50;
+	private static final int EDITORS = 8;
+	private static final int EDITS_PER_EDITOR = 50;
+
+	private final SessionLanes lanes = new SessionLanes(new SimpleMeterRegistry(), new TaskExecutors(false), 4);
+
+	@AfterEach
+	void shutdown() {
+		lanes.shutdown();
+	}
+
+	@Test
+	void editsOfOneSessionRunOneAtATimeInSubmissionOrder() throws Exception {
+		int editsPerSession = EDITORS * EDITS_PER_EDITOR;
+		List<CollaborativeDocument> documents = new ArrayList<>();
+		List<List<Long>> revisions = new ArrayList<>();
+		List<AtomicInteger> running = new ArrayList<>();
+		AtomicInteger overlaps = new AtomicInteger();
+		for (int s = 0; s < SESSIONS; s++) {
+			documents.add(new CollaborativeDocument("s" + s, "", editsPerSession));
+			revisions.add(new ArrayList<>()); // deliberately unsynchronized: only ever touched on the lane
+			running.add(new AtomicInteger());
+		}
+
+		CountDownLatch done = new CountDownLatch(SESSIONS * editsPerSession);
+		List<Thread> editors = new ArrayList<>();
+		for (int e = 0; e < EDITORS; e++) {
+			String editor = "editor" + e;
+			editors.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < EDITS_PER_EDITOR; i++) {
+					// Distinct per edit, or a later one would be taken for a resend of an earlier one
+					String clientId = editor + "#" + i;
+					for (int s = 0; s < SESSIONS; s++) {
+						int session = s;
+						lanes.submit("s" + session, () -> {
+							if (running.get(session).incrementAndGet() > 1) {
+								overlaps.incrementAndGet();
+							}
+							CollaborativeDocument document = documents.get(session);
+							CodeOperationMessage applied = document.apply(new CodeOperationMessage(
+									clientId, editor, document.getEpoch(), 0, 0, List.of(TextOperation.insert(0, "x"))));
+							revisions.get(session).add(applied.getRevision());
+							running.get(session).decrementAndGet();
+							done.countDown();
+						});
+					}
+				}
+			}));
+		}
+		for (Thread editor : editors) {
+			editor.join();
+		}
+
+		assertTrue(done.await(60, TimeUnit.SECONDS), "lanes did not drain");
+		assertEquals(0, overlaps.get());
+		for (int s = 0; s < SESSIONS; s++) {
+			List<Long> applied = revisions.get(s);
+			assertEquals(editsPerSession, applied.size());
+			for (int i = 0; i < applied.size(); i++) {
+				assertEquals(i + 1, applied.get(i));
+			}
+			assertEquals(editsPerSession, documents.get(s).snapshot().getContent().length());
+		}
+	}
+
+	@Test
+	void failingTaskDoesNotStallItsLane() throws Exception {
+		CountDownLatch after = new CountDownLatch(1);
+
+		lanes.submit("s", () -> {
+			throw new IllegalStateException("boom");
+		});
+		lanes.submit("s", after::countDown);
+
+		assertTrue(after.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,67 @@
+package com.codecollab.collaborationservice.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+	private static final int SESSIONS = 10_000;
+
+	@Test
+	void sessionsSpreadEvenlyAndOnlyTheNewNodesShareMoves() {
+		ConsistentHashRing three = new ConsistentHashRing(List.of("a:8084", "b:8084", "c:8084"), 160);
+		ConsistentHashRing four = new ConsistentHashRing(List.of("a:8084", "b:8084", "c:8084", "d:8084"), 160);
+
+		Map<String, Integer> load = new HashMap<>();
+		int moved = 0;
+		for (int i = 0; i < SESSIONS; i++) {
+			String sessionId = "session-" + i;
+			String before = three.ownerOf(sessionId);
+			String after = four.ownerOf(sessionId);
+			load.merge(before, 1, Integer::sum);
+			if (!before.equals(after)) {
+				assertEquals("d:8084", after, "a session may only move to the node that joined");
+				moved++;
+			}
+		}
+
+		load.values().forEach(count -> assertTrue(Math.abs(count - SESSIONS / 3) < SESSIONS / 10, "load " + load));
+		assertTrue(Math.abs(moved - SESSIONS / 4) < SESSIONS / 10, "moved " + moved);
+	}
+
+	@Test
+	void ownerDoesNotDependOnNodeOrder() {
+		ConsistentHashRing one = new ConsistentHashRing(List.of("a", "b", "c"), 160);
+		ConsistentHashRing other = new ConsistentHashRing(List.of("c", "a", "b"), 160);
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(one.ownerOf("s" + i), other.ownerOf("s" + i));
+		}
+		assertNull(new ConsistentHashRing(List.of(), 160).ownerOf("s"));
+	}
+
+	// The same table is checked against the api-gateway's copy, so the gateway and the
+	// instances cannot drift apart on who owns a session
+	@Test
+	void ownersMatchTheSharedTable() {
+		ConsistentHashRing ring = new ConsistentHashRing(List.of("10.0.0.1:8084", "10.0.0.2:8084", "10.0.0.3:8084"), 160);
+
+		Map<String, String> expected = Map.of(
+				"a1b2c3", "10.0.0.2:8084",
+				"session-1", "10.0.0.2:8084",
+				"session-2", "10.0.0.1:8084",
+				"session-3", "10.0.0.2:8084",
+				"7f9e2d4c-1b3a-4c5d-8e6f-0a1b2c3d4e5f", "10.0.0.1:8084",
+				"x", "10.0.0.3:8084",
+				"session-42", "10.0.0.3:8084",
+				"demo", "10.0.0.3:8084");
+		expected.forEach((sessionId, owner) -> assertEquals(owner, ring.ownerOf(sessionId), sessionId));
+	}
+}
@@ -0,0 +1,112 @@
+package com.codecollab.collaborationservice.spectator;
+
+import com.codecollab.collaborationservice.config.TaskExecutors;
+import com.codecollab.collaborationservice.dto.CodeOperationMessage;
+import com.codecollab.collaborationservice.dto.CodeUpdateMessage;
+import com.codecollab.collaborationservice.dto.TextOperation;
+import com.codecollab.collaborationservice.service.DocumentService;
+import com.codecollab.collaborationservice.service.DocumentSubscriptionTracker;
+import com.codecollab.collaborationservice.service.SessionLanes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpectatorHubTest {
+
+	private final DocumentService documentService = mock(DocumentService.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SessionLanes lanes = new SessionLanes(meterRegistry, new TaskExecutors(false), 1);
+	private final SpectatorHub hub = new SpectatorHub(documentService, mock(DocumentSubscriptionTracker.class),
+			lanes, new ObjectMapper(), meterRegistry, new TaskExecutors(false));
+
+	SpectatorHubTest() {
+		ReflectionTestUtils.setField(hub, "maxPerSession", 3);
+		ReflectionTestUtils.setField(hub, "maxTotal", 100);
+		when(documentService.snapshot("s")).thenReturn(new CodeUpdateMessage("abc", "e", 7));
+	}
+
+	@AfterEach
+	void shutdown() {
+		lanes.shutdown();
+		hub.shutdown();
+	}
+
+	@Test
+	void editIsEncodedOnceForAllSpectators() throws Exception {
+		List<WebSocketSession> spectators = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			WebSocketSession spectator = mock(WebSocketSession.class);
+			when(spectator.isOpen()).thenReturn(true);
+			assertTrue(hub.join("s", spectator));
+			spectators.add(spectator);
+		}
+		assertFalse(hub.join("s", mock(WebSocketSession.class)));
+
+		CountDownLatch published = new CountDownLatch(1);
+		lanes.submit("s", () -> {
+			hub.publish("s", new CodeOperationMessage("c", "alice", "e", 7, 8, List.of(TextOperation.insert(3, "d"))));
+			published.countDown();
+		});
+		assertTrue(published.await(5, TimeUnit.SECONDS));
+
+		byte[] shared = null;
+		for (WebSocketSession spectator : spectators) {
+			ArgumentCaptor<BinaryMessage> sent = ArgumentCaptor.forClass(BinaryMessage.class);
+			verify(spectator, timeout(5000).times(2)).sendMessage(sent.capture());
+			byte[] edit = sent.getAllValues().get(1).getPayload().array();
+			if (shared != null) {
+				assertSame(shared, edit);
+			}
+			shared = edit;
+		}
+		assertEquals("{\"type\":\"EDIT\",\"revision\":8,\"operations\":[{\"type\":\"INSERT\",\"position\":3,\"text\":\"d\",\"length\":0}]}",
+				new String(shared));
+		// Three snapshots and one edit
+		assertEquals(4, meterRegistry.counter("collaboration.spectators.frames").count());
+		assertEquals(1, meterRegistry.counter("collaboration.spectators.rejected").count());
+	}
+
+	@Test
+	void stuckSpectatorDoesNotHoldUpTheLane() throws Exception {
+		CountDownLatch unblock = new CountDownLatch(1);
+		WebSocketSession stuck = mock(WebSocketSession.class);
+		when(stuck.isOpen()).thenReturn(true);
+		doAnswer(invocation -> unblock.await(10, TimeUnit.SECONDS)).when(stuck).sendMessage(any());
+		assertTrue(hub.join("s", stuck));
+
+		CountDownLatch published = new CountDownLatch(3);
+		for (int revision = 8; revision <= 10; revision++) {
+			long applied = revision;
+			lanes.submit("s", () -> {
+				hub.publish("s", new CodeOperationMessage("c", "alice", "e", applied - 1, applied, List.of(TextOperation.insert(0, "x"))));
+				published.countDown();
+			});
+		}
+		assertTrue(published.await(5, TimeUnit.SECONDS));
+
+		unblock.countDown();
+		verify(stuck, timeout(5000).times(4)).sendMessage(any());
+	}
+}
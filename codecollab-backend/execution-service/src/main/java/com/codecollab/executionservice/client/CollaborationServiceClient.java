@@ -1,7 +1,7 @@
 package com.codecollab.executionservice.client;
 
 
-import com.codecollab.executionservice.dto.CodeExecutionResponse;
+import com.codecollab.executionservice.dto.ExecutionOutputEvent;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,6 +12,6 @@ import org.springframework.web.bind.annotation.RequestBody;
 public interface CollaborationServiceClient {
 
 
-    @PostMapping("/api/internal/broadcast/{sessionId}")
-    void broadcastResult(@PathVariable("sessionId")  String sessionId, @RequestBody CodeExecutionResponse result);
+    @PostMapping("/api/internal/broadcast/{sessionId}/output")
+    void publishOutput(@PathVariable("sessionId") String sessionId, @RequestBody ExecutionOutputEvent event);
 }
@@ -1,13 +1,12 @@
 package com.codecollab.executionservice.controller;
 
-import com.codecollab.executionservice.client.CollaborationServiceClient;
 import com.codecollab.executionservice.dto.CodeExecutionRequest;
-import com.codecollab.executionservice.dto.CodeExecutionResponse;
 import com.codecollab.executionservice.service.CodeExecutionService;
+import com.codecollab.executionservice.service.ExecutionOutputPublisher;
+import com.codecollab.executionservice.service.ExecutionOutputPublisher.RunOutput;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -21,31 +20,27 @@ import org.springframework.web.bind.annotation.RestController;
 public class ExecutionController {
 
     private final CodeExecutionService codeExecutionService;
-    private final CollaborationServiceClient collaborationServiceClient;
+    private final ExecutionOutputPublisher executionOutputPublisher;
     private static final Logger logger = LoggerFactory.getLogger(ExecutionController.class);
 
 
     @PostMapping
     public ResponseEntity<Void> executeCode(@RequestBody CodeExecutionRequest request) {
+        // Output is streamed to /topic/output/{sessionId} while the code runs
+        RunOutput output = executionOutputPublisher.start(request.getSessionId());
         try {
 
-            CodeExecutionResponse response = codeExecutionService.executeCode(
+            codeExecutionService.executeCode(
                     request.getCode(),
                     request.getLanguage(),
-                    request.getStdin() // <-- NEW
-            );
-
-            collaborationServiceClient.broadcastResult(
-                    request.getSessionId(),
-                    new CodeExecutionResponse(response.getOutput(), response.getError())
+                    request.getStdin(), // <-- NEW
+                    output
             );
 
             return ResponseEntity.ok().build();
         } catch (Exception e) {
-            collaborationServiceClient.broadcastResult(
-                    request.getSessionId(),
-                    new CodeExecutionResponse("", e.getMessage())
-            );
+            logger.warn("Run {} for session {} failed: {}", output.getRunId(), request.getSessionId(), e.getMessage());
+            output.complete(null, e.getMessage());
             return ResponseEntity.ok().build();
 
         }
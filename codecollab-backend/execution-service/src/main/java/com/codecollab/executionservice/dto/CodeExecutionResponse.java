@@ -1,13 +0,0 @@
-package com.codecollab.executionservice.dto;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class CodeExecutionResponse {
-    private String output;
-    private String error;
-}
\ No newline at end of file
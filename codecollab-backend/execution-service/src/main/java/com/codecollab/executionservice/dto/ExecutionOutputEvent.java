@@ -0,0 +1,28 @@
+package com.codecollab.executionservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One piece of a run's output as it is streamed to the session. Events of a run are numbered
+// from 0 in order; the last one is always COMPLETED.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExecutionOutputEvent {
+    private String runId;
+    private long seq;
+    private Type type;
+    private List<OutputSegment> segments; // OUTPUT: stdout and stderr as they were interleaved
+    private Integer exitCode; // COMPLETED, when the program ran to the end
+    private String error;     // COMPLETED, when it did not (build failure, timeout, ...)
+
+    public enum Type {
+        OUTPUT,
+        COMPLETED
+    }
+}
@@ -1,12 +1,15 @@
 package com.codecollab.executionservice.service;
 
-import com.codecollab.executionservice.dto.CodeExecutionResponse;
+import com.codecollab.executionservice.dto.OutputSegment.Stream;
+import com.codecollab.executionservice.service.ExecutionOutputPublisher.RunOutput;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.exception.DockerClientException;
 import com.github.dockerjava.api.model.BuildResponseItem;
 import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.StreamType;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.io.FileUtils;
 import org.springframework.stereotype.Service;
@@ -25,7 +28,11 @@ public class CodeExecutionService {
 
     private final DockerClient dockerClient;
 
-    public CodeExecutionResponse executeCode(String code, String language, String stdin) throws Exception {
+    /**
+     * Builds and runs the code, streaming its output to {@code output} as it is produced, and
+     * completes {@code output} with the exit code (or the reason there is none).
+     */
+    public void executeCode(String code, String language, String stdin, RunOutput output) throws Exception {
         Path tempDir = Files.createTempDirectory("codecollab-" + UUID.randomUUID());
 
         File inputFile = new File(tempDir.toFile(), "input.txt");
@@ -89,27 +96,50 @@ public class CodeExecutionService {
             BuildImageResultCallback callback = new BuildImageResultCallback(buildLog);
             dockerClient.buildImageCmd(tempDir.toFile()).exec(callback);
             boolean completed = callback.awaitCompletion(60, TimeUnit.SECONDS);
-            if (!completed) return new CodeExecutionResponse("", "Docker image build timed out.");
+            if (!completed) {
+                output.complete(null, "Docker image build timed out.");
+                return;
+            }
             imageId = callback.getImageId();
-            if (imageId == null) return new CodeExecutionResponse("", buildLog.toString());
+            if (imageId == null) {
+                output.complete(null, buildLog.toString());
+                return;
+            }
 
             HostConfig hostConfig = new HostConfig().withMemory(128 * 1024 * 1024L).withCpuCount(1L);
             CreateContainerResponse containerResponse = dockerClient.createContainerCmd(imageId).withHostConfig(hostConfig).exec();
             containerId = containerResponse.getId();
             dockerClient.startContainerCmd(containerId).exec();
-            dockerClient.waitContainerCmd(containerId).start().awaitStatusCode(10, TimeUnit.SECONDS);
 
-            StringBuilder output = new StringBuilder();
-            StringBuilder error = new StringBuilder();
-            LogCallback logCallback = new LogCallback(output, error);
-            dockerClient.logContainerCmd(containerId).withStdOut(true).withStdErr(true).exec(logCallback).awaitCompletion(5, TimeUnit.SECONDS);
-            return new CodeExecutionResponse(output.toString(), error.toString());
+            // Followed from the start, so output reaches the session while the program runs
+            LogCallback logCallback = new LogCallback(output);
+            dockerClient.logContainerCmd(containerId).withStdOut(true).withStdErr(true).withFollowStream(true).exec(logCallback);
+
+            Integer exitCode = null;
+            String error = null;
+            try {
+                exitCode = dockerClient.waitContainerCmd(containerId).start().awaitStatusCode(10, TimeUnit.SECONDS);
+            } catch (DockerClientException e) {
+                error = "Execution timed out after 10 seconds.";
+                killQuietly(containerId);
+            }
+            // The followed stream ends with the container; this only drains what is left of it
+            logCallback.awaitCompletion(5, TimeUnit.SECONDS);
+            output.complete(exitCode, error);
 
         } finally {
             cleanup(containerId, imageId, tempDir);
         }
     }
 
+    private void killQuietly(String containerId) {
+        try {
+            dockerClient.killContainerCmd(containerId).exec();
+        } catch (Exception e) {
+            System.err.println("Failed to kill container: " + containerId);
+        }
+    }
+
     private void cleanup(String containerId, String imageId, Path tempDir) {
         if (containerId != null) {
             try {
@@ -132,18 +162,13 @@ public class CodeExecutionService {
         }
     }
 
-    // Helper class for RUNTIME log capturing
+    // Helper class for RUNTIME log streaming
     private static class LogCallback extends ResultCallback.Adapter<Frame> {
-        private final StringBuilder output;
-        private final StringBuilder error;
-        public LogCallback(StringBuilder output, StringBuilder error) { this.output = output; this.error = error; }
+        private final RunOutput output;
+        public LogCallback(RunOutput output) { this.output = output; }
         @Override
         public void onNext(Frame item) {
-            if (item.getStreamType() == com.github.dockerjava.api.model.StreamType.STDOUT) {
-                output.append(new String(item.getPayload()));
-            } else {
-                error.append(new String(item.getPayload()));
-            }
+            output.append(item.getStreamType() == StreamType.STDERR ? Stream.STDERR : Stream.STDOUT, item.getPayload());
         }
     }
 
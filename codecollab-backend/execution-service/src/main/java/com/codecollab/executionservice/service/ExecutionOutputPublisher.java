@@ -0,0 +1,264 @@
+package com.codecollab.executionservice.service;
+
+import com.codecollab.executionservice.client.CollaborationServiceClient;
+import com.codecollab.executionservice.dto.ExecutionOutputEvent;
+import com.codecollab.executionservice.dto.ExecutionOutputEvent.Type;
+import com.codecollab.executionservice.dto.OutputSegment;
+import com.codecollab.executionservice.dto.OutputSegment.Stream;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a run's stdout and stderr to the session while the program is still running.
+ * Output is batched into chunks that keep both streams, in the order they were written, as
+ * stream-tagged segments. A run sends at most one chunk per flush interval: a chunk goes out
+ * once its first text has waited for the interval, or earlier once it reaches the chunk size
+ * if the previous one went out at least an interval ago. Output beyond the per-run limit is
+ * dropped.
+ * <p>
+ * Appending never waits for the network. Chunks are queued per run and sent in order on a
+ * virtual thread, so a slow collaboration-service does not hold up Docker's log callbacks.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExecutionOutputPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionOutputPublisher.class);
+
+    private final CollaborationServiceClient collaborationServiceClient;
+    // Only decides when chunks are due; the sending happens on the sender
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "execution-output-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${execution.output.flush-interval-ms:100}")
+    private long flushIntervalMillis;
+
+    @Value("${execution.output.max-chunk-chars:8192}")
+    private int maxChunkChars;
+
+    @Value("${execution.output.max-run-chars:1000000}")
+    private int maxRunChars;
+
+    public RunOutput start(String sessionId) {
+        return new RunOutput(sessionId, UUID.randomUUID().toString());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        // Lets queued chunks and completions go out
+        sender.shutdown();
+        try {
+            sender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public final class RunOutput {
+
+        private final String sessionId;
+        private final String runId;
+        private final Map<Stream, CharsetDecoder> decoders = new EnumMap<>(Stream.class);
+        private final Map<Stream, ByteBuffer> undecoded = new EnumMap<>(Stream.class);
+        // The chunk being collected; consecutive text of one stream shares a segment
+        private final List<Stream> pendingStreams = new ArrayList<>();
+        private final List<StringBuilder> pendingTexts = new ArrayList<>();
+        private int pendingChars;
+        private long pendingSince;
+        private long nextChunkAllowedAt = System.nanoTime();
+        private ScheduledFuture<?> scheduledFlush;
+        // Events waiting to be sent, oldest first; one sender at a time keeps them in order
+        private final Deque<ExecutionOutputEvent> outbox = new ArrayDeque<>();
+        private boolean sending;
+        private long seq;
+        private long totalChars;
+        private boolean truncated;
+        private boolean completed;
+
+        private RunOutput(String sessionId, String runId) {
+            this.sessionId = sessionId;
+            this.runId = runId;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public synchronized void append(Stream stream, byte[] bytes) {
+            if (completed || truncated) {
+                return;
+            }
+            String text = decode(stream, bytes, false);
+            if (text.isEmpty()) {
+                return;
+            }
+            if (totalChars + text.length() > maxRunChars) {
+                text = text.substring(0, (int) (maxRunChars - totalChars))
+                        + "\n[Output truncated after " + maxRunChars + " characters]\n";
+                truncated = true;
+            }
+            totalChars += text.length();
+            addPending(stream, text);
+            scheduleFlush();
+        }
+
+        /**
+         * Queues what is left and the completion event. {@code exitCode} is null when the program
+         * did not run to the end, in which case {@code error} says why. Only the first call counts.
+         */
+        public synchronized void complete(Integer exitCode, String error) {
+            if (completed) {
+                return;
+            }
+            for (Stream stream : Map.copyOf(undecoded).keySet()) {
+                String rest = decode(stream, new byte[0], true);
+                if (!rest.isEmpty() && !truncated) {
+                    addPending(stream, rest);
+                }
+            }
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            queuePending();
+            completed = true;
+            queue(new ExecutionOutputEvent(runId, seq++, Type.COMPLETED, null, exitCode, error));
+        }
+
+        private void addPending(Stream stream, String text) {
+            if (pendingChars == 0) {
+                pendingSince = System.nanoTime();
+            }
+            int last = pendingStreams.size() - 1;
+            if (last >= 0 && pendingStreams.get(last) == stream) {
+                pendingTexts.get(last).append(text);
+            } else {
+                pendingStreams.add(stream);
+                pendingTexts.add(new StringBuilder(text));
+            }
+            pendingChars += text.length();
+        }
+
+        // Called with the lock held
+        private void scheduleFlush() {
+            long interval = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+            long dueAt = pendingChars >= maxChunkChars || truncated
+                    ? nextChunkAllowedAt
+                    : Math.max(nextChunkAllowedAt, pendingSince + interval);
+            long delay = Math.max(0, dueAt - System.nanoTime());
+            if (scheduledFlush != null) {
+                if (scheduledFlush.getDelay(TimeUnit.NANOSECONDS) <= delay) {
+                    return;
+                }
+                scheduledFlush.cancel(false);
+            }
+            scheduledFlush = flusher.schedule(this::flushScheduled, delay, TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void flushScheduled() {
+            scheduledFlush = null;
+            if (completed) {
+                return;
+            }
+            nextChunkAllowedAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+            queuePending();
+        }
+
+        // Called with the lock held
+        private void queuePending() {
+            if (pendingChars == 0) {
+                return;
+            }
+            List<OutputSegment> segments = new ArrayList<>(pendingStreams.size());
+            for (int i = 0; i < pendingStreams.size(); i++) {
+                segments.add(new OutputSegment(pendingStreams.get(i), pendingTexts.get(i).toString()));
+            }
+            pendingStreams.clear();
+            pendingTexts.clear();
+            pendingChars = 0;
+            queue(new ExecutionOutputEvent(runId, seq++, Type.OUTPUT, segments, null, null));
+        }
+
+        // Called with the lock held
+        private void queue(ExecutionOutputEvent event) {
+            outbox.addLast(event);
+            if (!sending) {
+                sending = true;
+                sender.execute(this::sendQueued);
+            }
+        }
+
+        private void sendQueued() {
+            while (true) {
+                ExecutionOutputEvent event;
+                synchronized (this) {
+                    event = outbox.pollFirst();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                send(event);
+            }
+        }
+
+        private void send(ExecutionOutputEvent event) {
+            try {
+                collaborationServiceClient.publishOutput(sessionId, event);
+            } catch (Exception e) {
+                // Output is best effort; the run itself goes on
+                logger.warn("Failed to publish output {} of run {} for session {}: {}",
+                        event.getSeq(), runId, sessionId, e.getMessage());
+            }
+        }
+
+        // Docker frames may end in the middle of a multi-byte character; the rest is kept for the next frame
+        private String decode(Stream stream, byte[] bytes, boolean endOfInput) {
+            CharsetDecoder decoder = decoders.computeIfAbsent(stream, t -> StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+            ByteBuffer carried = undecoded.remove(stream);
+            ByteBuffer input = ByteBuffer.allocate((carried != null ? carried.remaining() : 0) + bytes.length);
+            if (carried != null) {
+                input.put(carried);
+            }
+            input.put(bytes).flip();
+            CharBuffer output = CharBuffer.allocate((int) (input.remaining() * decoder.maxCharsPerByte()) + 1);
+            decoder.decode(input, output, endOfInput);
+            if (endOfInput) {
+                decoder.flush(output);
+                decoder.reset();
+            } else if (input.hasRemaining()) {
+                undecoded.put(stream, input.slice());
+            }
+            return output.flip().toString();
+        }
+    }
+}
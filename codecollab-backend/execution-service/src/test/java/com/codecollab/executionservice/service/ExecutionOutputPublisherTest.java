@@ -0,0 +1,128 @@
+package com.codecollab.executionservice.service;
+
+import com.codecollab.executionservice.client.CollaborationServiceClient;
+import com.codecollab.executionservice.dto.ExecutionOutputEvent;
+import com.codecollab.executionservice.dto.ExecutionOutputEvent.Type;
+import com.codecollab.executionservice.dto.OutputSegment;
+import com.codecollab.executionservice.dto.OutputSegment.Stream;
+import com.codecollab.executionservice.service.ExecutionOutputPublisher.RunOutput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class ExecutionOutputPublisherTest {
+
+	private final CollaborationServiceClient client = mock(CollaborationServiceClient.class);
+	private final ExecutionOutputPublisher publisher = new ExecutionOutputPublisher(client);
+
+	ExecutionOutputPublisherTest() {
+		// Long enough that, after the first chunk, only completion flushes in this test
+		ReflectionTestUtils.setField(publisher, "flushIntervalMillis", 60_000L);
+		ReflectionTestUtils.setField(publisher, "maxChunkChars", 100);
+		ReflectionTestUtils.setField(publisher, "maxRunChars", 1_000);
+	}
+
+	@AfterEach
+	void shutdown() {
+		publisher.shutdown();
+	}
+
+	@Test
+	void printLoopIsBatchedAndCompletionComesLast() {
+		RunOutput output = publisher.start("s");
+		for (int i = 0; i < 50; i++) {
+			output.append(Stream.STDOUT, "line\n".getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] euro = "€\n".getBytes(StandardCharsets.UTF_8);
+		output.append(Stream.STDERR, Arrays.copyOfRange(euro, 0, 1));
+		output.append(Stream.STDERR, Arrays.copyOfRange(euro, 1, euro.length));
+		output.complete(0, null);
+
+		List<ExecutionOutputEvent> events = sent();
+		// A full chunk may go out once; everything after it waits for the interval or the end
+		assertTrue(events.size() <= 3, "events: " + events);
+		for (int i = 0; i < events.size(); i++) {
+			assertEquals(i, events.get(i).getSeq());
+			assertEquals(output.getRunId(), events.get(i).getRunId());
+			assertEquals(i == events.size() - 1 ? Type.COMPLETED : Type.OUTPUT, events.get(i).getType());
+		}
+		assertEquals("line\n".repeat(50), text(events, Stream.STDOUT));
+		assertEquals("€\n", text(events, Stream.STDERR));
+		assertEquals(0, events.get(events.size() - 1).getExitCode());
+	}
+
+	@Test
+	void alternatingStreamsShareOneChunkAndNeverBlockTheWriter() throws Exception {
+		CountDownLatch collaborationServiceStalled = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			collaborationServiceStalled.await(10, TimeUnit.SECONDS);
+			return null;
+		}).when(client).publishOutput(eq("s"), any());
+		ReflectionTestUtils.setField(publisher, "maxChunkChars", 10_000);
+
+		RunOutput output = publisher.start("s");
+		for (int i = 0; i < 40; i++) {
+			output.append(i % 2 == 0 ? Stream.STDOUT : Stream.STDERR, ("#" + i + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		output.complete(1, null);
+		// Everything above returned while the first send was still stuck
+		collaborationServiceStalled.countDown();
+
+		List<ExecutionOutputEvent> events = sent();
+		assertEquals(List.of(Type.OUTPUT, Type.COMPLETED), events.stream().map(ExecutionOutputEvent::getType).toList());
+		List<OutputSegment> segments = events.get(0).getSegments();
+		assertEquals(40, segments.size());
+		for (int i = 0; i < 40; i++) {
+			assertEquals(i % 2 == 0 ? Stream.STDOUT : Stream.STDERR, segments.get(i).getStream());
+			assertEquals("#" + i + "\n", segments.get(i).getText());
+		}
+	}
+
+	@Test
+	void outputBeyondTheRunLimitIsDropped() {
+		RunOutput output = publisher.start("s");
+		for (int i = 0; i < 100; i++) {
+			output.append(Stream.STDOUT, "0123456789012345678901234567890123456789".getBytes(StandardCharsets.UTF_8));
+		}
+		output.complete(null, "Execution timed out after 10 seconds.");
+
+		List<ExecutionOutputEvent> events = sent();
+		assertEquals(1_000, text(events, Stream.STDOUT).indexOf("\n[Output truncated"));
+		assertEquals("Execution timed out after 10 seconds.", events.get(events.size() - 1).getError());
+	}
+
+	// Sends are asynchronous; completion is always the last one
+	private List<ExecutionOutputEvent> sent() {
+		verify(client, timeout(5_000)).publishOutput(eq("s"), argThat(event -> event.getType() == Type.COMPLETED));
+		ArgumentCaptor<ExecutionOutputEvent> events = ArgumentCaptor.forClass(ExecutionOutputEvent.class);
+		verify(client, atLeastOnce()).publishOutput(eq("s"), events.capture());
+		return events.getAllValues();
+	}
+
+	private static String text(List<ExecutionOutputEvent> events, Stream stream) {
+		return events.stream()
+				.filter(event -> event.getSegments() != null)
+				.flatMap(event -> event.getSegments().stream())
+				.filter(segment -> segment.getStream() == stream)
+				.map(OutputSegment::getText)
+				.reduce("", String::concat);
+	}
+}
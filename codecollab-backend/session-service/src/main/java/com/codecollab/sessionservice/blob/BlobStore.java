@@ -0,0 +1,49 @@
+package com.codecollab.sessionservice.blob;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed, reference-counted storage for code and snapshot data. Identical content is
+ * stored once, compressed, under the SHA-256 of its bytes; every row that holds a hash holds
+ * one reference to it. Blobs that lose their last reference are deleted after a grace period.
+ * <p>
+ * {@code put}, {@code retain} and {@code release} must run in the transaction that writes or
+ * deletes the referencing rows, so the counts commit or roll back with them.
+ */
+public interface BlobStore {
+
+    // Stores the content unless it is already there, and adds a reference to it
+    String put(byte[] content);
+
+    default String put(String content) {
+        return put(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Adds a reference to a blob that is known to be referenced already
+    void retain(String hash);
+
+    // Drops one reference per occurrence of a hash in the collection
+    void release(Collection<String> hashes);
+
+    byte[] get(String hash);
+
+    default String getString(String hash) {
+        return new String(get(hash), StandardCharsets.UTF_8);
+    }
+
+    static String hashOf(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String hashOf(String content) {
+        return hashOf(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
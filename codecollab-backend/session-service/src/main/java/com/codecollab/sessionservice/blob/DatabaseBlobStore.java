@@ -0,0 +1,34 @@
+package com.codecollab.sessionservice.blob;
+
+import com.codecollab.sessionservice.repository.ContentBlobRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// session.blobs.store=database (the default): the compressed bytes live in the content_blobs row
+@Component
+@ConditionalOnProperty(name = "session.blobs.store", havingValue = "database", matchIfMissing = true)
+public class DatabaseBlobStore extends RefCountedBlobStore {
+
+    public DatabaseBlobStore(ContentBlobRepository contentBlobRepository, TransactionTemplate transactionTemplate) {
+        super(contentBlobRepository, transactionTemplate);
+    }
+
+    @Override
+    protected void insert(String hash, long size, byte[] compressed) {
+        contentBlobRepository.upsertWithData(hash, size, compressed);
+    }
+
+    @Override
+    protected byte[] read(String hash) {
+        return contentBlobRepository.findData(hash)
+                .orElseThrow(() -> new IllegalStateException("Blob " + hash + " not found"));
+    }
+
+    @Override
+    protected void deleteContent(List<String> hashes) {
+        // Deleted with the rows
+    }
+}
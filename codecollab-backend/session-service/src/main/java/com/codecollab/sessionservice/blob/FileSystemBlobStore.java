@@ -0,0 +1,85 @@
+package com.codecollab.sessionservice.blob;
+
+import com.codecollab.sessionservice.repository.ContentBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * session.blobs.store=filesystem: reference counts stay in the database, the compressed bytes go
+ * to {@code <path>/<first two hex digits>/<hash>}, keeping large content out of Postgres. The
+ * directory must be shared by all instances.
+ * <p>
+ * A file is written after its row is inserted or revived, so it always exists once the row is
+ * visible. A transaction that rolls back after writing one leaves an unreferenced file behind;
+ * it is harmless and is overwritten if the same content is stored again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.blobs.store", havingValue = "filesystem")
+public class FileSystemBlobStore extends RefCountedBlobStore {
+
+    private final Path root;
+
+    public FileSystemBlobStore(ContentBlobRepository contentBlobRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${session.blobs.path:./data/blobs}") Path root) {
+        super(contentBlobRepository, transactionTemplate);
+        this.root = root;
+    }
+
+    @Override
+    protected void insert(String hash, long size, byte[] compressed) {
+        contentBlobRepository.upsertWithoutData(hash, size);
+        Path file = pathOf(hash);
+        try {
+            Files.createDirectories(file.getParent());
+            // Written next to the target and moved into place, so readers never see a partial file
+            Path temp = Files.createTempFile(file.getParent(), hash, ".tmp");
+            try {
+                Files.write(temp, compressed);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write blob " + hash, e);
+        }
+    }
+
+    @Override
+    protected byte[] read(String hash) {
+        try {
+            return Files.readAllBytes(pathOf(hash));
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("Blob " + hash + " not found");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read blob " + hash, e);
+        }
+    }
+
+    @Override
+    protected void deleteContent(List<String> hashes) {
+        for (String hash : hashes) {
+            try {
+                Files.deleteIfExists(pathOf(hash));
+            } catch (IOException e) {
+                log.warn("Could not delete blob {}: {}", hash, e.getMessage());
+            }
+        }
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+}
@@ -0,0 +1,111 @@
+package com.codecollab.sessionservice.blob;
+
+import com.codecollab.sessionservice.repository.ContentBlobRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps reference counts in {@code content_blobs} and leaves where the bytes live to subclasses.
+ * <p>
+ * A blob whose count drops to 0 is kept for a grace period, during which a put of the same
+ * content simply revives it, and then deleted by a background collector. The collector locks
+ * the rows it deletes, so a concurrent put of the same content waits for it and then stores the
+ * content afresh rather than referencing bytes that are about to disappear.
+ */
+@Slf4j
+public abstract class RefCountedBlobStore implements BlobStore {
+
+    protected final ContentBlobRepository contentBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${session.blobs.gc-grace-ms:600000}")
+    private long gcGraceMillis;
+
+    @Value("${session.blobs.gc-batch-size:500}")
+    private int gcBatchSize;
+
+    protected RefCountedBlobStore(ContentBlobRepository contentBlobRepository, TransactionTemplate transactionTemplate) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public String put(byte[] content) {
+        String hash = BlobStore.hashOf(content);
+        // The common case for unchanged code: one UPDATE, nothing compressed or written
+        if (contentBlobRepository.retainLive(hash, 1) == 0) {
+            insert(hash, content.length, Compression.deflate(content));
+        }
+        return hash;
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void retain(String hash) {
+        if (contentBlobRepository.retainLive(hash, 1) == 0) {
+            throw new IllegalStateException("Blob " + hash + " is not referenced");
+        }
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void release(Collection<String> hashes) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String hash : hashes) {
+            if (hash != null) {
+                counts.merge(hash, 1, Integer::sum);
+            }
+        }
+        long now = System.currentTimeMillis();
+        counts.forEach((hash, count) -> contentBlobRepository.release(hash, count, now));
+    }
+
+    @Override
+    public byte[] get(String hash) {
+        return Compression.inflate(read(hash));
+    }
+
+    /**
+     * Adds the blob with one reference, or a reference to it if it appeared meanwhile or is
+     * waiting to be collected. Runs in the caller's transaction.
+     */
+    protected abstract void insert(String hash, long size, byte[] compressed);
+
+    // The compressed bytes
+    protected abstract byte[] read(String hash);
+
+    // Called by the collector, with the blobs' rows locked, just before deleting them
+    protected abstract void deleteContent(List<String> hashes);
+
+    @Scheduled(fixedDelayString = "${session.blobs.gc-interval-ms:60000}",
+            initialDelayString = "${session.blobs.gc-interval-ms:60000}")
+    public void collect() {
+        try {
+            int collected;
+            do {
+                collected = transactionTemplate.execute(status -> {
+                    List<String> hashes = contentBlobRepository.lockCollectable(
+                            System.currentTimeMillis() - gcGraceMillis, gcBatchSize);
+                    if (!hashes.isEmpty()) {
+                        deleteContent(hashes);
+                        contentBlobRepository.deleteByHashes(hashes);
+                    }
+                    return hashes.size();
+                });
+                if (collected > 0) {
+                    log.info("Collected {} unreferenced blob(s)", collected);
+                }
+            } while (collected == gcBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Blob collection failed: {}", e.getMessage());
+        }
+    }
+}
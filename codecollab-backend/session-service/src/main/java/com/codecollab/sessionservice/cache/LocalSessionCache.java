@@ -0,0 +1,218 @@
+package com.codecollab.sessionservice.cache;
+
+import com.codecollab.sessionservice.dto.SessionAclDTO;
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process {@link SessionCache}: least recently used sessions are evicted once there are more
+ * than the entry limit or their views weigh more than the weight limit (content is weighed by
+ * its size), and every view expires after a TTL. Concurrent misses for one view share a single
+ * load, whose result is discarded if the session is invalidated before it completes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.cache.type", havingValue = "local", matchIfMissing = true)
+public class LocalSessionCache implements SessionCache {
+
+    // Rough size of a cached view without its code
+    private static final long VIEW_OVERHEAD_BYTES = 256;
+
+    // Access-ordered, so iteration starts at the least recently used session; guarded by itself
+    private final LinkedHashMap<String, CachedSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<ViewKey, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final int maxEntries;
+    private final long maxWeightBytes;
+    private final long ttlMillis;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter joins;
+    private final Counter sizeEvictions;
+    private final Counter expirations;
+    private final Counter invalidations;
+
+    public LocalSessionCache(MeterRegistry meterRegistry,
+                             @Value("${session.cache.max-entries:10000}") int maxEntries,
+                             @Value("${session.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                             @Value("${session.cache.ttl-ms:300000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+        this.ttlMillis = ttlMillis;
+        this.hits = meterRegistry.counter("session.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("session.cache.requests", "result", "miss");
+        // Waited on another request's load, so neither served from the cache nor a load of its own
+        this.joins = meterRegistry.counter("session.cache.requests", "result", "joined");
+        this.sizeEvictions = meterRegistry.counter("session.cache.evictions", "cause", "size");
+        this.expirations = meterRegistry.counter("session.cache.evictions", "cause", "expired");
+        this.invalidations = meterRegistry.counter("session.cache.evictions", "cause", "invalidated");
+        Gauge.builder("session.cache.size", this, cache -> cache.size()).register(meterRegistry);
+        Gauge.builder("session.cache.weight", weight, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Override
+    public <T> T get(String uniqueId, Class<T> view, Supplier<T> loader) {
+        Object cached = lookup(uniqueId, view);
+        if (cached != null) {
+            hits.increment();
+            return view.cast(cached);
+        }
+        ViewKey key = new ViewKey(uniqueId, view);
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, created);
+        if (inFlight != null) {
+            joins.increment();
+            return view.cast(await(inFlight));
+        }
+        misses.increment();
+        try {
+            T loaded = loader.get();
+            store(key, created, loaded);
+            created.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            loading.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void invalidate(String uniqueId) {
+        synchronized (sessions) {
+            // Loads already in flight for this session will not be cached
+            loading.keySet().removeIf(key -> key.uniqueId().equals(uniqueId));
+            CachedSession removed = sessions.remove(uniqueId);
+            if (removed != null) {
+                weight.addAndGet(-removed.weight);
+                invalidations.increment();
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(String uniqueId, Class<?> view) {
+        synchronized (sessions) {
+            loading.remove(new ViewKey(uniqueId, view));
+            CachedSession session = sessions.get(uniqueId);
+            if (session != null && session.remove(view)) {
+                if (session.views.isEmpty()) {
+                    sessions.remove(uniqueId);
+                }
+                invalidations.increment();
+            }
+        }
+    }
+
+    int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    long weight() {
+        return weight.get();
+    }
+
+    private Object lookup(String uniqueId, Class<?> view) {
+        synchronized (sessions) {
+            CachedSession session = sessions.get(uniqueId);
+            CachedView cached = session != null ? session.views.get(view) : null;
+            if (cached == null) {
+                return null;
+            }
+            if (cached.loadedAt + ttlMillis <= System.currentTimeMillis()) {
+                session.remove(view);
+                if (session.views.isEmpty()) {
+                    sessions.remove(uniqueId);
+                }
+                expirations.increment();
+                return null;
+            }
+            return cached.value;
+        }
+    }
+
+    private void store(ViewKey key, CompletableFuture<Object> marker, Object value) {
+        long valueWeight = weigh(value);
+        synchronized (sessions) {
+            // Fails if the session was invalidated while loading
+            if (!loading.remove(key, marker) || value == null || valueWeight > maxWeightBytes) {
+                return;
+            }
+            sessions.computeIfAbsent(key.uniqueId(), id -> new CachedSession())
+                    .put(key.view(), new CachedView(value, valueWeight, System.currentTimeMillis()));
+            Iterator<CachedSession> leastRecent = sessions.values().iterator();
+            while (sessions.size() > maxEntries || weight.get() > maxWeightBytes) {
+                CachedSession evicted = leastRecent.next();
+                leastRecent.remove();
+                weight.addAndGet(-evicted.weight);
+                sizeEvictions.increment();
+            }
+        }
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof SessionContentDTO content && content.getCodeContent() != null) {
+            return VIEW_OVERHEAD_BYTES + 2L * content.getCodeContent().length();
+        }
+        if (value instanceof SessionAclDTO acl) {
+            return VIEW_OVERHEAD_BYTES + 64L * (acl.getParticipants().size() + acl.getBlockedUsers().size());
+        }
+        return VIEW_OVERHEAD_BYTES;
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private record ViewKey(String uniqueId, Class<?> view) {
+    }
+
+    private record CachedView(Object value, long weight, long loadedAt) {
+    }
+
+    // Guarded by the sessions map
+    private final class CachedSession {
+
+        private final Map<Class<?>, CachedView> views = new HashMap<>(4);
+        private long weight;
+
+        void put(Class<?> view, CachedView cached) {
+            remove(view);
+            views.put(view, cached);
+            weight += cached.weight;
+            LocalSessionCache.this.weight.addAndGet(cached.weight);
+        }
+
+        boolean remove(Class<?> view) {
+            CachedView removed = views.remove(view);
+            if (removed == null) {
+                return false;
+            }
+            weight -= removed.weight;
+            LocalSessionCache.this.weight.addAndGet(-removed.weight);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.codecollab.sessionservice.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+// session.cache.type=none: every read goes to the database
+@Component
+@ConditionalOnProperty(name = "session.cache.type", havingValue = "none")
+public class NoOpSessionCache implements SessionCache {
+
+    @Override
+    public <T> T get(String uniqueId, Class<T> view, Supplier<T> loader) {
+        return loader.get();
+    }
+
+    @Override
+    public void invalidate(String uniqueId) {
+    }
+
+    @Override
+    public void invalidate(String uniqueId, Class<?> view) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.codecollab.sessionservice.cache;
+
+import java.util.function.Supplier;
+
+/**
+ * Read-side cache of session projections (ACL, metadata, content), keyed by the session's
+ * uniqueId. Entities are never cached: mutations always load the session from the database.
+ * <p>
+ * {@link LocalSessionCache} is the default. It is only correct while a single instance writes
+ * the sessions it serves; with several replicas, provide a bean backed by a shared store and
+ * set {@code session.cache.type} to anything other than {@code local} or {@code none}.
+ */
+public interface SessionCache {
+
+    /**
+     * The cached view of this type, or the loader's result, which is cached unless the
+     * session is invalidated while it loads. Exceptions from the loader are not cached.
+     */
+    <T> T get(String uniqueId, Class<T> view, Supplier<T> loader);
+
+    // Drops every cached view of the session
+    void invalidate(String uniqueId);
+
+    // Drops one view of the session and keeps the others
+    void invalidate(String uniqueId, Class<?> view);
+}
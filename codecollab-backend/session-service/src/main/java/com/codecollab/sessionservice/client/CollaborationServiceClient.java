@@ -1,11 +1,12 @@
 package com.codecollab.sessionservice.client;
 
 import com.codecollab.sessionservice.dto.NotificationDTO; // Create this DTO
+import com.codecollab.sessionservice.dto.ReplaceDocumentRequest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 
-@FeignClient(name = "collaboration-service", url = "http://localhost:8084")
+@FeignClient(name = "collaboration-service", url = "${collaboration-service.url:http://localhost:8084}")
 public interface CollaborationServiceClient {
 
     @PostMapping("/api/internal/broadcast/notify-owner/{ownerUsername}")
@@ -13,4 +14,10 @@ public interface CollaborationServiceClient {
 
     @PostMapping("/api/internal/broadcast/session/{sessionId}")
     void broadcastToSession(@PathVariable("sessionId") String sessionId, NotificationDTO notification);
+
+    @PostMapping("/api/internal/permissions/{sessionId}/invalidate")
+    void invalidatePermissions(@PathVariable("sessionId") String sessionId);
+
+    @PostMapping("/api/internal/documents/{sessionId}/replace")
+    void replaceDocument(@PathVariable("sessionId") String sessionId, ReplaceDocumentRequest request);
 }
\ No newline at end of file
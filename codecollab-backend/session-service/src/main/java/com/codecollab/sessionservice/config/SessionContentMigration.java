@@ -0,0 +1,73 @@
+package com.codecollab.sessionservice.config;
+
+import com.codecollab.sessionservice.blob.BlobStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+/**
+ * Moves code stored by older versions as TEXT into {@link BlobStore}, then drops the old column:
+ * first {@code code_sessions.code_content}, then {@code session_contents.code_content}. Runs
+ * once, at startup, after Hibernate has created the new tables; on an up-to-date database it
+ * is a single metadata query.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class SessionContentMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobStore blobStore;
+
+    @PostConstruct
+    public void migrate() {
+        if (hasColumn("code_sessions", "code_content")) {
+            transactionTemplate.executeWithoutResult(status -> {
+                int moved = 0;
+                for (Map<String, Object> row : jdbcTemplate.queryForList(
+                        "SELECT id, code_content FROM code_sessions WHERE content_id IS NULL")) {
+                    Long contentId = jdbcTemplate.queryForObject(
+                            "INSERT INTO session_contents (blob_hash) VALUES (?) RETURNING id", Long.class,
+                            blobStore.put(codeOf(row)));
+                    jdbcTemplate.update("UPDATE code_sessions SET content_id = ? WHERE id = ?", contentId, row.get("id"));
+                    moved++;
+                }
+                jdbcTemplate.execute("ALTER TABLE code_sessions DROP COLUMN code_content");
+                log.info("Moved the code of {} session(s) to the blob store", moved);
+            });
+        }
+        if (hasColumn("session_contents", "code_content")) {
+            transactionTemplate.executeWithoutResult(status -> {
+                int moved = 0;
+                for (Map<String, Object> row : jdbcTemplate.queryForList(
+                        "SELECT id, code_content FROM session_contents WHERE blob_hash IS NULL")) {
+                    jdbcTemplate.update("UPDATE session_contents SET blob_hash = ? WHERE id = ?",
+                            blobStore.put(codeOf(row)), row.get("id"));
+                    moved++;
+                }
+                jdbcTemplate.execute("ALTER TABLE session_contents DROP COLUMN code_content");
+                log.info("Moved the code of {} session(s) to the blob store", moved);
+            });
+        }
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private static String codeOf(Map<String, Object> row) {
+        Object code = row.get("code_content");
+        return code != null ? code.toString() : "";
+    }
+}
@@ -0,0 +1,26 @@
+package com.codecollab.sessionservice.controller;
+
+import com.codecollab.sessionservice.dto.ChatHistoryPage;
+import com.codecollab.sessionservice.service.ChatService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Older chat history, page by page; recent messages come from collaboration-service over STOMP
+@RestController
+@RequestMapping("/api/sessions/{uniqueId}/chat")
+@RequiredArgsConstructor
+public class ChatController {
+
+    private final ChatService chatService;
+
+    @GetMapping
+    public ResponseEntity<ChatHistoryPage> getHistory(
+            @PathVariable String uniqueId,
+            @RequestHeader("X-Authenticated-Username") String username,
+            @RequestParam(required = false) Long beforeSentAt,
+            @RequestParam(required = false) String beforeMessageId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(chatService.getHistory(uniqueId, username, beforeSentAt, beforeMessageId, limit));
+    }
+}
@@ -0,0 +1,32 @@
+package com.codecollab.sessionservice.controller;
+
+import com.codecollab.sessionservice.dto.ChatHistoryPage;
+import com.codecollab.sessionservice.model.ChatMessage;
+import com.codecollab.sessionservice.service.ChatService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Called by collaboration-service, which batches chat writes and caches recent messages
+@RestController
+@RequestMapping("/api/internal/chat")
+@RequiredArgsConstructor
+public class InternalChatController {
+
+    private final ChatService chatService;
+
+    @PostMapping
+    public ResponseEntity<Void> saveBatch(@RequestBody List<ChatMessage> messages) {
+        chatService.saveBatch(messages);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{uniqueId}")
+    public ResponseEntity<ChatHistoryPage> getRecent(
+            @PathVariable String uniqueId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(chatService.getRecent(uniqueId, limit));
+    }
+}
@@ -1,16 +1,22 @@
 package com.codecollab.sessionservice.controller;
 
 import com.codecollab.sessionservice.dto.CodeUpdateRequest;
+import com.codecollab.sessionservice.dto.SessionAclDTO;
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import com.codecollab.sessionservice.dto.SessionMetadataDTO;
+import com.codecollab.sessionservice.dto.SnapshotSummaryDTO;
 import com.codecollab.sessionservice.model.CodeSession;
 import com.codecollab.sessionservice.model.Role;
 import com.codecollab.sessionservice.service.SessionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -31,8 +37,9 @@ public class SessionController {
     @PostMapping("/{uniqueId}/request-join")
     public ResponseEntity<Void> requestToJoin(
             @PathVariable String uniqueId,
-            @RequestHeader("X-Authenticated-Username") String username) {
-        sessionService.requestToJoin(uniqueId, username);
+            @RequestHeader("X-Authenticated-Username") String username,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        sessionService.requestToJoin(uniqueId, username, SessionETag.parse(ifMatch));
         return ResponseEntity.ok().build();
     }
 
@@ -40,22 +47,35 @@ public class SessionController {
     public ResponseEntity<CodeSession> approveJoinRequest(
             @PathVariable String uniqueId,
             @PathVariable String userToApprove,
-            @RequestHeader("X-Authenticated-Username") String ownerUsername) {
-        return ResponseEntity.ok(sessionService.approveJoinRequest(uniqueId, ownerUsername, userToApprove));
+            @RequestHeader("X-Authenticated-Username") String ownerUsername,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(sessionService.approveJoinRequest(uniqueId, ownerUsername, userToApprove, SessionETag.parse(ifMatch)));
     }
 
     @PostMapping("/{uniqueId}/deny/{userToDeny}")
     public ResponseEntity<CodeSession> denyJoinRequest(
             @PathVariable String uniqueId,
             @PathVariable String userToDeny,
-            @RequestHeader("X-Authenticated-Username") String ownerUsername) {
-        return ResponseEntity.ok(sessionService.denyJoinRequest(uniqueId, ownerUsername, userToDeny));
+            @RequestHeader("X-Authenticated-Username") String ownerUsername,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(sessionService.denyJoinRequest(uniqueId, ownerUsername, userToDeny, SessionETag.parse(ifMatch)));
     }
 
     @GetMapping("/{uniqueId}")
-    public ResponseEntity<CodeSession> getSession(@PathVariable String uniqueId) {
+    public ResponseEntity<CodeSession> getSession(
+            @PathVariable String uniqueId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // Polling clients that already have the current version get a 304 from one small query
+        if (ifNoneMatch != null) {
+            SessionETag current = sessionService.getETag(uniqueId);
+            List<SessionETag> known = SessionETag.parse(ifNoneMatch);
+            if (known == null || known.contains(current)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current.header()).build();
+            }
+        }
 
-        CodeSession session = sessionService.getSessionByUniqueId(uniqueId);
+        CodeSession session = sessionService.getSessionWithCode(uniqueId);
         if (session.getPendingRequests() == null) {
             session.setPendingRequests(new HashSet<>());
         }
@@ -65,62 +85,91 @@ public class SessionController {
         if (session.getBlockedUsers() == null) {
             session.setBlockedUsers(new HashSet<>());
         }
-        return ResponseEntity.ok(session);
+        return withETag(session);
+    }
+
+    // Lightweight reads that leave out the code, the snapshots and anything else not asked for
+
+    @GetMapping("/{uniqueId}/acl")
+    public ResponseEntity<SessionAclDTO> getSessionAcl(
+            @PathVariable String uniqueId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        SessionAclDTO acl = sessionService.getSessionAcl(uniqueId);
+        String eTag = SessionETag.aclHeader(acl.getVersion());
+        if (ifNoneMatch != null && SessionETag.anySession(SessionETag.parse(ifNoneMatch), acl.getVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(acl);
+    }
+
+    @GetMapping("/{uniqueId}/metadata")
+    public ResponseEntity<SessionMetadataDTO> getSessionMetadata(@PathVariable String uniqueId) {
+        return ResponseEntity.ok(sessionService.getSessionMetadata(uniqueId));
+    }
+
+    @GetMapping("/{uniqueId}/content")
+    public ResponseEntity<SessionContentDTO> getSessionContent(@PathVariable String uniqueId) {
+        return ResponseEntity.ok(sessionService.getSessionContent(uniqueId));
     }
 
     @PutMapping("/{uniqueId}")
-    public ResponseEntity<CodeSession> updateSession(
+    public ResponseEntity<Void> updateSession(
             @PathVariable String uniqueId,
-            @RequestBody CodeUpdateRequest request) {
+            @RequestBody CodeUpdateRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        CodeSession updatedSession = sessionService.updateSessionCode(uniqueId, request.getCodeContent());
-        return ResponseEntity.ok(updatedSession);
+        sessionService.updateSessionCode(uniqueId, request.getCodeContent(), SessionETag.parse(ifMatch));
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/{uniqueId}/block/{usernameToBlock}")
     public ResponseEntity<CodeSession> blockUser(
             @PathVariable String uniqueId,
             @PathVariable String usernameToBlock,
-            @RequestHeader("X-Authenticated-Username") String ownerUsername) {
+            @RequestHeader("X-Authenticated-Username") String ownerUsername,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        CodeSession updatedSession = sessionService.blockUser(uniqueId, ownerUsername, usernameToBlock);
-        return ResponseEntity.ok(updatedSession);
+        CodeSession updatedSession = sessionService.blockUser(uniqueId, ownerUsername, usernameToBlock, SessionETag.parse(ifMatch));
+        return withETag(updatedSession);
     }
 
     @DeleteMapping("/{uniqueId}/block/{usernameToUnblock}")
     public ResponseEntity<CodeSession> unblockUser(
             @PathVariable String uniqueId,
             @PathVariable String usernameToUnblock,
-            @RequestHeader("X-Authenticated-Username") String ownerUsername) {
+            @RequestHeader("X-Authenticated-Username") String ownerUsername,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        CodeSession updatedSession = sessionService.unblockUser(uniqueId, ownerUsername, usernameToUnblock);
-        return ResponseEntity.ok(updatedSession);
+        CodeSession updatedSession = sessionService.unblockUser(uniqueId, ownerUsername, usernameToUnblock, SessionETag.parse(ifMatch));
+        return withETag(updatedSession);
     }
 
     @PostMapping("/{uniqueId}/participants")
     public ResponseEntity<CodeSession> joinSession(
             @PathVariable String uniqueId,
-            @RequestHeader("X-Authenticated-Username") String username) {
+            @RequestHeader("X-Authenticated-Username") String username,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        CodeSession updatedSession = sessionService.addParticipant(uniqueId, username);
-        return ResponseEntity.ok(updatedSession);
+        CodeSession updatedSession = sessionService.addParticipant(uniqueId, username, SessionETag.parse(ifMatch));
+        return withETag(updatedSession);
     }
 
     @PostMapping("/{uniqueId}/snapshots")
-    public ResponseEntity<CodeSession> saveSnapshot(
+    public ResponseEntity<SnapshotSummaryDTO> saveSnapshot(
             @PathVariable String uniqueId,
             @RequestHeader("X-Authenticated-Username") String ownerUsername) {
 
-        return ResponseEntity.ok(sessionService.saveSnapshot(uniqueId, ownerUsername));
+        return ResponseEntity.status(HttpStatus.CREATED).body(sessionService.saveSnapshot(uniqueId, ownerUsername));
     }
 
     @PostMapping("/{uniqueId}/revert/{snapshotId}")
     public ResponseEntity<CodeSession> revertToSnapshot(
             @PathVariable String uniqueId,
             @PathVariable Long snapshotId,
-            @RequestHeader("X-Authenticated-Username") String ownerUsername) {
+            @RequestHeader("X-Authenticated-Username") String ownerUsername,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        return ResponseEntity.ok(sessionService.revertToSnapshot(uniqueId, ownerUsername, snapshotId));
+        return withETag(sessionService.revertToSnapshot(uniqueId, ownerUsername, snapshotId, SessionETag.parse(ifMatch)));
     }
 
     @PutMapping("/{uniqueId}/permissions/{username}")
@@ -128,26 +177,34 @@ public class SessionController {
             @PathVariable String uniqueId,
             @PathVariable String username,
             @RequestBody Map<String, Role> roleRequest,
-            @RequestHeader("X-Authenticated-Username") String ownerUsername) {
+            @RequestHeader("X-Authenticated-Username") String ownerUsername,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         Role newRole = roleRequest.get("role");
-        return ResponseEntity.ok(sessionService.changeUserRole(uniqueId, ownerUsername, username, newRole));
+        return withETag(sessionService.changeUserRole(uniqueId, ownerUsername, username, newRole, SessionETag.parse(ifMatch)));
     }
 
     @PostMapping("/{uniqueId}/leave")
     public ResponseEntity<CodeSession> leaveSession(
             @PathVariable String uniqueId,
-            @RequestHeader("X-Authenticated-Username") String username) {
+            @RequestHeader("X-Authenticated-Username") String username,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        return ResponseEntity.ok(sessionService.leaveSession(uniqueId, username));
+        return withETag(sessionService.leaveSession(uniqueId, username, SessionETag.parse(ifMatch)));
     }
 
     @DeleteMapping("/{uniqueId}")
     public ResponseEntity<Void> deleteSession(
             @PathVariable String uniqueId,
-            @RequestHeader("X-Authenticated-Username") String username) {
+            @RequestHeader("X-Authenticated-Username") String username,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        sessionService.deleteSession(uniqueId, username);
+        sessionService.deleteSession(uniqueId, username, SessionETag.parse(ifMatch));
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    // Versions as committed; the code's is read here if the request did not load it
+    private static ResponseEntity<CodeSession> withETag(CodeSession session) {
+        return ResponseEntity.ok().eTag(SessionETag.of(session).header()).body(session);
+    }
+}
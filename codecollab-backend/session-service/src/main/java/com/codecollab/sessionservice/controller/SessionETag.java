@@ -0,0 +1,67 @@
+package com.codecollab.sessionservice.controller;
+
+import com.codecollab.sessionservice.model.CodeSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entity tag of a session, {@code "<session version>.<code version>"}. A conditional write is
+ * checked only against the part it changes, so saving the code does not fail a membership
+ * change made with a tag from before it, and vice versa.
+ */
+public record SessionETag(long sessionVersion, long contentVersion) {
+
+    public static SessionETag of(CodeSession session) {
+        return new SessionETag(session.getVersion(), session.getContent() != null ? session.getContent().getVersion() : 0);
+    }
+
+    /**
+     * The tags listed in an If-Match or If-None-Match header; null if the header is absent or
+     * {@code *}, which any version matches. Tags not in this format match nothing.
+     */
+    public static List<SessionETag> parse(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        List<SessionETag> tags = new ArrayList<>();
+        for (String part : header.split(",")) {
+            String tag = part.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+            String[] versions = tag.substring(1, tag.length() - 1).split("\\.");
+            try {
+                if (versions.length == 2) {
+                    tags.add(new SessionETag(Long.parseLong(versions[0]), Long.parseLong(versions[1])));
+                } else if (versions.length == 1) {
+                    // The ACL's tag, which is the session version alone
+                    tags.add(new SessionETag(Long.parseLong(versions[0]), -1));
+                }
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        return tags;
+    }
+
+    public static boolean anySession(List<SessionETag> tags, long sessionVersion) {
+        return tags == null || tags.stream().anyMatch(tag -> tag.sessionVersion == sessionVersion);
+    }
+
+    public static boolean anyContent(List<SessionETag> tags, long contentVersion) {
+        return tags == null || tags.stream().anyMatch(tag -> tag.contentVersion == contentVersion);
+    }
+
+    // Quoted, as it goes in the ETag header
+    public String header() {
+        return "\"" + sessionVersion + "." + contentVersion + "\"";
+    }
+
+    public static String aclHeader(long sessionVersion) {
+        return "\"" + sessionVersion + "\"";
+    }
+}
@@ -0,0 +1,34 @@
+package com.codecollab.sessionservice.controller;
+
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import com.codecollab.sessionservice.dto.SnapshotPage;
+import com.codecollab.sessionservice.service.SnapshotService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Snapshot history page by page, and the code of one snapshot; saving and reverting are in SessionController
+@RestController
+@RequestMapping("/api/sessions/{uniqueId}/snapshots")
+@RequiredArgsConstructor
+public class SnapshotController {
+
+    private final SnapshotService snapshotService;
+
+    @GetMapping
+    public ResponseEntity<SnapshotPage> listSnapshots(
+            @PathVariable String uniqueId,
+            @RequestHeader("X-Authenticated-Username") String username,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(snapshotService.list(uniqueId, username, beforeId, limit));
+    }
+
+    @GetMapping("/{snapshotId}/content")
+    public ResponseEntity<SessionContentDTO> getSnapshotContent(
+            @PathVariable String uniqueId,
+            @PathVariable Long snapshotId,
+            @RequestHeader("X-Authenticated-Username") String username) {
+        return ResponseEntity.ok(snapshotService.getContent(uniqueId, username, snapshotId));
+    }
+}
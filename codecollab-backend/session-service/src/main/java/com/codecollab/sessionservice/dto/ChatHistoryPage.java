@@ -0,0 +1,18 @@
+package com.codecollab.sessionservice.dto;
+
+import com.codecollab.sessionservice.model.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of chat history, oldest message first. Ask for the next (older) page with the
+// sentAt and messageId of the first message.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistoryPage {
+    private List<ChatMessage> messages;
+    private boolean hasMore;
+}
@@ -0,0 +1,14 @@
+package com.codecollab.sessionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// New content for a session's live document in collaboration-service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplaceDocumentRequest {
+    private String username;
+    private String codeContent;
+}
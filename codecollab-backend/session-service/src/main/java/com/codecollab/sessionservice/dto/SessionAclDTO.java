@@ -0,0 +1,25 @@
+package com.codecollab.sessionservice.dto;
+
+import com.codecollab.sessionservice.model.Role;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.Set;
+
+// Who may do what in a session; all collaboration-service needs to authorize a connection
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionAclDTO {
+    private String uniqueId;
+    private String ownerUsername;
+    @JsonProperty("isPrivate")
+    private boolean isPrivate;
+    private Map<String, Role> participants;
+    private Set<String> blockedUsers;
+    // The session version these were read at; the /acl ETag
+    private long version;
+}
@@ -0,0 +1,12 @@
+package com.codecollab.sessionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionContentDTO {
+    private String codeContent;
+}
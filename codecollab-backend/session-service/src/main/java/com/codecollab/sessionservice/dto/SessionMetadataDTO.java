@@ -0,0 +1,17 @@
+package com.codecollab.sessionservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionMetadataDTO {
+    private String uniqueId;
+    private String ownerUsername;
+    @JsonProperty("isPrivate")
+    private boolean isPrivate;
+    private String language;
+}
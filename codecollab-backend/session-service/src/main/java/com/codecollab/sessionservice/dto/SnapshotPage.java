@@ -0,0 +1,17 @@
+package com.codecollab.sessionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of a session's snapshots, newest first. Ask for the next (older) page with the
+// id of the last snapshot as beforeId.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotPage {
+    private List<SnapshotSummaryDTO> snapshots;
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.codecollab.sessionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A snapshot without its code; size is the code's length in characters (null if not recorded)
+// and author is null for automatic snapshots
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotSummaryDTO {
+    private Long id;
+    private LocalDateTime timestamp;
+    private Integer size;
+    private String author;
+    private boolean automatic;
+}
@@ -0,0 +1,5 @@
+package com.codecollab.sessionservice.event;
+
+// Published whenever a message is written to the outbox, so the relay can deliver it right after commit
+public record OutboxMessageQueuedEvent() {
+}
@@ -0,0 +1,20 @@
+package com.codecollab.sessionservice.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Another request changed the same session (or its code) between this one reading and writing it
+@Slf4j
+@RestControllerAdvice
+public class ConcurrentUpdateHandler {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> onConcurrentUpdate(OptimisticLockingFailureException e) {
+        log.debug("Rejected a concurrent update: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("The session was changed concurrently; reload it and retry.");
+    }
+}
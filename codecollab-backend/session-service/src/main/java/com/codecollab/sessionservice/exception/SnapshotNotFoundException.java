@@ -0,0 +1,12 @@
+package com.codecollab.sessionservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class SnapshotNotFoundException extends RuntimeException {
+
+    public SnapshotNotFoundException(String message) {
+        super(message);
+    }
+}
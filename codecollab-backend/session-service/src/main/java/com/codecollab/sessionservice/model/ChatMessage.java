@@ -0,0 +1,39 @@
+package com.codecollab.sessionservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_chat_message_session_sent", columnList = "sessionId, sentAt, messageId"))
+public class ChatMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+
+    // Assigned by collaboration-service when the message is sent; makes retried writes idempotent
+    @Column(nullable = false, unique = true)
+    private String messageId;
+
+    @Column(nullable = false)
+    private String sessionId; // The uniqueId of the CodeSession
+
+    private String sender;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    private String type;
+
+    // Epoch millis, set by collaboration-service; history is ordered by (sentAt, messageId)
+    private long sentAt;
+}
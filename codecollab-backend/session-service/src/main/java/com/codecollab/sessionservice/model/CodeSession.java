@@ -1,11 +1,15 @@
 package com.codecollab.sessionservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.*;
 
@@ -24,9 +28,25 @@ public class CodeSession {
     @Column(unique = true, nullable = false)
     private String uniqueId; // This will be the user-facing ID for the session URL
 
-    @Column(columnDefinition = "TEXT") // Use TEXT type for potentially large code blocks
+    // Filled in by SessionService for responses that carry the code; the stored copy is a blob
+    @Transient
     private String codeContent;
 
+    // Loaded only when the code is read; see SessionContent
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "content_id")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private SessionContent content;
+
+    // Bumped by every change to the session, its collections or its comments, but not its code
+    // (SessionContent has its own); together they make the session's ETag
+    @Version
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long version;
+
     private String ownerUsername;
 
     @JsonProperty("isPrivate")
@@ -34,25 +54,28 @@ public class CodeSession {
 
     private String language;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // Lazy, so that loading a session does not join all three collections into one
+    // cartesian product; each is read with its own query when first used
+    @ElementCollection
     @CollectionTable(name = "session_participants")
     @MapKeyColumn(name = "username")
     @Enumerated(EnumType.STRING)
     @Builder.Default
     private Map<String, Role> participants = new HashMap<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @CollectionTable(name = "session_pending_requests")
     @Builder.Default
     private Set<String> pendingRequests = new HashSet<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @Builder.Default
     private Set<String> blockedUsers = new HashSet<>();
 
     @OneToMany(mappedBy = "codeSession", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("timestamp DESC") // Show the newest snapshots first
     @Builder.Default
+    @JsonIgnore // Listed page by page through /snapshots instead
     private List<Snapshot> history = new ArrayList<>();
 
     @OneToMany(mappedBy = "codeSession", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -65,4 +88,4 @@ public class CodeSession {
         this.ownerUsername = ownerUsername;
     }
 
-}
\ No newline at end of file
+}
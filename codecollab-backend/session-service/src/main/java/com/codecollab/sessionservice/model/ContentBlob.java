@@ -0,0 +1,37 @@
+package com.codecollab.sessionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Content stored once per distinct value, keyed by the SHA-256 of its uncompressed bytes, with
+ * a count of the rows that reference it. Written through {@code BlobStore}, never directly.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "content_blobs", indexes = @Index(name = "idx_content_blob_released", columnList = "releasedAt"))
+public class ContentBlob {
+
+    // Lower-case hex
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // Uncompressed bytes
+    private long size;
+
+    private int refCount;
+
+    // Epoch millis at which refCount dropped to 0; collected once it has been 0 for a while
+    private Long releasedAt;
+
+    // Deflated content; null when the blobs are kept on the filesystem
+    @Column(columnDefinition = "bytea")
+    private byte[] data;
+}
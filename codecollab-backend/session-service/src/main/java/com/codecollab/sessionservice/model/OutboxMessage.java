@@ -0,0 +1,51 @@
+package com.codecollab.sessionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A call to collaboration-service, stored in the same transaction as the change that caused
+ * it and delivered by {@code OutboxRelay} once that transaction has committed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_message_due", columnList = "nextAttemptAt, id"))
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    // Username for NOTIFY_USER, session uniqueId otherwise
+    @Column(nullable = false)
+    private String target;
+
+    // NotificationDTO or ReplaceDocumentRequest as JSON; null for INVALIDATE_PERMISSIONS
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    // Epoch millis
+    private long createdAt;
+
+    // Epoch millis; a relay that claims the message pushes this forward while delivering it
+    private long nextAttemptAt;
+
+    private int attempts;
+
+    public enum Type {
+        NOTIFY_USER,
+        BROADCAST_TO_SESSION,
+        INVALIDATE_PERMISSIONS,
+        REPLACE_DOCUMENT
+    }
+}
@@ -0,0 +1,39 @@
+package com.codecollab.sessionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * The code of a session, kept out of {@code code_sessions} so that loading a session for its
+ * owner, members or settings never reads it. {@link CodeSession} references it lazily; the code
+ * itself is a blob in {@code BlobStore}, shared with any snapshot of the same code.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "session_contents", indexes = @Index(name = "idx_session_content_modified", columnList = "modifiedAt"))
+public class SessionContent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 of the code; holds one reference to the blob
+    @Column(length = 64)
+    private String blobHash;
+
+    // Epoch millis of the last change to the code; null until it first changes. Lets the
+    // autosnapshotter find changed sessions without comparing every session's hash
+    private Long modifiedAt;
+
+    // Bumped by every change to the code, so concurrent writers cannot both replace it
+    @Version
+    @ColumnDefault("0")
+    private long version;
+}
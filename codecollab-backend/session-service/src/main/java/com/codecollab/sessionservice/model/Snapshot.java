@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_snapshot_session", columnList = "code_session_id, id"))
 public class Snapshot {
 
     @Id
@@ -23,9 +25,48 @@ public class Snapshot {
     @CreationTimestamp // Automatically set the timestamp when created
     private LocalDateTime timestamp;
 
+    // Who saved it; null for automatic snapshots and those from before it was recorded
+    private String author;
+
+    // Taken by AutoSnapshotter rather than saved by the owner; only these are thinned out
+    @ColumnDefault("false")
+    private boolean automatic;
+
+    // Length of the code in characters; null for snapshots from before it was recorded
+    private Integer codeLength;
+
+    // Full copy of the code; only snapshots taken before delta storage have it
     @Column(columnDefinition = "TEXT")
     private String codeContent;
 
+    // Deflated keyframe or delta, stored inline by snapshots taken before the blob store
+    @Column(columnDefinition = "bytea")
+    @JsonIgnore
+    private byte[] data;
+
+    // The code (keyframe) or line delta against baseSnapshotId (see SnapshotCodec) in BlobStore
+    @Column(length = 64)
+    @JsonIgnore
+    private String blobHash;
+
+    // SHA-256 of the code this snapshot holds, whichever way it is stored
+    @Column(length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    @ColumnDefault("false")
+    @JsonIgnore
+    private boolean keyframe;
+
+    // The snapshot a delta applies to; a plain id, so deleting snapshots never trips a constraint
+    @JsonIgnore
+    private Long baseSnapshotId;
+
+    // Deltas between this snapshot and its keyframe, which is 0
+    @ColumnDefault("0")
+    @JsonIgnore
+    private int depth;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "code_session_id")
     @JsonIgnore // Prevents infinite loops when serializing to JSON
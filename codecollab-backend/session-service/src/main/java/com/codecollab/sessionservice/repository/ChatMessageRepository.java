@@ -0,0 +1,35 @@
+package com.codecollab.sessionservice.repository;
+
+import com.codecollab.sessionservice.model.ChatMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+
+    // Newest first
+    List<ChatMessage> findBySessionIdOrderBySentAtDescMessageIdDesc(String sessionId, Limit limit);
+
+    // Keyset page: the messages just before (sentAt, messageId), newest first
+    @Query("SELECT m FROM ChatMessage m WHERE m.sessionId = :sessionId"
+            + " AND (m.sentAt < :sentAt OR (m.sentAt = :sentAt AND m.messageId < :messageId))"
+            + " ORDER BY m.sentAt DESC, m.messageId DESC")
+    List<ChatMessage> findBefore(@Param("sessionId") String sessionId,
+                                 @Param("sentAt") long sentAt,
+                                 @Param("messageId") String messageId,
+                                 Limit limit);
+
+    @Query("SELECT m.messageId FROM ChatMessage m WHERE m.messageId IN :messageIds")
+    List<String> findExistingMessageIds(@Param("messageIds") Collection<String> messageIds);
+
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+}
@@ -1,12 +1,66 @@
 package com.codecollab.sessionservice.repository;
 
+import com.codecollab.sessionservice.controller.SessionETag;
+import com.codecollab.sessionservice.dto.SessionMetadataDTO;
 import com.codecollab.sessionservice.model.CodeSession;
+import com.codecollab.sessionservice.model.SessionContent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CodeSessionRepository extends JpaRepository<CodeSession, Long> {
     Optional<CodeSession> findByUniqueId(String uniqueId);
+
+    // The session's content row, without loading the session and its collections
+    @Query("SELECT s.content FROM CodeSession s WHERE s.uniqueId = :uniqueId")
+    Optional<SessionContent> findContentRow(@Param("uniqueId") String uniqueId);
+
+    // The projections below never read the code or the snapshots
+
+    @Query("SELECT new com.codecollab.sessionservice.dto.SessionMetadataDTO(s.uniqueId, s.ownerUsername, s.isPrivate, s.language)"
+            + " FROM CodeSession s WHERE s.uniqueId = :uniqueId")
+    Optional<SessionMetadataDTO> findMetadata(@Param("uniqueId") String uniqueId);
+
+    // Rows of [username, Role]
+    @Query("SELECT KEY(p), VALUE(p) FROM CodeSession s JOIN s.participants p WHERE s.uniqueId = :uniqueId")
+    List<Object[]> findParticipantRoles(@Param("uniqueId") String uniqueId);
+
+    @Query("SELECT b FROM CodeSession s JOIN s.blockedUsers b WHERE s.uniqueId = :uniqueId")
+    List<String> findBlockedUsers(@Param("uniqueId") String uniqueId);
+
+    @Query("SELECT c.blobHash FROM CodeSession s JOIN s.content c WHERE s.uniqueId = :uniqueId")
+    Optional<String> findContentHash(@Param("uniqueId") String uniqueId);
+
+    @Query("SELECT s.version FROM CodeSession s WHERE s.uniqueId = :uniqueId")
+    Optional<Long> findVersion(@Param("uniqueId") String uniqueId);
+
+    @Query("SELECT new com.codecollab.sessionservice.controller.SessionETag(s.version, c.version)"
+            + " FROM CodeSession s JOIN s.content c WHERE s.uniqueId = :uniqueId")
+    Optional<SessionETag> findETag(@Param("uniqueId") String uniqueId);
+
+    // For changes to rows that hang off the session (comments) but are part of its representation
+    @Modifying
+    @Query("UPDATE CodeSession s SET s.version = s.version + 1 WHERE s.id = :id")
+    int incrementVersion(@Param("id") Long id);
+
+    @Query("SELECT s.id FROM CodeSession s WHERE s.uniqueId = :uniqueId")
+    Optional<Long> findIdByUniqueId(@Param("uniqueId") String uniqueId);
+
+    @Query("SELECT c.blobHash FROM CodeSession s JOIN s.content c WHERE s.id = :id")
+    Optional<String> findContentHashById(@Param("id") Long id);
+
+    // Keyset chunk of the sessions whose code changed since the given time and differs from
+    // their latest snapshot (or that have none)
+    @Query(value = "SELECT cs.id FROM code_sessions cs JOIN session_contents sc ON sc.id = cs.content_id"
+            + " WHERE sc.modified_at >= :since AND cs.id > :afterId AND sc.blob_hash IS NOT NULL"
+            + " AND sc.blob_hash IS DISTINCT FROM (SELECT s.content_hash FROM snapshot s"
+            + " WHERE s.code_session_id = cs.id ORDER BY s.id DESC LIMIT 1)"
+            + " ORDER BY cs.id LIMIT :limit", nativeQuery = true)
+    List<Long> findChangedSince(@Param("since") long since, @Param("afterId") long afterId, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.codecollab.sessionservice.repository;
+
+import com.codecollab.sessionservice.model.ContentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Reference counts are changed with single UPDATE/upsert statements, so concurrent writers never lose one
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    // Adds references to a blob that is still referenced; 0 if it is unknown or waiting to be collected
+    @Modifying
+    @Query(value = "UPDATE content_blobs SET ref_count = ref_count + :count WHERE hash = :hash AND ref_count > 0",
+            nativeQuery = true)
+    int retainLive(@Param("hash") String hash, @Param("count") int count);
+
+    @Modifying
+    @Query(value = "INSERT INTO content_blobs (hash, size, ref_count, released_at, data) VALUES (:hash, :size, 1, NULL, :data)"
+            + " ON CONFLICT (hash) DO UPDATE SET ref_count = content_blobs.ref_count + 1, released_at = NULL",
+            nativeQuery = true)
+    int upsertWithData(@Param("hash") String hash, @Param("size") long size, @Param("data") byte[] data);
+
+    @Modifying
+    @Query(value = "INSERT INTO content_blobs (hash, size, ref_count, released_at) VALUES (:hash, :size, 1, NULL)"
+            + " ON CONFLICT (hash) DO UPDATE SET ref_count = content_blobs.ref_count + 1, released_at = NULL",
+            nativeQuery = true)
+    int upsertWithoutData(@Param("hash") String hash, @Param("size") long size);
+
+    @Modifying
+    @Query(value = "UPDATE content_blobs SET ref_count = ref_count - :count,"
+            + " released_at = CASE WHEN ref_count - :count <= 0 THEN :now ELSE released_at END WHERE hash = :hash",
+            nativeQuery = true)
+    int release(@Param("hash") String hash, @Param("count") int count, @Param("now") long now);
+
+    @Query("SELECT b.data FROM ContentBlob b WHERE b.hash = :hash")
+    Optional<byte[]> findData(@Param("hash") String hash);
+
+    // Locks unreferenced blobs released before the cutoff; rows another collector holds are skipped
+    @Query(value = "SELECT hash FROM content_blobs WHERE ref_count <= 0 AND released_at < :cutoff"
+            + " ORDER BY released_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> lockCollectable(@Param("cutoff") long cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM ContentBlob b WHERE b.hash IN :hashes")
+    int deleteByHashes(@Param("hashes") Collection<String> hashes);
+}
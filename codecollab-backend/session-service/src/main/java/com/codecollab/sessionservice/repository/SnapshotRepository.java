@@ -1,7 +1,56 @@
 package com.codecollab.sessionservice.repository;
 
+import com.codecollab.sessionservice.dto.SnapshotSummaryDTO;
 import com.codecollab.sessionservice.model.Snapshot;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface SnapshotRepository extends JpaRepository<Snapshot, Long> {
-}
\ No newline at end of file
+
+    Optional<Snapshot> findFirstByCodeSessionIdOrderByIdDesc(Long codeSessionId);
+
+    @Query("SELECT s.blobHash FROM Snapshot s WHERE s.codeSession.id = :codeSessionId AND s.blobHash IS NOT NULL")
+    List<String> findBlobHashes(@Param("codeSessionId") Long codeSessionId);
+
+    // Newest first; ids grow with time, so they order snapshots like their timestamps
+    @Query("SELECT new com.codecollab.sessionservice.dto.SnapshotSummaryDTO(s.id, s.timestamp, s.codeLength, s.author, s.automatic)"
+            + " FROM Snapshot s WHERE s.codeSession.uniqueId = :uniqueId ORDER BY s.id DESC")
+    List<SnapshotSummaryDTO> findSummaries(@Param("uniqueId") String uniqueId, Limit limit);
+
+    // Keyset page: the snapshots just before beforeId, newest first
+    @Query("SELECT new com.codecollab.sessionservice.dto.SnapshotSummaryDTO(s.id, s.timestamp, s.codeLength, s.author, s.automatic)"
+            + " FROM Snapshot s WHERE s.codeSession.uniqueId = :uniqueId AND s.id < :beforeId ORDER BY s.id DESC")
+    List<SnapshotSummaryDTO> findSummariesBefore(@Param("uniqueId") String uniqueId,
+                                                 @Param("beforeId") long beforeId,
+                                                 Limit limit);
+
+    @Query("SELECT s FROM Snapshot s WHERE s.id = :id AND s.codeSession.uniqueId = :uniqueId")
+    Optional<Snapshot> findInSession(@Param("uniqueId") String uniqueId, @Param("id") Long id);
+
+    // Deltas applied to the given snapshot
+    List<Snapshot> findByBaseSnapshotId(Long baseSnapshotId);
+
+    // All of a session's snapshots, newest first, for the retention job
+    @Query("SELECT new com.codecollab.sessionservice.dto.SnapshotSummaryDTO(s.id, s.timestamp, s.codeLength, s.author, s.automatic)"
+            + " FROM Snapshot s WHERE s.codeSession.id = :codeSessionId ORDER BY s.id DESC")
+    List<SnapshotSummaryDTO> findAllSummaries(@Param("codeSessionId") Long codeSessionId);
+
+    // Keyset chunk of the sessions that have automatic snapshots
+    @Query("SELECT DISTINCT s.codeSession.id FROM Snapshot s WHERE s.automatic = true AND s.codeSession.id > :afterId"
+            + " ORDER BY s.codeSession.id")
+    List<Long> findSessionsWithAutomaticSnapshots(@Param("afterId") long afterId, Limit limit);
+
+    // Serializes changes to one session's snapshot history (deltas refer to other snapshots)
+    // until the transaction ends. Keyed by the session id; nothing else takes advisory locks
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:codeSessionId)) l", nativeQuery = true)
+    int lockHistory(@Param("codeSessionId") long codeSessionId);
+
+    // As lockHistory, but returns false at once if another transaction holds the lock
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:codeSessionId)", nativeQuery = true)
+    boolean tryLockHistory(@Param("codeSessionId") long codeSessionId);
+}
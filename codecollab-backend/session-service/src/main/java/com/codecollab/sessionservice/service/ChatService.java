@@ -0,0 +1,80 @@
+package com.codecollab.sessionservice.service;
+
+import com.codecollab.sessionservice.dto.ChatHistoryPage;
+import com.codecollab.sessionservice.exception.UnauthorizedException;
+import com.codecollab.sessionservice.model.ChatMessage;
+import com.codecollab.sessionservice.repository.ChatMessageRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final SessionService sessionService;
+
+    /**
+     * Stores a batch written by collaboration-service. Messages already stored (a retry after
+     * a lost response) are skipped.
+     */
+    @Transactional
+    public int saveBatch(List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        Set<String> existing = new HashSet<>(chatMessageRepository.findExistingMessageIds(
+                messages.stream().map(ChatMessage::getMessageId).collect(Collectors.toSet())));
+        List<ChatMessage> fresh = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (existing.add(message.getMessageId())) {
+                message.setId(null);
+                fresh.add(message);
+            }
+        }
+        chatMessageRepository.saveAll(fresh);
+        log.debug("Stored {} chat message(s), skipped {} duplicate(s)", fresh.size(), messages.size() - fresh.size());
+        return fresh.size();
+    }
+
+    public ChatHistoryPage getRecent(String uniqueId, int limit) {
+        return page(chatMessageRepository.findBySessionIdOrderBySentAtDescMessageIdDesc(uniqueId, Limit.of(clamp(limit) + 1)), limit);
+    }
+
+    public ChatHistoryPage getHistory(String uniqueId, String username, Long beforeSentAt, String beforeMessageId, int limit) {
+        // Security Check: only participants may read a session's chat.
+        if (!sessionService.getSessionAcl(uniqueId).getParticipants().containsKey(username)) {
+            throw new UnauthorizedException("Only participants can read this session's chat.");
+        }
+        if (beforeSentAt == null || beforeMessageId == null) {
+            return getRecent(uniqueId, limit);
+        }
+        return page(chatMessageRepository.findBefore(uniqueId, beforeSentAt, beforeMessageId, Limit.of(clamp(limit) + 1)), limit);
+    }
+
+    // One row more than asked for tells whether an older page exists
+    private static ChatHistoryPage page(List<ChatMessage> newestFirst, int limit) {
+        int size = clamp(limit);
+        boolean hasMore = newestFirst.size() > size;
+        List<ChatMessage> messages = new ArrayList<>(hasMore ? newestFirst.subList(0, size) : newestFirst);
+        Collections.reverse(messages);
+        return new ChatHistoryPage(messages, hasMore);
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,71 @@
+package com.codecollab.sessionservice.service;
+
+import com.codecollab.sessionservice.dto.NotificationDTO;
+import com.codecollab.sessionservice.dto.ReplaceDocumentRequest;
+import com.codecollab.sessionservice.event.OutboxMessageQueuedEvent;
+import com.codecollab.sessionservice.model.OutboxMessage;
+import com.codecollab.sessionservice.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+/**
+ * Queues calls to collaboration-service as part of the caller's transaction. They are only
+ * sent if that transaction commits, and a slow or unavailable collaboration-service delays
+ * the {@link OutboxRelay}, never the request that made the change.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationOutbox {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Sends a notification to one user's private queue
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void notifyUser(String username, NotificationDTO notification) {
+        enqueue(OutboxMessage.Type.NOTIFY_USER, username, toJson(notification));
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void broadcastToSession(String uniqueId, NotificationDTO notification) {
+        enqueue(OutboxMessage.Type.BROADCAST_TO_SESSION, uniqueId, toJson(notification));
+    }
+
+    // Participants, roles or the blocked list changed; collaboration-service drops its cached copy
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void invalidatePermissions(String uniqueId) {
+        enqueue(OutboxMessage.Type.INVALIDATE_PERMISSIONS, uniqueId, null);
+    }
+
+    // The code was replaced here; collaboration-service puts it into the live document, which
+    // would otherwise write its own content back over it
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void replaceDocument(String uniqueId, String username, String code) {
+        enqueue(OutboxMessage.Type.REPLACE_DOCUMENT, uniqueId, toJson(new ReplaceDocumentRequest(username, code)));
+    }
+
+    private void enqueue(OutboxMessage.Type type, String target, String payload) {
+        long now = System.currentTimeMillis();
+        outboxMessageRepository.save(OutboxMessage.builder()
+                .type(type)
+                .target(target)
+                .payload(payload)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
+        eventPublisher.publishEvent(new OutboxMessageQueuedEvent());
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.codecollab.sessionservice.service;
+
+import com.codecollab.sessionservice.client.CollaborationServiceClient;
+import com.codecollab.sessionservice.dto.NotificationDTO;
+import com.codecollab.sessionservice.dto.ReplaceDocumentRequest;
+import com.codecollab.sessionservice.event.OutboxMessageQueuedEvent;
+import com.codecollab.sessionservice.model.OutboxMessage;
+import com.codecollab.sessionservice.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers the outbox to collaboration-service in the background, one run at a time, right after
+ * the transaction that queued a message commits and otherwise every poll interval.
+ * <p>
+ * Messages are claimed in batches: a short transaction locks the oldest due rows (skipping rows
+ * another instance holds) and leases them by moving their next attempt forward, the calls are
+ * made with no transaction open, and a second short transaction deletes what was delivered.
+ * A failed message is retried with exponential backoff until it runs out of attempts; the rest
+ * of its batch is put back untried, since collaboration-service is most likely unreachable.
+ * Delivery is at least once: an instance that dies mid-batch leaves its lease to expire.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final CollaborationServiceClient collaborationServiceClient;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
+    private final ReentrantLock running = new ReentrantLock();
+
+    @Value("${session.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${session.outbox.lease-ms:60000}")
+    private long leaseMillis;
+
+    @Value("${session.outbox.retry-base-ms:1000}")
+    private long retryBaseMillis;
+
+    @Value("${session.outbox.retry-max-ms:300000}")
+    private long retryMaxMillis;
+
+    @Value("${session.outbox.max-attempts:15}")
+    private int maxAttempts;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository,
+                       CollaborationServiceClient collaborationServiceClient,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager,
+                       TaskScheduler taskScheduler) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.collaborationServiceClient = collaborationServiceClient;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskScheduler = taskScheduler;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageQueued(OutboxMessageQueuedEvent event) {
+        // Many commits in a burst share one run
+        if (wakeQueued.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                wakeQueued.set(false);
+                relay();
+            }, Instant.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${session.outbox.poll-interval-ms:1000}",
+            initialDelayString = "${session.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        // A wake-up during a run waits for it, then picks up what the run did not see
+        running.lock();
+        try {
+            while (relayBatch()) {
+                // A full batch went through; there may be more due
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed: {}", e.getMessage());
+        } finally {
+            running.unlock();
+        }
+    }
+
+    // True if the batch was full and delivered without failures
+    private boolean relayBatch() {
+        long now = System.currentTimeMillis();
+        List<OutboxMessage> batch = transactionTemplate.execute(status -> {
+            List<OutboxMessage> due = outboxMessageRepository.findDue(now, Limit.of(batchSize));
+            due.forEach(message -> message.setNextAttemptAt(now + leaseMillis));
+            return due;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return false;
+        }
+
+        List<Long> finished = new ArrayList<>();
+        List<OutboxMessage> retried = new ArrayList<>();
+        Set<String> invalidated = new HashSet<>();
+        Long retryAt = null;
+        for (OutboxMessage message : batch) {
+            if (retryAt != null) {
+                message.setNextAttemptAt(retryAt);
+                retried.add(message);
+                continue;
+            }
+            // Several changes to one session's permissions need only one invalidation
+            if (message.getType() == OutboxMessage.Type.INVALIDATE_PERMISSIONS && !invalidated.add(message.getTarget())) {
+                finished.add(message.getId());
+                continue;
+            }
+            try {
+                deliver(message);
+                finished.add(message.getId());
+            } catch (RuntimeException e) {
+                message.setAttempts(message.getAttempts() + 1);
+                if (message.getAttempts() >= maxAttempts) {
+                    log.warn("Dropping {} for '{}' after {} attempts: {}",
+                            message.getType(), message.getTarget(), message.getAttempts(), e.getMessage());
+                    finished.add(message.getId());
+                    continue;
+                }
+                retryAt = System.currentTimeMillis() + backoff(message.getAttempts());
+                message.setNextAttemptAt(retryAt);
+                retried.add(message);
+                log.info("Could not deliver {} for '{}' (attempt {}), retrying in {} ms: {}",
+                        message.getType(), message.getTarget(), message.getAttempts(),
+                        retryAt - System.currentTimeMillis(), e.getMessage());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!finished.isEmpty()) {
+                outboxMessageRepository.deleteByIds(finished);
+            }
+            outboxMessageRepository.saveAll(retried);
+        });
+        log.debug("Relayed outbox batch: {} done, {} to retry", finished.size(), retried.size());
+        return retried.isEmpty() && batch.size() == batchSize;
+    }
+
+    private void deliver(OutboxMessage message) {
+        switch (message.getType()) {
+            case NOTIFY_USER -> collaborationServiceClient.notifyOwner(message.getTarget(), notification(message));
+            case BROADCAST_TO_SESSION -> collaborationServiceClient.broadcastToSession(message.getTarget(), notification(message));
+            case INVALIDATE_PERMISSIONS -> collaborationServiceClient.invalidatePermissions(message.getTarget());
+            case REPLACE_DOCUMENT -> collaborationServiceClient.replaceDocument(message.getTarget(),
+                    payload(message, ReplaceDocumentRequest.class));
+        }
+    }
+
+    private NotificationDTO notification(OutboxMessage message) {
+        return payload(message, NotificationDTO.class);
+    }
+
+    private <T> T payload(OutboxMessage message, Class<T> type) {
+        try {
+            return objectMapper.readValue(message.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+    }
+
+    private long backoff(int attempts) {
+        return Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+    }
+}
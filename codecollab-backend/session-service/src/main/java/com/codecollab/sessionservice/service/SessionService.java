@@ -1,27 +1,45 @@
 package com.codecollab.sessionservice.service;
 
 import com.codecollab.sessionservice.SessionServiceApplication;
-import com.codecollab.sessionservice.client.CollaborationServiceClient;
+import com.codecollab.sessionservice.blob.BlobStore;
+import com.codecollab.sessionservice.cache.SessionCache;
 import com.codecollab.sessionservice.controller.CreateSessionRequest;
+import com.codecollab.sessionservice.controller.SessionETag;
 import com.codecollab.sessionservice.dto.NotificationDTO;
+import com.codecollab.sessionservice.dto.SessionAclDTO;
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import com.codecollab.sessionservice.dto.SessionMetadataDTO;
+import com.codecollab.sessionservice.dto.SnapshotSummaryDTO;
+import com.codecollab.sessionservice.exception.PreconditionFailedException;
 import com.codecollab.sessionservice.exception.SessionNotFoundException;
+import com.codecollab.sessionservice.exception.SnapshotNotFoundException;
 import com.codecollab.sessionservice.exception.UnauthorizedException;
 import com.codecollab.sessionservice.model.CodeSession;
 import com.codecollab.sessionservice.model.Comment;
 import com.codecollab.sessionservice.model.CommentStatus;
 import com.codecollab.sessionservice.model.CommentThread;
 import com.codecollab.sessionservice.model.Role;
+import com.codecollab.sessionservice.model.SessionContent;
 import com.codecollab.sessionservice.model.Snapshot;
+import com.codecollab.sessionservice.repository.ChatMessageRepository;
 import com.codecollab.sessionservice.repository.CodeSessionRepository;
 import com.codecollab.sessionservice.repository.CommentRepository;
 import com.codecollab.sessionservice.repository.CommentThreadRepository;
 import com.codecollab.sessionservice.repository.SnapshotRepository;
+import com.codecollab.sessionservice.snapshot.SnapshotStore;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import com.codecollab.sessionservice.dto.NotificationDTO.NotificationType;
 
 import org.springframework.security.access.AccessDeniedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -33,9 +51,13 @@ public class SessionService {
 
     private final CodeSessionRepository codeSessionRepository;
     private final SnapshotRepository snapshotRepository;
-    private final CollaborationServiceClient collaborationServiceClient;
+    private final SnapshotStore snapshotStore;
+    private final BlobStore blobStore;
+    private final NotificationOutbox notificationOutbox;
+    private final SessionCache sessionCache;
     private final CommentThreadRepository commentThreadRepository;
     private final CommentRepository commentRepository;
+    private final ChatMessageRepository chatMessageRepository;
     private static final Logger log = LoggerFactory.getLogger(SessionServiceApplication.class);
 
     @Transactional
@@ -44,6 +66,7 @@ public class SessionService {
 
         CodeSession newSession = CodeSession.builder()
                 .uniqueId(UUID.randomUUID().toString())
+                .content(SessionContent.builder().blobHash(blobStore.put(boilerplate)).build())
                 .codeContent(boilerplate)
                 .ownerUsername(ownerUsername)
                 .isPrivate(request.isPrivate())
@@ -55,31 +78,34 @@ public class SessionService {
     }
 
     @Transactional
-    public void requestToJoin(String uniqueId, String username) {
+    public void requestToJoin(String uniqueId, String username, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
 
         if (session.isPrivate() && !session.getParticipants().containsKey(username)) {
             session.getPendingRequests().add(username);
             codeSessionRepository.save(session);
 
             // --- THIS IS THE TRIGGER ---
-            // After saving the request, call the collaboration-service to send a notification
+            // Queued with the request itself; the outbox relay notifies the owner after commit
             NotificationDTO notification = new NotificationDTO(
                     username,
                     username + " wants to join your session.",
                     NotificationDTO.NotificationType.JOIN_REQUEST
             );
-            collaborationServiceClient.notifyOwner(session.getOwnerUsername(), notification);
+            notificationOutbox.notifyUser(session.getOwnerUsername(), notification);
 
         } else if (!session.isPrivate()) {
             session.getParticipants().put(username, Role.EDITOR);
             codeSessionRepository.save(session);
+            permissionsChanged(uniqueId);
         }
     }
 
     @Transactional
-    public CodeSession approveJoinRequest(String uniqueId, String ownerUsername, String userToApprove) {
+    public CodeSession approveJoinRequest(String uniqueId, String ownerUsername, String userToApprove, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
 
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new UnauthorizedException("Only owner can approve requests");
@@ -88,6 +114,7 @@ public class SessionService {
         session.getPendingRequests().remove(userToApprove);
         session.getParticipants().put(userToApprove, Role.EDITOR);
         codeSessionRepository.save(session);
+        permissionsChanged(uniqueId);
 
 
         NotificationDTO approvalNotification = new NotificationDTO(
@@ -97,9 +124,9 @@ public class SessionService {
         );
 
         // THIS IS CRITICAL: Send to the user who requested to join
-        collaborationServiceClient.notifyOwner(userToApprove, approvalNotification);
+        notificationOutbox.notifyUser(userToApprove, approvalNotification);
 
-        log.info("User {} approved for session {}. Notification sent to {}",
+        log.info("User {} approved for session {}. Notification queued for {}",
                 userToApprove, uniqueId, userToApprove);
 
         return session;
@@ -107,8 +134,9 @@ public class SessionService {
 
 
     @Transactional
-    public CodeSession denyJoinRequest(String uniqueId, String ownerUsername, String userToDeny) {
+    public CodeSession denyJoinRequest(String uniqueId, String ownerUsername, String userToDeny, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
 
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new UnauthorizedException("Only owner can deny requests");
@@ -125,23 +153,26 @@ public class SessionService {
         );
 
         // THIS IS CRITICAL: Send to the user who requested to join
-        collaborationServiceClient.notifyOwner(userToDeny, denialNotification);
+        notificationOutbox.notifyUser(userToDeny, denialNotification);
 
-        log.info("User {} denied for session {}. Notification sent to {}",
+        log.info("User {} denied for session {}. Notification queued for {}",
                 userToDeny, uniqueId, userToDeny);
 
         return session;
     }
 
     @Transactional
-    public CodeSession changeUserRole(String uniqueId, String ownerUsername, String usernameToChange, Role newRole) {
+    public CodeSession changeUserRole(String uniqueId, String ownerUsername, String usernameToChange, Role newRole, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new AccessDeniedException("Only the session owner can change roles.");
         }
         if (session.getParticipants().containsKey(usernameToChange)) {
             session.getParticipants().put(usernameToChange, newRole);
-            return codeSessionRepository.save(session);
+            CodeSession saved = codeSessionRepository.save(session);
+            permissionsChanged(uniqueId);
+            return saved;
         }
         return session;
     }
@@ -150,84 +181,136 @@ public class SessionService {
         CodeSession session = codeSessionRepository.findByUniqueId(uniqueId)
                 .orElseThrow(() -> new SessionNotFoundException("Session not found with ID: " + uniqueId));
 
-        log.info("Session found - ID: {}, Owner: {}, PendingRequests: {}",
-                uniqueId, session.getOwnerUsername(), session.getPendingRequests());
-        log.info("PendingRequests size: {}", session.getPendingRequests().size());
-        log.info("PendingRequests content: {}", session.getPendingRequests());
+        log.debug("Loaded session {} (owner {})", uniqueId, session.getOwnerUsername());
+        return session;
+    }
+
+    public SessionMetadataDTO getSessionMetadata(String uniqueId) {
+        return sessionCache.get(uniqueId, SessionMetadataDTO.class, () -> codeSessionRepository.findMetadata(uniqueId)
+                .orElseThrow(() -> new SessionNotFoundException("Session not found with ID: " + uniqueId)));
+    }
+
+    public SessionAclDTO getSessionAcl(String uniqueId) {
+        return sessionCache.get(uniqueId, SessionAclDTO.class, () -> loadSessionAcl(uniqueId));
+    }
 
+    public SessionContentDTO getSessionContent(String uniqueId) {
+        return sessionCache.get(uniqueId, SessionContentDTO.class, () -> codeSessionRepository.findContentHash(uniqueId)
+                .map(hash -> new SessionContentDTO(blobStore.getString(hash)))
+                .orElseThrow(() -> new SessionNotFoundException("Session not found with ID: " + uniqueId)));
+    }
+
+    // The whole session, with its code
+    public CodeSession getSessionWithCode(String uniqueId) {
+        CodeSession session = getSessionByUniqueId(uniqueId);
+        session.setCodeContent(getSessionContent(uniqueId).getCodeContent());
         return session;
     }
 
-    public CodeSession updateSessionCode(String uniqueId, String newCode) {
-        // First, find the existing session. This will throw an exception if not found.
-        CodeSession sessionToUpdate = getSessionByUniqueId(uniqueId);
+    // The current ETag, from a single row, for answering If-None-Match without loading the session
+    public SessionETag getETag(String uniqueId) {
+        return codeSessionRepository.findETag(uniqueId)
+                .orElseThrow(() -> new SessionNotFoundException("Session not found with ID: " + uniqueId));
+    }
 
-        // Update the content
-        sessionToUpdate.setCodeContent(newCode);
+    // A few small queries instead of loading the whole session
+    private SessionAclDTO loadSessionAcl(String uniqueId) {
+        // Read first: a change landing between the queries then leaves a version older than the
+        // lists, which costs the client a download, rather than newer, which would hide the change
+        long version = codeSessionRepository.findVersion(uniqueId)
+                .orElseThrow(() -> new SessionNotFoundException("Session not found with ID: " + uniqueId));
+        SessionMetadataDTO metadata = getSessionMetadata(uniqueId);
+        Map<String, Role> participants = new HashMap<>();
+        for (Object[] row : codeSessionRepository.findParticipantRoles(uniqueId)) {
+            participants.put((String) row[0], (Role) row[1]);
+        }
+        return new SessionAclDTO(metadata.getUniqueId(), metadata.getOwnerUsername(), metadata.isPrivate(),
+                participants, new HashSet<>(codeSessionRepository.findBlockedUsers(uniqueId)), version);
+    }
 
-        // Save the updated session back to the database
-        return codeSessionRepository.save(sessionToUpdate);
+    @Transactional
+    public void updateSessionCode(String uniqueId, String newCode, List<SessionETag> ifMatch) {
+        // Called by collaboration-service's background flush; touches neither the session nor its collections
+        SessionContent content = codeSessionRepository.findContentRow(uniqueId)
+                .orElseThrow(() -> new SessionNotFoundException("Session not found with ID: " + uniqueId));
+        if (!SessionETag.anyContent(ifMatch, content.getVersion())) {
+            throw new PreconditionFailedException("The code of session " + uniqueId + " has changed.");
+        }
+        // Only the code changed; the session's ACL and metadata stay cached
+        if (replaceCode(content, newCode)) {
+            invalidateCached(uniqueId, SessionContentDTO.class);
+        }
     }
 
-    public CodeSession blockUser(String uniqueId, String ownerUsername, String userToBlock) {
+    @Transactional
+    public CodeSession blockUser(String uniqueId, String ownerUsername, String userToBlock, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
         // Security Check: Only the owner can block users.
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new AccessDeniedException("Only the session owner can block users.");
         }
         session.getBlockedUsers().add(userToBlock);
-        return codeSessionRepository.save(session);
+        CodeSession saved = codeSessionRepository.save(session);
+        permissionsChanged(uniqueId);
+        return saved;
     }
 
-    public CodeSession unblockUser(String uniqueId, String ownerUsername, String userToUnblock) {
+    @Transactional
+    public CodeSession unblockUser(String uniqueId, String ownerUsername, String userToUnblock, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
         // Security Check: Only the owner can unblock users.
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new AccessDeniedException("Only the session owner can unblock users.");
         }
         session.getBlockedUsers().remove(userToUnblock);
-        return codeSessionRepository.save(session);
+        CodeSession saved = codeSessionRepository.save(session);
+        permissionsChanged(uniqueId);
+        return saved;
     }
 
-    public CodeSession addParticipant(String uniqueId, String username) {
+    @Transactional
+    public CodeSession addParticipant(String uniqueId, String username, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
         // Security Check: If the user is on the block list, they cannot join.
         if (session.getBlockedUsers().contains(username)) {
             throw new AccessDeniedException("You have been blocked from this session.");
         }
         session.getParticipants().put(username,Role.EDITOR);
-        return codeSessionRepository.save(session);
+        CodeSession saved = codeSessionRepository.save(session);
+        permissionsChanged(uniqueId);
+        return saved;
     }
 
     @Transactional // Ensures the operation is atomic
-    public CodeSession saveSnapshot(String uniqueId, String ownerUsername) {
+    public SnapshotSummaryDTO saveSnapshot(String uniqueId, String ownerUsername) {
         CodeSession session = getSessionByUniqueId(uniqueId);
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new AccessDeniedException("Only the session owner can save snapshots.");
         }
 
-        Snapshot snapshot = Snapshot.builder()
-                .codeContent(session.getCodeContent())
-                .codeSession(session)
-                .build();
-
-        // This is the change: We save the new snapshot directly, which is cleaner
-        // and avoids the duplicate-creation issue.
-        snapshotRepository.save(snapshot);
-
-        // We still return the session object so the frontend can get the updated list
-        return getSessionByUniqueId(uniqueId);
+        // Only the new entry is returned; the frontend adds it to the history it has listed
+        Snapshot snapshot = snapshotStore.save(session, blobStore.getString(session.getContent().getBlobHash()), ownerUsername);
+        return new SnapshotSummaryDTO(snapshot.getId(), snapshot.getTimestamp(), snapshot.getCodeLength(), snapshot.getAuthor(), snapshot.isAutomatic());
     }
 
-    public CodeSession revertToSnapshot(String uniqueId, String ownerUsername, Long snapshotId) {
+    @Transactional
+    public CodeSession revertToSnapshot(String uniqueId, String ownerUsername, Long snapshotId, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
         // Security Check: Only the owner can revert
         if (!session.getOwnerUsername().equals(ownerUsername)) {
             throw new AccessDeniedException("Only the session owner can revert to a snapshot.");
         }
+        if (!SessionETag.anyContent(ifMatch, session.getContent().getVersion())) {
+            throw new PreconditionFailedException("The code of session " + uniqueId + " has changed.");
+        }
 
+        // Keeps the retention job from rewriting the snapshot's delta chain while it is read
+        snapshotStore.lockHistory(session.getId());
         Snapshot snapshot = snapshotRepository.findById(snapshotId)
-                .orElseThrow(() -> new RuntimeException("Snapshot not found with ID: " + snapshotId));
+                .orElseThrow(() -> new SnapshotNotFoundException("Snapshot " + snapshotId + " not found in session " + uniqueId));
 
         // Security check to ensure snapshot belongs to the session
         if (!snapshot.getCodeSession().getId().equals(session.getId())) {
@@ -235,13 +318,19 @@ public class SessionService {
         }
 
         // Update the main code content with the snapshot's content
-        session.setCodeContent(snapshot.getCodeContent());
+        String code = snapshotStore.contentOf(snapshot);
+        replaceCode(session.getContent(), code);
+        session.setCodeContent(code);
+        invalidateCached(uniqueId);
+        // Clients editing the session get the reverted code from collaboration-service
+        notificationOutbox.replaceDocument(uniqueId, ownerUsername, code);
         return codeSessionRepository.save(session);
     }
 
     @Transactional
-    public CodeSession leaveSession(String uniqueId, String username) {
+    public CodeSession leaveSession(String uniqueId, String username, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
 
         log.info("User {} leaving session {}", username, uniqueId);
 
@@ -251,6 +340,7 @@ public class SessionService {
 
             session.getParticipants().remove(username);
             codeSessionRepository.save(session);
+            permissionsChanged(uniqueId);
 
             log.info("User {} removed from session {}", username, uniqueId);
 
@@ -262,7 +352,7 @@ public class SessionService {
             );
 
             // Notify all participants about user leaving
-            collaborationServiceClient.broadcastToSession(uniqueId, leaveNotification);
+            notificationOutbox.broadcastToSession(uniqueId, leaveNotification);
 
         } else if (session.getOwnerUsername().equals(username)) {
             log.info("Session owner {} cannot leave, they must delete the session", username);
@@ -274,8 +364,9 @@ public class SessionService {
 
     // In your SessionService.java
     @Transactional
-    public void deleteSession(String uniqueId, String username) {
+    public void deleteSession(String uniqueId, String username, List<SessionETag> ifMatch) {
         CodeSession session = getSessionByUniqueId(uniqueId);
+        checkSessionVersion(session, ifMatch);
 
         if (!session.getOwnerUsername().equals(username)) {
             throw new UnauthorizedException("Only the session owner can delete the session");
@@ -291,10 +382,19 @@ public class SessionService {
         );
 
         // Notify all participants about session deletion
-        collaborationServiceClient.broadcastToSession(uniqueId, deleteNotification);
-
-        // Delete the session from repository
+        notificationOutbox.broadcastToSession(uniqueId, deleteNotification);
+
+        // Delete the session from repository, with its references to the code and snapshot blobs;
+        // the history lock keeps background jobs from adding snapshot blobs meanwhile
+        snapshotStore.lockHistory(session.getId());
+        List<String> blobs = new ArrayList<>(snapshotRepository.findBlobHashes(session.getId()));
+        if (session.getContent() != null) {
+            blobs.add(session.getContent().getBlobHash());
+        }
+        blobStore.release(blobs);
         codeSessionRepository.delete(session);
+        chatMessageRepository.deleteBySessionId(uniqueId);
+        permissionsChanged(uniqueId);
 
         log.info("Session {} deleted successfully", uniqueId);
     }
@@ -321,6 +421,7 @@ public class SessionService {
 
         newThread.getComments().add(firstComment);
 
+        codeSessionRepository.incrementVersion(session.getId());
         return commentThreadRepository.save(newThread);
     }
 
@@ -341,6 +442,7 @@ public class SessionService {
                 .commentThread(thread)
                 .build();
 
+        codeSessionRepository.incrementVersion(session.getId());
         return commentRepository.save(newComment);
     }
 
@@ -355,9 +457,58 @@ public class SessionService {
         }
 
         thread.setStatus(CommentStatus.RESOLVED);
+        codeSessionRepository.incrementVersion(thread.getCodeSession().getId());
         return commentThreadRepository.save(thread);
     }
 
+    private static void checkSessionVersion(CodeSession session, List<SessionETag> ifMatch) {
+        if (!SessionETag.anySession(ifMatch, session.getVersion())) {
+            throw new PreconditionFailedException("Session " + session.getUniqueId() + " has changed.");
+        }
+    }
+
+    // Points the content row at new code; false if the code is unchanged
+    private boolean replaceCode(SessionContent content, String code) {
+        String hash = BlobStore.hashOf(code);
+        if (hash.equals(content.getBlobHash())) {
+            return false;
+        }
+        blobStore.put(code);
+        if (content.getBlobHash() != null) {
+            blobStore.release(List.of(content.getBlobHash()));
+        }
+        content.setBlobHash(hash);
+        content.setModifiedAt(System.currentTimeMillis());
+        return true;
+    }
+
+    // Participants, roles or the blocked list changed
+    private void permissionsChanged(String uniqueId) {
+        invalidateCached(uniqueId);
+        notificationOutbox.invalidatePermissions(uniqueId);
+    }
+
+    private void invalidateCached(String uniqueId) {
+        nowAndAfterCompletion(() -> sessionCache.invalidate(uniqueId));
+    }
+
+    private void invalidateCached(String uniqueId, Class<?> view) {
+        nowAndAfterCompletion(() -> sessionCache.invalidate(uniqueId, view));
+    }
+
+    // Dropped now and again once the transaction ends, so a read racing it cannot cache the old state
+    private static void nowAndAfterCompletion(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
     private String getBoilerplateForLanguage(String language) {
         return switch (language.toLowerCase()) {
             case "java" -> """
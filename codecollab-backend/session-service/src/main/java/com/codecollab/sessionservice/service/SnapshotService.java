@@ -0,0 +1,62 @@
+package com.codecollab.sessionservice.service;
+
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import com.codecollab.sessionservice.dto.SnapshotPage;
+import com.codecollab.sessionservice.dto.SnapshotSummaryDTO;
+import com.codecollab.sessionservice.exception.SnapshotNotFoundException;
+import com.codecollab.sessionservice.exception.UnauthorizedException;
+import com.codecollab.sessionservice.model.Snapshot;
+import com.codecollab.sessionservice.repository.CodeSessionRepository;
+import com.codecollab.sessionservice.repository.SnapshotRepository;
+import com.codecollab.sessionservice.snapshot.SnapshotStore;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Read side of a session's snapshot history; saving and reverting stay in SessionService
+@Service
+@RequiredArgsConstructor
+public class SnapshotService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final SnapshotRepository snapshotRepository;
+    private final CodeSessionRepository codeSessionRepository;
+    private final SnapshotStore snapshotStore;
+    private final SessionService sessionService;
+
+    public SnapshotPage list(String uniqueId, String username, Long beforeId, int limit) {
+        checkParticipant(uniqueId, username);
+        Limit oneMore = Limit.of(clamp(limit) + 1);
+        List<SnapshotSummaryDTO> newestFirst = beforeId == null
+                ? snapshotRepository.findSummaries(uniqueId, oneMore)
+                : snapshotRepository.findSummariesBefore(uniqueId, beforeId, oneMore);
+        // One row more than asked for tells whether an older page exists
+        boolean hasMore = newestFirst.size() > clamp(limit);
+        return new SnapshotPage(hasMore ? List.copyOf(newestFirst.subList(0, clamp(limit))) : newestFirst, hasMore);
+    }
+
+    @Transactional
+    public SessionContentDTO getContent(String uniqueId, String username, Long snapshotId) {
+        checkParticipant(uniqueId, username);
+        // Keeps the retention job from rewriting the snapshot's delta chain while it is read
+        codeSessionRepository.findIdByUniqueId(uniqueId).ifPresent(snapshotStore::lockHistory);
+        Snapshot snapshot = snapshotRepository.findInSession(uniqueId, snapshotId)
+                .orElseThrow(() -> new SnapshotNotFoundException("Snapshot " + snapshotId + " not found in session " + uniqueId));
+        return new SessionContentDTO(snapshotStore.contentOf(snapshot));
+    }
+
+    private void checkParticipant(String uniqueId, String username) {
+        // Security Check: only participants may read a session's history.
+        if (!sessionService.getSessionAcl(uniqueId).getParticipants().containsKey(username)) {
+            throw new UnauthorizedException("Only participants can read this session's snapshots.");
+        }
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,115 @@
+package com.codecollab.sessionservice.snapshot;
+
+import com.codecollab.sessionservice.blob.BlobStore;
+import com.codecollab.sessionservice.model.Snapshot;
+import com.codecollab.sessionservice.repository.CodeSessionRepository;
+import com.codecollab.sessionservice.repository.SnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Every interval, takes an automatic snapshot of each session whose code changed since its
+ * latest snapshot. Changed sessions are found through {@code session_contents.modified_at}, a
+ * chunk at a time, and each is snapshotted in its own short transaction that never locks the
+ * session's rows; a session whose snapshots another transaction is writing is left for the next
+ * run. {@link SnapshotRetention} thins the automatic snapshots out as they age.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${session.snapshots.auto.interval-ms:60000} > 0")
+public class AutoSnapshotter {
+
+    private final CodeSessionRepository codeSessionRepository;
+    private final SnapshotRepository snapshotRepository;
+    private final SnapshotStore snapshotStore;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${session.snapshots.auto.interval-ms:60000}")
+    private long intervalMillis;
+
+    @Value("${session.snapshots.auto.batch-size:100}")
+    private int batchSize;
+
+    // Start of the last run that left no session behind; 0 until then, so the first run looks
+    // at every session. Runs never overlap, so only one thread at a time touches it
+    private long coveredUpTo;
+
+    public AutoSnapshotter(CodeSessionRepository codeSessionRepository,
+                           SnapshotRepository snapshotRepository,
+                           SnapshotStore snapshotStore,
+                           BlobStore blobStore,
+                           PlatformTransactionManager transactionManager) {
+        this.codeSessionRepository = codeSessionRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.snapshotStore = snapshotStore;
+        this.blobStore = blobStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${session.snapshots.auto.interval-ms:60000}",
+            initialDelayString = "${session.snapshots.auto.interval-ms:60000}")
+    public void run() {
+        long startedAt = System.currentTimeMillis();
+        // Reaching back one more interval covers changes stamped before the previous run but
+        // committed after it looked; sessions already snapshotted are filtered out by their hash
+        long since = coveredUpTo > 0 ? coveredUpTo - intervalMillis : 0;
+        int taken = 0;
+        boolean skipped = false;
+        try {
+            long afterId = 0;
+            List<Long> chunk;
+            do {
+                chunk = codeSessionRepository.findChangedSince(since, afterId, batchSize);
+                for (Long codeSessionId : chunk) {
+                    Boolean saved = snapshot(codeSessionId);
+                    if (saved == null) {
+                        skipped = true;
+                    } else if (saved) {
+                        taken++;
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1);
+                }
+            } while (chunk.size() == batchSize);
+            if (!skipped) {
+                coveredUpTo = startedAt;
+            }
+            if (taken > 0) {
+                log.info("Took {} automatic snapshot(s)", taken);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Automatic snapshots failed: {}", e.getMessage());
+        }
+    }
+
+    // True if a snapshot was taken, false if the code turned out unchanged, null if the session
+    // has to be tried again next run
+    private Boolean snapshot(Long codeSessionId) {
+        try {
+            return transactionTemplate.execute(status -> {
+                if (!snapshotStore.tryLockHistory(codeSessionId)) {
+                    return null;
+                }
+                String hash = codeSessionRepository.findContentHashById(codeSessionId).orElse(null);
+                Snapshot latest = snapshotRepository.findFirstByCodeSessionIdOrderByIdDesc(codeSessionId).orElse(null);
+                if (hash == null || (latest != null && hash.equals(latest.getContentHash()))) {
+                    return false;
+                }
+                snapshotStore.saveAutomatic(codeSessionRepository.getReferenceById(codeSessionId), blobStore.getString(hash));
+                return true;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Automatic snapshot of session {} failed: {}", codeSessionId, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.codecollab.sessionservice.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line-based diff (Myers' O(ND) algorithm) after trimming the common prefix and suffix, so
+ * the cost depends on how much changed rather than on the size of the file.
+ */
+final class LineDiff {
+
+    enum Op { COPY, DELETE, INSERT }
+
+    // count lines copied or deleted from the base, or inserted from the target starting at targetLine
+    record Run(Op op, int count, int targetLine) {
+    }
+
+    private LineDiff() {
+    }
+
+    /**
+     * Edit script turning {@code base} into {@code target}, or null if it takes more than
+     * {@code maxEdits} inserted plus deleted lines (bounding time and memory to O(maxEdits²)).
+     */
+    static List<Run> diff(List<String> base, List<String> target, int maxEdits) {
+        // Lines are compared as ints
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = intern(base, ids);
+        int[] b = intern(target, ids);
+
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix] == b[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix] == b[b.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        RunBuilder runs = new RunBuilder();
+        runs.add(Op.COPY, prefix, 0);
+        if (!myers(Arrays.copyOfRange(a, prefix, a.length - suffix),
+                Arrays.copyOfRange(b, prefix, b.length - suffix), prefix, maxEdits, runs)) {
+            return null;
+        }
+        runs.add(Op.COPY, suffix, 0);
+        return runs.runs;
+    }
+
+    private static boolean myers(int[] a, int[] b, int targetOffset, int maxEdits, RunBuilder runs) {
+        int n = a.length;
+        int m = b.length;
+        int limit = Math.min(n + m, maxEdits);
+        int offset = limit + 1;
+        int[] v = new int[2 * limit + 3];
+        // trace.get(d) holds v after step d, for diagonals -d..d
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= limit; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+                    backtrack(trace, n, m, targetOffset, runs);
+                    return true;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+        }
+        return false;
+    }
+
+    private static void backtrack(List<int[]> trace, int n, int m, int targetOffset, RunBuilder runs) {
+        // Collected end to start, then replayed forwards
+        List<int[]> reversed = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && at(previous, d - 1, k - 1) < at(previous, d - 1, k + 1));
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = at(previous, d - 1, previousK);
+            int previousY = previousX - previousK;
+            int snake = Math.min(x - (down ? previousX : previousX + 1), y - (down ? previousY + 1 : previousY));
+            if (snake > 0) {
+                reversed.add(new int[]{Op.COPY.ordinal(), snake, 0});
+            }
+            reversed.add(down
+                    ? new int[]{Op.INSERT.ordinal(), 1, targetOffset + previousY}
+                    : new int[]{Op.DELETE.ordinal(), 1, 0});
+            x = previousX;
+            y = previousY;
+        }
+        if (x > 0) {
+            reversed.add(new int[]{Op.COPY.ordinal(), x, 0});
+        }
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            int[] run = reversed.get(i);
+            runs.add(Op.values()[run[0]], run[1], run[2]);
+        }
+    }
+
+    private static int at(int[] v, int d, int k) {
+        return v[k + d];
+    }
+
+    private static int[] intern(List<String> lines, Map<String, Integer> ids) {
+        int[] interned = new int[lines.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = ids.computeIfAbsent(lines.get(i), line -> ids.size());
+        }
+        return interned;
+    }
+
+    // Merges adjacent runs of the same kind
+    private static final class RunBuilder {
+
+        private final List<Run> runs = new ArrayList<>();
+
+        void add(Op op, int count, int targetLine) {
+            if (count == 0) {
+                return;
+            }
+            Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (last != null && last.op() == op
+                    && (op != Op.INSERT || last.targetLine() + last.count() == targetLine)) {
+                runs.set(runs.size() - 1, new Run(op, last.count() + count, last.targetLine()));
+            } else {
+                runs.add(new Run(op, count, targetLine));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.codecollab.sessionservice.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes a snapshot as a line-based delta against the snapshot before it; keyframes are just
+ * the UTF-8 code. Both are compressed by the {@code BlobStore} that keeps them.
+ * <p>
+ * A delta is a sequence of runs, each an op byte and a count: copy that many lines from the
+ * base, skip that many, or insert that many lines, followed by their UTF-8 text. Lines keep
+ * their terminators, so applying a delta reproduces the target exactly.
+ */
+public final class SnapshotCodec {
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Delta turning {@code base} into {@code target}, or null if they differ in more than
+     * {@code maxChangedLines} lines, in which case a keyframe is the better encoding anyway.
+     */
+    public static byte[] encodeDelta(String base, String target, int maxChangedLines) {
+        List<String> baseLines = lines(base);
+        List<String> targetLines = lines(target);
+        List<LineDiff.Run> runs = LineDiff.diff(baseLines, targetLines, maxChangedLines);
+        if (runs == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (LineDiff.Run run : runs) {
+                out.writeByte(run.op().ordinal());
+                writeVarInt(out, run.count());
+                if (run.op() == LineDiff.Op.INSERT) {
+                    StringBuilder inserted = new StringBuilder();
+                    for (int i = 0; i < run.count(); i++) {
+                        inserted.append(targetLines.get(run.targetLine() + i));
+                    }
+                    byte[] text = inserted.toString().getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(out, text.length);
+                    out.write(text);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static String applyDelta(String base, byte[] delta) {
+        return String.join("", applyDelta(lines(base), delta));
+    }
+
+    /**
+     * Applies a chain of deltas, oldest first, to {@code base}. Works on lines throughout, so
+     * the text is only joined once at the end.
+     */
+    public static String applyDeltas(String base, List<byte[]> deltas) {
+        List<String> lines = lines(base);
+        for (byte[] delta : deltas) {
+            lines = applyDelta(lines, delta);
+        }
+        return String.join("", lines);
+    }
+
+    private static List<String> applyDelta(List<String> baseLines, byte[] delta) {
+        List<String> target = new ArrayList<>(baseLines.size());
+        int position = 0;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+            int op;
+            while ((op = in.read()) != -1) {
+                int count = readVarInt(in);
+                switch (LineDiff.Op.values()[op]) {
+                    case COPY -> {
+                        target.addAll(baseLines.subList(position, position + count));
+                        position += count;
+                    }
+                    case DELETE -> position += count;
+                    case INSERT -> {
+                        byte[] text = new byte[readVarInt(in)];
+                        in.readFully(text);
+                        target.addAll(lines(new String(text, StandardCharsets.UTF_8)));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (position != baseLines.size()) {
+            throw new IllegalStateException("Snapshot delta does not match its base");
+        }
+        return target;
+    }
+
+    // Each line with its '\n'; the last one may have none
+    static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.codecollab.sessionservice.snapshot;
+
+import com.codecollab.sessionservice.dto.SnapshotSummaryDTO;
+import com.codecollab.sessionservice.repository.SnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Thins out automatic snapshots as they age: the newest one per minute is kept for the first
+ * {@code minutely-for-ms}, the newest one per hour until {@code hourly-for-ms}, then the newest
+ * one per day until {@code daily-for-ms} (forever if 0). Snapshots saved by the owner and each
+ * session's latest snapshot are never removed.
+ * <p>
+ * Sessions are visited a chunk at a time, each in its own transaction holding only that
+ * session's history lock; a session whose snapshots are being written is left for the next run.
+ * Deleting goes through {@link SnapshotStore#delete}, which keeps the remaining delta chains intact.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${session.snapshots.retention.interval-ms:600000} > 0")
+public class SnapshotRetention {
+
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private final SnapshotRepository snapshotRepository;
+    private final SnapshotStore snapshotStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${session.snapshots.retention.batch-size:100}")
+    private int batchSize;
+
+    @Value("${session.snapshots.retention.minutely-for-ms:3600000}")
+    private long minutelyForMillis;
+
+    @Value("${session.snapshots.retention.hourly-for-ms:86400000}")
+    private long hourlyForMillis;
+
+    @Value("${session.snapshots.retention.daily-for-ms:0}")
+    private long dailyForMillis;
+
+    public SnapshotRetention(SnapshotRepository snapshotRepository,
+                             SnapshotStore snapshotStore,
+                             PlatformTransactionManager transactionManager) {
+        this.snapshotRepository = snapshotRepository;
+        this.snapshotStore = snapshotStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${session.snapshots.retention.interval-ms:600000}",
+            initialDelayString = "${session.snapshots.retention.interval-ms:600000}")
+    public void run() {
+        int removed = 0;
+        try {
+            long afterId = 0;
+            List<Long> chunk;
+            do {
+                chunk = snapshotRepository.findSessionsWithAutomaticSnapshots(afterId, Limit.of(batchSize));
+                for (Long codeSessionId : chunk) {
+                    removed += thin(codeSessionId);
+                }
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1);
+                }
+            } while (chunk.size() == batchSize);
+            if (removed > 0) {
+                log.info("Removed {} expired automatic snapshot(s)", removed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Snapshot retention failed: {}", e.getMessage());
+        }
+    }
+
+    private int thin(Long codeSessionId) {
+        try {
+            Integer removed = transactionTemplate.execute(status -> {
+                if (!snapshotStore.tryLockHistory(codeSessionId)) {
+                    return 0;
+                }
+                List<Long> expired = expired(snapshotRepository.findAllSummaries(codeSessionId), System.currentTimeMillis(),
+                        minutelyForMillis, hourlyForMillis, dailyForMillis);
+                if (!expired.isEmpty()) {
+                    snapshotStore.delete(codeSessionId, expired);
+                }
+                return expired.size();
+            });
+            return removed != null ? removed : 0;
+        } catch (RuntimeException e) {
+            log.warn("Thinning snapshots of session {} failed: {}", codeSessionId, e.getMessage());
+            return 0;
+        }
+    }
+
+    // Ids of the automatic snapshots the policy drops, given all of a session's snapshots newest first
+    static List<Long> expired(List<SnapshotSummaryDTO> newestFirst, long now,
+                              long minutelyFor, long hourlyFor, long dailyFor) {
+        List<Long> expired = new ArrayList<>();
+        Set<String> keptBuckets = new HashSet<>();
+        for (int i = 0; i < newestFirst.size(); i++) {
+            SnapshotSummaryDTO snapshot = newestFirst.get(i);
+            if (!snapshot.isAutomatic() || snapshot.getTimestamp() == null) {
+                continue;
+            }
+            long takenAt = snapshot.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long age = now - takenAt;
+            long bucket = age < minutelyFor ? MINUTE
+                    : age < hourlyFor ? HOUR
+                    : dailyFor <= 0 || age < dailyFor ? DAY
+                    : 0;
+            // The first one seen in a bucket is its newest and is kept; so is the latest of all
+            boolean kept = bucket > 0 && keptBuckets.add(bucket + ":" + Math.floorDiv(takenAt, bucket));
+            if (!kept && i > 0) {
+                expired.add(snapshot.getId());
+            }
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,176 @@
+package com.codecollab.sessionservice.snapshot;
+
+import com.codecollab.sessionservice.blob.BlobStore;
+import com.codecollab.sessionservice.blob.Compression;
+import com.codecollab.sessionservice.model.CodeSession;
+import com.codecollab.sessionservice.model.Snapshot;
+import com.codecollab.sessionservice.repository.SnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Stores each snapshot as a delta against the session's previous snapshot, with a full copy
+ * (keyframe) every {@code keyframe-interval} snapshots, so reading one back applies at most
+ * interval - 1 deltas. A delta that would not be smaller than a keyframe, or whose diff is too
+ * large to compute cheaply, is stored as a keyframe instead.
+ * <p>
+ * Keyframes and deltas are blobs in {@link BlobStore}: a keyframe of the session's current code
+ * is the very blob the session points at, and a snapshot of unchanged code shares the previous
+ * snapshot's blob, so it costs a row and a reference count.
+ * <p>
+ * Everything that writes a session's snapshots, or reads one back through its chain while they
+ * may be rewritten, holds the session's history lock ({@link #lockHistory}) for its transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class SnapshotStore {
+
+    private final SnapshotRepository snapshotRepository;
+    private final BlobStore blobStore;
+
+    @Value("${session.snapshots.keyframe-interval:20}")
+    private int keyframeInterval;
+
+    @Value("${session.snapshots.max-diff-lines:1000}")
+    private int maxDiffLines;
+
+    public Snapshot save(CodeSession session, String content, String author) {
+        return save(session, content, author, false);
+    }
+
+    // A snapshot taken by AutoSnapshotter
+    public Snapshot saveAutomatic(CodeSession session, String content) {
+        return save(session, content, null, true);
+    }
+
+    private Snapshot save(CodeSession session, String content, String author, boolean automatic) {
+        lockHistory(session.getId());
+        String code = content != null ? content : "";
+        Snapshot snapshot = Snapshot.builder()
+                .codeSession(session)
+                .author(author)
+                .automatic(automatic)
+                .codeLength(code.length())
+                .contentHash(BlobStore.hashOf(code))
+                .keyframe(true)
+                .build();
+
+        Snapshot previous = snapshotRepository.findFirstByCodeSessionIdOrderByIdDesc(session.getId()).orElse(null);
+        if (previous != null && previous.getBlobHash() != null && snapshot.getContentHash().equals(previous.getContentHash())) {
+            // Same code as last time: the same blob, applied to the same base
+            blobStore.retain(previous.getBlobHash());
+            snapshot.setBlobHash(previous.getBlobHash());
+            snapshot.setKeyframe(previous.isKeyframe());
+            snapshot.setBaseSnapshotId(previous.getBaseSnapshotId());
+            snapshot.setDepth(previous.getDepth());
+            return snapshotRepository.save(snapshot);
+        }
+
+        byte[] keyframe = code.getBytes(StandardCharsets.UTF_8);
+        if (previous != null && previous.getDepth() + 1 < keyframeInterval) {
+            byte[] delta = SnapshotCodec.encodeDelta(contentOf(previous), code, maxDiffLines);
+            if (delta != null && delta.length < keyframe.length) {
+                snapshot.setKeyframe(false);
+                snapshot.setBlobHash(blobStore.put(delta));
+                snapshot.setBaseSnapshotId(previous.getId());
+                snapshot.setDepth(previous.getDepth() + 1);
+                return snapshotRepository.save(snapshot);
+            }
+        }
+        snapshot.setBlobHash(blobStore.put(keyframe));
+        return snapshotRepository.save(snapshot);
+    }
+
+    /**
+     * Deletes snapshots of one session and releases their blobs. A snapshot whose delta applies
+     * to one being deleted is first re-encoded against the deleted one's own base, or stored as a
+     * keyframe if there is none, so every remaining snapshot still reads back the same code.
+     * Takes the session's history lock; the caller's transaction must not have read the
+     * snapshots before.
+     */
+    public void delete(Long codeSessionId, List<Long> snapshotIds) {
+        lockHistory(codeSessionId);
+        List<String> released = new ArrayList<>();
+        // Oldest first, so the base a dependent is moved to is already final
+        for (Long id : snapshotIds.stream().sorted().toList()) {
+            Snapshot doomed = snapshotRepository.findById(id).orElse(null);
+            if (doomed == null || !doomed.getCodeSession().getId().equals(codeSessionId)) {
+                continue;
+            }
+            Long newBaseId = isKeyframe(doomed) ? null : doomed.getBaseSnapshotId();
+            for (Snapshot dependent : snapshotRepository.findByBaseSnapshotId(id)) {
+                released.add(rebase(dependent, newBaseId));
+            }
+            released.add(doomed.getBlobHash());
+            snapshotRepository.delete(doomed);
+        }
+        blobStore.release(released);
+    }
+
+    // Returns the blob the snapshot no longer references
+    private String rebase(Snapshot snapshot, Long newBaseId) {
+        String code = contentOf(snapshot);
+        String previousBlob = snapshot.getBlobHash();
+        snapshot.setData(null);
+        snapshot.setCodeContent(null);
+
+        Snapshot base = newBaseId != null ? snapshotRepository.findById(newBaseId).orElse(null) : null;
+        byte[] keyframe = code.getBytes(StandardCharsets.UTF_8);
+        byte[] delta = base != null ? SnapshotCodec.encodeDelta(contentOf(base), code, maxDiffLines) : null;
+        if (delta != null && delta.length < keyframe.length) {
+            snapshot.setKeyframe(false);
+            snapshot.setBlobHash(blobStore.put(delta));
+            snapshot.setBaseSnapshotId(base.getId());
+            snapshot.setDepth(base.getDepth() + 1);
+        } else {
+            snapshot.setKeyframe(true);
+            snapshot.setBlobHash(blobStore.put(keyframe));
+            snapshot.setBaseSnapshotId(null);
+            snapshot.setDepth(0);
+        }
+        return previousBlob;
+    }
+
+    public void lockHistory(Long codeSessionId) {
+        snapshotRepository.lockHistory(codeSessionId);
+    }
+
+    // False if another transaction is changing the session's snapshots
+    public boolean tryLockHistory(Long codeSessionId) {
+        return snapshotRepository.tryLockHistory(codeSessionId);
+    }
+
+    // Rebuilds the code from the nearest keyframe
+    public String contentOf(Snapshot snapshot) {
+        Deque<byte[]> deltas = new ArrayDeque<>();
+        Snapshot current = snapshot;
+        while (!isKeyframe(current)) {
+            deltas.push(payload(current));
+            Long baseId = current.getBaseSnapshotId();
+            current = snapshotRepository.findById(baseId)
+                    .orElseThrow(() -> new IllegalStateException("Snapshot " + baseId + " missing from a delta chain"));
+        }
+        // Snapshots from before delta storage hold the code itself
+        String keyframe = current.getBlobHash() == null && current.getData() == null
+                ? current.getCodeContent()
+                : new String(payload(current), StandardCharsets.UTF_8);
+        return SnapshotCodec.applyDeltas(keyframe, List.copyOf(deltas));
+    }
+
+    private static boolean isKeyframe(Snapshot snapshot) {
+        return snapshot.isKeyframe() || (snapshot.getBlobHash() == null && snapshot.getData() == null);
+    }
+
+    private byte[] payload(Snapshot snapshot) {
+        return snapshot.getBlobHash() != null
+                ? blobStore.get(snapshot.getBlobHash())
+                : Compression.inflate(snapshot.getData());
+    }
+}
@@ -0,0 +1,165 @@
+package com.codecollab.sessionservice.blob;
+
+import com.codecollab.sessionservice.model.ContentBlob;
+import com.codecollab.sessionservice.repository.ContentBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The stores over an in-memory content_blobs table. The repository answers as its native
+ * statements do in Postgres (ON CONFLICT revival, counts only changed while above 0,
+ * collectable once released before the cutoff), which the build has no database to run.
+ */
+class RefCountedBlobStoreTest {
+
+	private final Map<String, ContentBlob> rows = new HashMap<>();
+	private final ContentBlobRepository repository = mock(ContentBlobRepository.class);
+	private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+	@TempDir
+	Path root;
+
+	RefCountedBlobStoreTest() {
+		when(repository.retainLive(anyString(), anyInt())).thenAnswer(invocation -> {
+			ContentBlob row = rows.get(invocation.<String>getArgument(0));
+			if (row == null || row.getRefCount() <= 0) {
+				return 0;
+			}
+			row.setRefCount(row.getRefCount() + invocation.<Integer>getArgument(1));
+			return 1;
+		});
+		when(repository.upsertWithData(anyString(), anyLong(), any())).thenAnswer(invocation ->
+				upsert(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+		when(repository.upsertWithoutData(anyString(), anyLong())).thenAnswer(invocation ->
+				upsert(invocation.getArgument(0), invocation.getArgument(1), null));
+		when(repository.release(anyString(), anyInt(), anyLong())).thenAnswer(invocation -> {
+			ContentBlob row = rows.get(invocation.<String>getArgument(0));
+			if (row == null) {
+				return 0;
+			}
+			row.setRefCount(row.getRefCount() - invocation.<Integer>getArgument(1));
+			if (row.getRefCount() <= 0) {
+				row.setReleasedAt(invocation.getArgument(2));
+			}
+			return 1;
+		});
+		when(repository.findData(anyString())).thenAnswer(invocation ->
+				Optional.ofNullable(rows.get(invocation.<String>getArgument(0))).map(ContentBlob::getData));
+		when(repository.lockCollectable(anyLong(), anyInt())).thenAnswer(invocation -> rows.values().stream()
+				.filter(row -> row.getRefCount() <= 0 && row.getReleasedAt() < invocation.<Long>getArgument(0))
+				.limit(invocation.<Integer>getArgument(1))
+				.map(ContentBlob::getHash)
+				.toList());
+		when(repository.deleteByHashes(anyCollection())).thenAnswer(invocation -> {
+			Collection<String> hashes = invocation.getArgument(0);
+			hashes.forEach(rows::remove);
+			return hashes.size();
+		});
+	}
+
+	@Test
+	void releasedBlobIsRevivedByAPutDuringItsGracePeriod() {
+		FileSystemBlobStore store = configure(new FileSystemBlobStore(repository, transactionTemplate, root));
+
+		String hash = store.put("code");
+		assertEquals(hash, store.put("code"));
+		// The second put only counted a reference
+		verify(repository, times(1)).upsertWithoutData(eq(hash), eq(4L));
+		assertEquals(2, rows.get(hash).getRefCount());
+
+		store.release(List.of(hash));
+		store.release(List.of(hash));
+		assertEquals(0, rows.get(hash).getRefCount());
+		assertNotNull(rows.get(hash).getReleasedAt());
+		store.collect();
+		assertTrue(rows.containsKey(hash));
+
+		assertEquals(hash, store.put("code"));
+		assertEquals(1, rows.get(hash).getRefCount());
+		assertNull(rows.get(hash).getReleasedAt());
+		ReflectionTestUtils.setField(store, "gcGraceMillis", -1L);
+		store.collect();
+		assertEquals("code", store.getString(hash));
+	}
+
+	@Test
+	void unreferencedBlobsAreCollectedOnceTheGracePeriodIsOver() {
+		FileSystemBlobStore store = configure(new FileSystemBlobStore(repository, transactionTemplate, root));
+		ReflectionTestUtils.setField(store, "gcBatchSize", 2);
+		String shared = store.put("shared");
+		store.put("shared");
+		String a = store.put("a");
+		String b = store.put("b");
+		String kept = store.put("kept");
+
+		// Both references to the shared blob go in one call
+		store.release(List.of(shared, shared, a, b));
+		ReflectionTestUtils.setField(store, "gcGraceMillis", -1L);
+		store.collect();
+
+		assertEquals(List.of(kept), List.copyOf(rows.keySet()));
+		assertFalse(Files.exists(root.resolve(shared.substring(0, 2)).resolve(shared)));
+		assertThrows(IllegalStateException.class, () -> store.get(a));
+		assertEquals("kept", store.getString(kept));
+		// A full batch of two, then the last one
+		verify(repository, times(2)).lockCollectable(anyLong(), eq(2));
+	}
+
+	@Test
+	void databaseStoreKeepsCompressedBytesInTheRow() {
+		DatabaseBlobStore store = configure(new DatabaseBlobStore(repository, transactionTemplate));
+		byte[] code = "System.out.println(\"hello\");\n".repeat(200).getBytes();
+
+		String hash = store.put(code);
+
+		assertTrue(rows.get(hash).getData().length < code.length / 10);
+		assertArrayEquals(code, store.get(hash));
+		assertThrows(IllegalStateException.class, () -> store.retain(BlobStore.hashOf("unknown")));
+	}
+
+	private int upsert(String hash, long size, byte[] data) {
+		ContentBlob row = rows.get(hash);
+		if (row == null) {
+			rows.put(hash, ContentBlob.builder().hash(hash).size(size).refCount(1).data(data).build());
+		} else {
+			row.setRefCount(row.getRefCount() + 1);
+			row.setReleasedAt(null);
+		}
+		return 1;
+	}
+
+	private static <T extends RefCountedBlobStore> T configure(T store) {
+		ReflectionTestUtils.setField(store, "gcGraceMillis", 600_000L);
+		ReflectionTestUtils.setField(store, "gcBatchSize", 500);
+		return store;
+	}
+}
@@ -0,0 +1,116 @@
+package com.codecollab.sessionservice.cache;
+
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import com.codecollab.sessionservice.dto.SessionMetadataDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalSessionCacheTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void cachesUntilInvalidated() {
+		LocalSessionCache cache = new LocalSessionCache(meterRegistry, 100, 1_000_000, 60_000);
+		AtomicInteger loads = new AtomicInteger();
+
+		for (int i = 0; i < 3; i++) {
+			cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("v" + loads.incrementAndGet()));
+		}
+		assertEquals(1, loads.get());
+
+		cache.invalidate("s1");
+		SessionContentDTO reloaded = cache.get("s1", SessionContentDTO.class,
+				() -> new SessionContentDTO("v" + loads.incrementAndGet()));
+		assertEquals("v2", reloaded.getCodeContent());
+		assertEquals(2.0, meterRegistry.counter("session.cache.requests", "result", "hit").count());
+		assertEquals(2.0, meterRegistry.counter("session.cache.requests", "result", "miss").count());
+	}
+
+	@Test
+	void requestJoiningALoadInFlightIsCountedApart() throws Exception {
+		LocalSessionCache cache = new LocalSessionCache(meterRegistry, 100, 1_000_000, 60_000);
+		Counter joined = meterRegistry.counter("session.cache.requests", "result", "joined");
+		CompletableFuture<SessionContentDTO> joiner = new CompletableFuture<>();
+
+		SessionContentDTO loaded = cache.get("s1", SessionContentDTO.class, () -> {
+			Thread.ofVirtual().start(() -> joiner.complete(
+					cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("second load"))));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (joined.count() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.onSpinWait();
+			}
+			return new SessionContentDTO("code");
+		});
+
+		assertSame(loaded, joiner.get(5, TimeUnit.SECONDS));
+		assertEquals(1.0, joined.count());
+		assertEquals(0.0, meterRegistry.counter("session.cache.requests", "result", "hit").count());
+		assertEquals(1.0, meterRegistry.counter("session.cache.requests", "result", "miss").count());
+	}
+
+	@Test
+	void invalidationDuringLoadIsNotCached() {
+		LocalSessionCache cache = new LocalSessionCache(meterRegistry, 100, 1_000_000, 60_000);
+
+		cache.get("s1", SessionContentDTO.class, () -> {
+			// A write commits while the old content is being read
+			cache.invalidate("s1");
+			return new SessionContentDTO("stale");
+		});
+
+		assertEquals("fresh", cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("fresh")).getCodeContent());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedByWeight() {
+		// Room for two 1000-char documents, not three
+		LocalSessionCache cache = new LocalSessionCache(meterRegistry, 100, 5_000, 60_000);
+		String code = "x".repeat(1000);
+
+		cache.get("a", SessionContentDTO.class, () -> new SessionContentDTO(code));
+		cache.get("b", SessionContentDTO.class, () -> new SessionContentDTO(code));
+		cache.get("a", SessionContentDTO.class, () -> new SessionContentDTO("reloaded"));
+		cache.get("c", SessionContentDTO.class, () -> new SessionContentDTO(code));
+
+		assertEquals(2, cache.size());
+		assertEquals(code, cache.get("a", SessionContentDTO.class, () -> new SessionContentDTO("reloaded")).getCodeContent());
+		assertEquals("reloaded", cache.get("b", SessionContentDTO.class, () -> new SessionContentDTO("reloaded")).getCodeContent());
+		assertEquals(1.0, meterRegistry.counter("session.cache.evictions", "cause", "size").count());
+	}
+
+	@Test
+	void viewsOfOneSessionShareAnEntry() {
+		LocalSessionCache cache = new LocalSessionCache(meterRegistry, 1, 1_000_000, 60_000);
+
+		cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("code"));
+		cache.get("s1", SessionMetadataDTO.class, () -> new SessionMetadataDTO("s1", "alice", false, "java"));
+
+		assertEquals(1, cache.size());
+		assertEquals("code", cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("reloaded")).getCodeContent());
+	}
+
+	@Test
+	void invalidatingOneViewKeepsTheOthers() {
+		LocalSessionCache cache = new LocalSessionCache(meterRegistry, 100, 1_000_000, 60_000);
+		cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("code"));
+		cache.get("s1", SessionMetadataDTO.class, () -> new SessionMetadataDTO("s1", "alice", false, "java"));
+		long withBoth = cache.weight();
+
+		cache.invalidate("s1", SessionContentDTO.class);
+
+		assertTrue(cache.weight() < withBoth);
+		assertEquals("alice", cache.get("s1", SessionMetadataDTO.class, () -> new SessionMetadataDTO("s1", "bob", false, "java"))
+				.getOwnerUsername());
+		assertEquals("new code", cache.get("s1", SessionContentDTO.class, () -> new SessionContentDTO("new code")).getCodeContent());
+	}
+}
@@ -0,0 +1,37 @@
+package com.codecollab.sessionservice.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionETagTest {
+
+	@Test
+	void parsesWhatItWrites() {
+		SessionETag tag = new SessionETag(12, 7);
+
+		assertEquals("\"12.7\"", tag.header());
+		assertEquals(List.of(tag), SessionETag.parse(tag.header()));
+		assertEquals(List.of(tag, new SessionETag(3, -1)), SessionETag.parse("W/\"12.7\", junk, \"x.y\", " + SessionETag.aclHeader(3)));
+		assertNull(SessionETag.parse("*"));
+		assertNull(SessionETag.parse(null));
+	}
+
+	@Test
+	void writesAreCheckedAgainstThePartTheyChange() {
+		List<SessionETag> ifMatch = SessionETag.parse("\"12.7\"");
+
+		// The code moved on since the tag was taken; a membership change still applies
+		assertTrue(SessionETag.anySession(ifMatch, 12));
+		assertFalse(SessionETag.anyContent(ifMatch, 8));
+		assertFalse(SessionETag.anySession(ifMatch, 13));
+		// No If-Match, or *, matches any version
+		assertTrue(SessionETag.anySession(null, 13));
+		assertTrue(SessionETag.anyContent(null, 8));
+	}
+}
@@ -0,0 +1,149 @@
+package com.codecollab.sessionservice.service;
+
+import com.codecollab.sessionservice.client.CollaborationServiceClient;
+import com.codecollab.sessionservice.model.OutboxMessage;
+import com.codecollab.sessionservice.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+	private static final String PAYLOAD = "{\"fromUser\":\"alice\",\"message\":\"hi\"}";
+
+	private final OutboxMessageRepository repository = mock(OutboxMessageRepository.class);
+	private final CollaborationServiceClient client = mock(CollaborationServiceClient.class);
+	private final OutboxRelay relay = new OutboxRelay(repository, client, new ObjectMapper(),
+			mock(PlatformTransactionManager.class), mock(TaskScheduler.class));
+
+	OutboxRelayTest() {
+		ReflectionTestUtils.setField(relay, "batchSize", 3);
+		ReflectionTestUtils.setField(relay, "leaseMillis", 60_000L);
+		ReflectionTestUtils.setField(relay, "retryBaseMillis", 1_000L);
+		ReflectionTestUtils.setField(relay, "retryMaxMillis", 300_000L);
+		ReflectionTestUtils.setField(relay, "maxAttempts", 5);
+	}
+
+	@Test
+	void claimedBatchIsLeasedWhileDeliveredThenDeleted() {
+		OutboxMessage first = message(1, OutboxMessage.Type.NOTIFY_USER, "bob");
+		OutboxMessage second = message(2, OutboxMessage.Type.BROADCAST_TO_SESSION, "s1");
+		OutboxMessage third = message(3, OutboxMessage.Type.NOTIFY_USER, "carol");
+		OutboxMessage fourth = message(4, OutboxMessage.Type.NOTIFY_USER, "dave");
+		// A full batch means there may be more, so the relay claims again
+		when(repository.findDue(anyLong(), eq(Limit.of(3)))).thenReturn(List.of(first, second, third), List.of(fourth), List.of());
+		long before = System.currentTimeMillis();
+		List<Long> leasedUntil = new ArrayList<>();
+		doAnswer(invocation -> leasedUntil.add(first.getNextAttemptAt())).when(client).notifyOwner(eq("bob"), any());
+
+		relay.relay();
+
+		assertTrue(leasedUntil.get(0) >= before + 60_000);
+		verify(client).broadcastToSession(eq("s1"), any());
+		verify(client).notifyOwner(eq("dave"), any());
+		assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L)), deleted());
+		// The short batch ended the run
+		verify(repository, times(2)).findDue(anyLong(), any());
+	}
+
+	@Test
+	void failureBacksOffAndPutsTheRestBackUntried() {
+		OutboxMessage failing = message(1, OutboxMessage.Type.NOTIFY_USER, "bob");
+		failing.setAttempts(2);
+		OutboxMessage untried = message(2, OutboxMessage.Type.NOTIFY_USER, "carol");
+		OutboxMessage delivered = message(0, OutboxMessage.Type.BROADCAST_TO_SESSION, "s1");
+		when(repository.findDue(anyLong(), any())).thenReturn(List.of(delivered, failing, untried));
+		doThrow(new IllegalStateException("unreachable")).when(client).notifyOwner(eq("bob"), any());
+		long before = System.currentTimeMillis();
+
+		relay.relay();
+
+		verify(client, never()).notifyOwner(eq("carol"), any());
+		assertEquals(List.of(List.of(0L)), deleted());
+		List<OutboxMessage> retried = saved();
+		assertEquals(List.of(failing, untried), retried);
+		assertEquals(3, failing.getAttempts());
+		assertEquals(0, untried.getAttempts());
+		// Third attempt: base << 2
+		long retryAt = failing.getNextAttemptAt();
+		assertTrue(retryAt >= before + 4_000 && retryAt <= System.currentTimeMillis() + 4_000, "retry at " + retryAt);
+		assertEquals(retryAt, untried.getNextAttemptAt());
+		// The failure ended the run
+		verify(repository, times(1)).findDue(anyLong(), any());
+	}
+
+	@Test
+	void invalidationsOfOneSessionAreCoalesced() {
+		when(repository.findDue(anyLong(), any())).thenReturn(List.of(
+				message(1, OutboxMessage.Type.INVALIDATE_PERMISSIONS, "s1"),
+				message(2, OutboxMessage.Type.INVALIDATE_PERMISSIONS, "s2"),
+				message(3, OutboxMessage.Type.INVALIDATE_PERMISSIONS, "s1")), List.of());
+
+		relay.relay();
+
+		verify(client, times(1)).invalidatePermissions("s1");
+		verify(client, times(1)).invalidatePermissions("s2");
+		assertEquals(List.of(1L, 2L, 3L), deleted().get(0));
+	}
+
+	@Test
+	void messageIsDroppedAfterItsLastAttempt() {
+		OutboxMessage exhausted = message(1, OutboxMessage.Type.INVALIDATE_PERMISSIONS, "s1");
+		exhausted.setAttempts(4);
+		when(repository.findDue(anyLong(), any())).thenReturn(List.of(exhausted));
+		doThrow(new IllegalStateException("unreachable")).when(client).invalidatePermissions("s1");
+
+		relay.relay();
+
+		assertEquals(5, exhausted.getAttempts());
+		assertEquals(List.of(List.of(1L)), deleted());
+		assertEquals(List.of(), saved());
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<List<Long>> deleted() {
+		ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+		verify(repository, atLeastOnce()).deleteByIds(ids.capture());
+		return ids.getAllValues().stream().<List<Long>>map(ArrayList::new).toList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<OutboxMessage> saved() {
+		ArgumentCaptor<Iterable<OutboxMessage>> batches = ArgumentCaptor.forClass(Iterable.class);
+		verify(repository, times(1)).saveAll(batches.capture());
+		List<OutboxMessage> messages = new ArrayList<>();
+		batches.getValue().forEach(messages::add);
+		return messages;
+	}
+
+	private static OutboxMessage message(long id, OutboxMessage.Type type, String target) {
+		return OutboxMessage.builder()
+				.id(id)
+				.type(type)
+				.target(target)
+				.payload(type == OutboxMessage.Type.INVALIDATE_PERMISSIONS ? null : PAYLOAD)
+				.build();
+	}
+}
@@ -0,0 +1,65 @@
+package com.codecollab.sessionservice.service;
+
+import com.codecollab.sessionservice.blob.BlobStore;
+import com.codecollab.sessionservice.cache.SessionCache;
+import com.codecollab.sessionservice.dto.SessionContentDTO;
+import com.codecollab.sessionservice.model.SessionContent;
+import com.codecollab.sessionservice.repository.ChatMessageRepository;
+import com.codecollab.sessionservice.repository.CodeSessionRepository;
+import com.codecollab.sessionservice.repository.CommentRepository;
+import com.codecollab.sessionservice.repository.CommentThreadRepository;
+import com.codecollab.sessionservice.repository.SnapshotRepository;
+import com.codecollab.sessionservice.snapshot.SnapshotStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SessionServiceTest {
+
+	private final CodeSessionRepository codeSessionRepository = mock(CodeSessionRepository.class);
+	private final BlobStore blobStore = mock(BlobStore.class);
+	private final SessionCache sessionCache = mock(SessionCache.class);
+	private final SessionService sessionService = new SessionService(codeSessionRepository, mock(SnapshotRepository.class),
+			mock(SnapshotStore.class), blobStore, mock(NotificationOutbox.class), sessionCache,
+			mock(CommentThreadRepository.class), mock(CommentRepository.class), mock(ChatMessageRepository.class));
+
+	@Test
+	void flushingUnchangedCodeTouchesNeitherBlobsNorTheCache() {
+		SessionContent content = content("int x = 1;");
+		when(codeSessionRepository.findContentRow("s")).thenReturn(Optional.of(content));
+
+		sessionService.updateSessionCode("s", "int x = 1;", null);
+
+		verifyNoInteractions(blobStore, sessionCache);
+		assertEquals(7L, content.getModifiedAt());
+	}
+
+	@Test
+	void changedCodeSwapsBlobReferencesAndDropsOnlyTheCachedContent() {
+		SessionContent content = content("int x = 1;");
+		when(codeSessionRepository.findContentRow("s")).thenReturn(Optional.of(content));
+		when(blobStore.put(anyString())).thenAnswer(invocation -> BlobStore.hashOf(invocation.<String>getArgument(0)));
+
+		sessionService.updateSessionCode("s", "int x = 2;", null);
+
+		verify(blobStore).put("int x = 2;");
+		verify(blobStore).release(List.of(BlobStore.hashOf("int x = 1;")));
+		assertEquals(BlobStore.hashOf("int x = 2;"), content.getBlobHash());
+		verify(sessionCache).invalidate("s", SessionContentDTO.class);
+		verify(sessionCache, never()).invalidate(any(String.class));
+	}
+
+	private static SessionContent content(String code) {
+		return SessionContent.builder().id(1L).blobHash(BlobStore.hashOf(code)).modifiedAt(7L).version(3L).build();
+	}
+}
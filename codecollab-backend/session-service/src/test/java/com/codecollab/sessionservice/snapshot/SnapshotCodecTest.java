@@ -0,0 +1,59 @@
+package com.codecollab.sessionservice.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnapshotCodecTest {
+
+	@Test
+	void deltaReproducesTarget() {
+		assertRoundTrip("", "");
+		assertRoundTrip("", "a\nb");
+		assertRoundTrip("a\nb\n", "");
+		assertRoundTrip("a\nb\nc", "a\nb\nc\n");
+		assertRoundTrip("a\nb\nc\n", "a\nx\nc\n");
+		assertRoundTrip("a\nb\nc\nd\n", "d\nc\nb\na\n");
+		assertRoundTrip("same\n", "same\n");
+		assertRoundTrip("héllo ✓\r\nb\r\n", "héllo ✓\r\nc\r\n");
+	}
+
+	@Test
+	void randomEditsRoundTrip() {
+		Random random = new Random(42);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			lines.add("line " + random.nextInt(50) + "\n");
+		}
+		String base = String.join("", lines);
+		for (int round = 0; round < 200; round++) {
+			List<String> edited = new ArrayList<>(lines);
+			for (int edit = random.nextInt(20); edit >= 0; edit--) {
+				int at = random.nextInt(edited.size() + 1);
+				switch (random.nextInt(3)) {
+					case 0 -> edited.add(at, "new " + random.nextInt(50) + "\n");
+					case 1 -> { if (at < edited.size()) edited.remove(at); }
+					default -> { if (at < edited.size()) edited.set(at, "changed " + random.nextInt(5) + "\n"); }
+				}
+			}
+			String target = String.join("", edited);
+			assertRoundTrip(base, target);
+			lines = edited;
+			base = target;
+		}
+	}
+
+	@Test
+	void giveUpBeyondMaxChangedLines() {
+		assertNull(SnapshotCodec.encodeDelta("a\nb\nc\n", "x\ny\nz\n", 5));
+	}
+
+	private static void assertRoundTrip(String base, String target) {
+		assertEquals(target, SnapshotCodec.applyDelta(base, SnapshotCodec.encodeDelta(base, target, 1_000)));
+	}
+}
@@ -0,0 +1,60 @@
+package com.codecollab.sessionservice.snapshot;
+
+import com.codecollab.sessionservice.dto.SnapshotSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnapshotRetentionTest {
+
+	private static final Instant NOW = Instant.parse("2026-01-10T12:00:00Z");
+	private static final long HOUR = Duration.ofHours(1).toMillis();
+	private static final long DAY = Duration.ofDays(1).toMillis();
+
+	@Test
+	void keepsNewestAutomaticSnapshotPerMinute() {
+		List<SnapshotSummaryDTO> newestFirst = List.of(
+				snapshot(6, "11:59:50", true),
+				snapshot(5, "11:59:40", true),
+				snapshot(4, "11:58:30", true),
+				snapshot(3, "11:58:10", true),
+				snapshot(2, "11:58:05", false),
+				snapshot(1, "11:30:00", true));
+
+		assertEquals(List.of(5L, 3L), SnapshotRetention.expired(newestFirst, NOW.toEpochMilli(), HOUR, DAY, 0));
+	}
+
+	@Test
+	void thinsToHourlyThenDailyAndDropsWhatIsTooOld() {
+		List<SnapshotSummaryDTO> newestFirst = List.of(
+				snapshot(10, "2026-01-10T11:59:00Z", true),
+				snapshot(9, "2026-01-10T10:50:00Z", true),
+				snapshot(8, "2026-01-10T10:10:00Z", true),
+				snapshot(7, "2026-01-08T09:00:00Z", true),
+				snapshot(6, "2026-01-08T08:00:00Z", true),
+				snapshot(5, "2026-01-04T08:00:00Z", true));
+
+		assertEquals(List.of(8L, 6L), SnapshotRetention.expired(newestFirst, NOW.toEpochMilli(), HOUR, DAY, 0));
+		assertEquals(List.of(8L, 6L, 5L), SnapshotRetention.expired(newestFirst, NOW.toEpochMilli(), HOUR, DAY, 3 * DAY));
+	}
+
+	@Test
+	void neverDropsTheLatestSnapshot() {
+		List<SnapshotSummaryDTO> newestFirst = List.of(
+				snapshot(2, "2025-01-01T00:00:00Z", true),
+				snapshot(1, "2025-01-01T00:00:00Z", true));
+
+		assertEquals(List.of(1L), SnapshotRetention.expired(newestFirst, NOW.toEpochMilli(), HOUR, DAY, DAY));
+	}
+
+	private static SnapshotSummaryDTO snapshot(long id, String takenAt, boolean automatic) {
+		Instant instant = takenAt.contains("T") ? Instant.parse(takenAt) : Instant.parse("2026-01-10T" + takenAt + "Z");
+		return new SnapshotSummaryDTO(id, LocalDateTime.ofInstant(instant, ZoneId.systemDefault()), 0, null, automatic);
+	}
+}
@@ -0,0 +1,104 @@
+package com.codecollab.sessionservice.snapshot;
+
+import com.codecollab.sessionservice.blob.Compression;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares full copies (what {@code Snapshot.codeContent} used to hold) with deltas and
+ * periodic keyframes, deflated as {@code BlobStore} keeps them: stored bytes for a session's snapshots, and the time to rebuild one
+ * for a revert, for files of 200 to 20 000 lines with a few lines changed between snapshots.
+ * <p>
+ * Not part of the normal build: {@code mvn test -Dtest=SnapshotStorageBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SnapshotStorageBenchmark {
+
+	private static final int[] LINES = {200, 2_000, 20_000};
+	private static final int SNAPSHOTS = 300;
+	private static final int KEYFRAME_INTERVAL = 20;
+
+	@Test
+	void compareWithFullCopies() {
+		System.out.printf("%-7s %12s %12s %8s %14s %14s%n",
+				"lines", "full KB", "delta KB", "ratio", "us/revert avg", "us/revert max");
+		for (int lines : LINES) {
+			run(lines);
+		}
+	}
+
+	private void run(int lineCount) {
+		Random random = new Random(lineCount);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < lineCount; i++) {
+			lines.add(sourceLine(random, i));
+		}
+
+		List<String> versions = new ArrayList<>();
+		List<byte[]> stored = new ArrayList<>();
+		List<Boolean> keyframes = new ArrayList<>();
+		long fullBytes = 0;
+		long deltaBytes = 0;
+		for (int s = 0; s < SNAPSHOTS; s++) {
+			for (int edit = 1 + random.nextInt(8); edit > 0; edit--) {
+				int at = random.nextInt(lines.size());
+				if (random.nextBoolean()) {
+					lines.set(at, sourceLine(random, at));
+				} else {
+					lines.add(at, sourceLine(random, at));
+				}
+			}
+			String code = String.join("", lines);
+			fullBytes += code.getBytes(StandardCharsets.UTF_8).length;
+
+			byte[] data = Compression.deflate(s % KEYFRAME_INTERVAL == 0
+					? code.getBytes(StandardCharsets.UTF_8)
+					: SnapshotCodec.encodeDelta(versions.get(s - 1), code, 1_000));
+			keyframes.add(s % KEYFRAME_INTERVAL == 0);
+			versions.add(code);
+			stored.add(data);
+			deltaBytes += data.length;
+		}
+
+		// Warm up, then time rebuilding every snapshot from its keyframe
+		for (int s = 0; s < SNAPSHOTS; s++) {
+			rebuild(stored, keyframes, s);
+		}
+		long total = 0;
+		long worst = 0;
+		for (int s = 0; s < SNAPSHOTS; s++) {
+			long started = System.nanoTime();
+			String rebuilt = rebuild(stored, keyframes, s);
+			long elapsed = System.nanoTime() - started;
+			if (!rebuilt.equals(versions.get(s))) {
+				throw new AssertionError("Snapshot " + s + " did not rebuild");
+			}
+			total += elapsed;
+			worst = Math.max(worst, elapsed);
+		}
+
+		System.out.printf("%-7d %12d %12d %7.1fx %14.1f %14.1f%n", lineCount, fullBytes / 1024, deltaBytes / 1024,
+				(double) fullBytes / deltaBytes, total / 1_000.0 / SNAPSHOTS, worst / 1_000.0);
+	}
+
+	private static String rebuild(List<byte[]> stored, List<Boolean> keyframes, int index) {
+		int keyframe = index;
+		while (!keyframes.get(keyframe)) {
+			keyframe--;
+		}
+		List<byte[]> deltas = new ArrayList<>();
+		for (int s = keyframe + 1; s <= index; s++) {
+			deltas.add(Compression.inflate(stored.get(s)));
+		}
+		return SnapshotCodec.applyDeltas(new String(Compression.inflate(stored.get(keyframe)), StandardCharsets.UTF_8), deltas);
+	}
+
+	private static String sourceLine(Random random, int i) {
+		return "    ".repeat(1 + random.nextInt(3)) + "int value" + i + " = compute(" + random.nextInt(10_000) + ", \"item\");\n";
+	}
+}
@@ -3,6 +3,7 @@ import HomePage from './pages/HomePage';
 import EditorPage from './pages/EditorPage';
 import LoginPage from './pages/LoginPage';
 import RegisterPage from './pages/RegisterPage';
+import SpectatorPage from './pages/SpectatorPage';
 import AuthNavbar from './components/AuthNavbar';
 // In your index.js or App.js
 import './app.css';
@@ -16,6 +17,7 @@ function App() {
                 <Route path="/login" element={<LoginPage />} />
                 <Route path="/register" element={<RegisterPage />} />
                 <Route path="/session/:sessionId" element={<EditorPage />} />
+                <Route path="/session/:sessionId/watch" element={<SpectatorPage />} />
             </Routes>
         </>
     );
@@ -1,15 +1,17 @@
 import React, { useState, useRef, useEffect } from 'react';
 import { Form, InputGroup, Button } from 'react-bootstrap';
 
-function ChatPanel({ messages, onSendMessage, currentUser }) {
+function ChatPanel({ messages, onSendMessage, currentUser, hasOlder, isLoadingOlder, onLoadOlder }) {
     const [currentMessage, setCurrentMessage] = useState('');
     const chatBoxRef = useRef(null);
+    const lastMessage = messages[messages.length - 1];
 
+    // Follow new messages, but stay put when older ones are loaded above
     useEffect(() => {
         if (chatBoxRef.current) {
             chatBoxRef.current.scrollTop = chatBoxRef.current.scrollHeight;
         }
-    }, [messages]);
+    }, [lastMessage]);
 
     const handleSubmit = (e) => {
         e.preventDefault();
@@ -20,20 +22,28 @@ function ChatPanel({ messages, onSendMessage, currentUser }) {
     return (
         <div className="d-flex flex-column h-100">
             <div className="panel-content chat-messages" ref={chatBoxRef}>
+                {hasOlder && (
+                    <div className="text-center mb-2">
+                        <Button variant="link" size="sm" onClick={onLoadOlder} disabled={isLoadingOlder}>
+                            {isLoadingOlder ? 'Loading...' : 'Load older messages'}
+                        </Button>
+                    </div>
+                )}
                 {messages.map((msg, index) => {
                     const isCurrentUser = msg.sender === currentUser;
-                    const showSenderName = !isCurrentUser && msg.type !== 'JOIN';
+                    const isPresence = msg.type === 'JOIN' || msg.type === 'LEAVE';
+                    const showSenderName = !isCurrentUser && !isPresence;
 
-                    if (msg.type === 'JOIN') {
+                    if (isPresence) {
                         return (
-                            <div key={index} className="chat-notification">
+                            <div key={msg.messageId || index} className="chat-notification">
                                 <span><strong>{msg.sender}</strong> {msg.content}</span>
                             </div>
                         );
                     }
 
                     return (
-                        <div key={index} className={`message-wrapper ${isCurrentUser ? 'sent' : 'received'}`}>
+                        <div key={msg.messageId || index} className={`message-wrapper ${isCurrentUser ? 'sent' : 'received'}`}>
                             <div className="message-bubble">
                                 {showSenderName && <div className="sender-name">{msg.sender}</div>}
                                 <div className="message-content">{msg.content}</div>
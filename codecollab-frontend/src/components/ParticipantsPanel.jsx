@@ -4,6 +4,7 @@ import { Role } from '../pages/EditorPage';
 
 function ParticipantsPanel({
                                sessionDetails,
+                               presence = {},
                                currentUsername,
                                onBlockUser,
                                onApprove,
@@ -76,6 +77,12 @@ function ParticipantsPanel({
                             {sessionDetails.blockedUsers?.includes(username) && (
                                 <Badge bg="danger" className="ms-2">Blocked</Badge>
                             )}
+                            {presence[username] === 'ACTIVE' && (
+                                <Badge bg="success" className="ms-2">Online</Badge>
+                            )}
+                            {presence[username] === 'IDLE' && (
+                                <Badge bg="warning" text="dark" className="ms-2">Idle</Badge>
+                            )}
                         </div>
                         {isOwner && username !== currentUsername && username !== sessionDetails.ownerUsername && (
                             <div className="d-flex align-items-center">
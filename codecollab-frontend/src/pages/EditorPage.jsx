@@ -8,6 +8,7 @@ import { Button, Tab, Tabs, Spinner, Toast, ToastContainer, ListGroup,Form } fro
 import ParticipantsPanel from '../components/ParticipantsPanel';
 import ChatPanel from '../components/ChatPanel';
 import CommentThreadPanel from '../components/CommentThreadPanel';
+import { OtClient, applyOperations, operationsFromMonacoChanges } from '../utils/otClient';
 
 export const Role = {
     OWNER: 'OWNER',
@@ -39,6 +40,7 @@ function EditorPage() {
     const [joinRequests, setJoinRequests] = useState([]);
     const [codeContent, setCodeContent] = useState('// Loading code...');
     const [executionOutput, setExecutionOutput] = useState('Click "Run Code" to see the output here.');
+    const outputRunRef = useRef({ runId: null, seq: -1 });
     const [aiExplanation, setAiExplanation] = useState('Select code and click "Explain" to get an AI-powered explanation.');
     const [activeTab, setActiveTab] = useState('chat');
     const [isExecuting, setIsExecuting] = useState(false);
@@ -46,9 +48,18 @@ function EditorPage() {
     const [isPermissionLoading, setIsPermissionLoading] = useState(false);
     const [isHistoryLoading, setIsHistoryLoading] = useState(false);
     const [chatMessages, setChatMessages] = useState([]);
+    const [hasOlderChat, setHasOlderChat] = useState(false);
+    const [isChatLoading, setIsChatLoading] = useState(false);
+    // Snapshot history, newest first, listed a page at a time when the History tab is opened
+    const [snapshots, setSnapshots] = useState([]);
+    const [hasOlderSnapshots, setHasOlderSnapshots] = useState(false);
+    // Live presence: username -> 'ACTIVE' | 'IDLE'
+    const [presence, setPresence] = useState({});
     const stompClientRef = useRef(null);
     const editorRef = useRef(null);
     const monacoRef = useRef(null);
+    const otClientRef = useRef(null);
+    const applyingRemoteRef = useRef(false);
 
     const [stdin, setStdin] = useState('');
 
@@ -425,21 +436,29 @@ function EditorPage() {
         }
     };
 
+    // Last session response and its ETag; refetches of an unchanged session come back as 304
+    const sessionVersionRef = useRef({ etag: null, data: null });
+
     const fetchSessionDetails = useCallback(async (token) => {
         try {
             console.log("🔄 DEBUG - Fetching session details for:", sessionId);
-            const response = await fetch(`http://localhost:8080/session-service/api/sessions/${sessionId}`, {
-                headers: { 'Authorization': `Bearer ${token}` }
-            });
+            const headers = { 'Authorization': `Bearer ${token}` };
+            if (sessionVersionRef.current.etag) headers['If-None-Match'] = sessionVersionRef.current.etag;
+            const response = await fetch(`http://localhost:8080/session-service/api/sessions/${sessionId}`, { headers });
 
             console.log("🔍 DEBUG - Response status:", response.status);
 
+            if (response.status === 304) {
+                setSessionDetails(sessionVersionRef.current.data);
+                return sessionVersionRef.current.data;
+            }
             if (!response.ok) throw new Error('Could not fetch session details');
 
             const data = await response.json();
             console.log("✅ DEBUG - Session details fetched:", data);
             console.log("✅ DEBUG - Pending requests in response:", data.pendingRequests);
 
+            sessionVersionRef.current = { etag: response.headers.get('ETag'), data };
             setSessionDetails(data);
             return data;
         } catch (error) {
@@ -470,16 +489,46 @@ function EditorPage() {
             console.error("No token provided for WebSocket connection");
             return;
         }
-        const socket = new SockJS(`http://localhost:8084/ws?token=${encodeURIComponent(token)}`);
+        // Through the gateway, which routes by sessionId to the instance that owns the session
+        const query = `token=${encodeURIComponent(token)}&sessionId=${encodeURIComponent(sessionId)}`;
         console.log("Connecting WebSocket with token:", token); // Debug log
 
+        // Plain (deflate-compressed) WebSocket first; SockJS if that cannot get through
+        let useSockJs = false;
+        let connected = false;
+        // Kept across reconnects, so that a reconnect only replays the edits we missed
+        let otClient = null;
+        const requestDocument = seen => stompClient.subscribe(`/app/document/${sessionId}`, msg => {
+            const sync = JSON.parse(msg.body);
+            if (sync.content !== undefined) resetDocument(sync);
+            else otClient.catchUp(sync.edits);
+            setIsConnected(true);
+        }, seen);
+
         const stompClient = new Client({
-            webSocketFactory: () => socket,
+            webSocketFactory: () => useSockJs
+                ? new SockJS(`http://localhost:8080/collaboration-service/ws?${query}`)
+                : new WebSocket(`ws://localhost:8080/collaboration-service/ws-native?${query}`),
+            onWebSocketClose: () => {
+                if (!connected) useSockJs = true;
+                otClient?.suspend();
+            },
 
             connectHeaders: { Authorization: `Bearer ${token}` },
             onConnect: () => {
-                setIsConnected(true);
-                setCodeContent(initialDetails.codeContent);
+                connected = true;
+                if (!otClient) {
+                    otClient = new OtClient(
+                        crypto.randomUUID(),
+                        (baseRevision, operations) => stompClient.publish({
+                            destination: `/app/edit/${sessionId}`,
+                            body: JSON.stringify({ clientId: otClient.clientId, epoch: otClient.epoch, baseRevision, operations })
+                        }),
+                        applyRemoteOperations,
+                        () => requestDocument({})
+                    );
+                    otClientRef.current = otClient;
+                }
                 stompClient.subscribe(`/queue/notifications`, async msg => {
                     const notification = JSON.parse(msg.body);
                     console.log('🎯 Received notification:', notification);
@@ -563,23 +612,94 @@ function EditorPage() {
                         navigate('/');
                     }
                 });
-                stompClient.subscribe(`/topic/code/${sessionId}`, msg => setCodeContent(JSON.parse(msg.body).content));
+                stompClient.subscribe(`/topic/edit/${sessionId}`, msg => otClient.receive(JSON.parse(msg.body)));
+                // Sent only to us when the server could not apply one of our edits
+                stompClient.subscribe(`/user/queue/document`, msg => resetDocument(JSON.parse(msg.body)));
+                // On a reconnect, ask only for what we missed; the server falls back to the full
+                // content if that is no longer in its log or it has reloaded the document since
+                requestDocument(otClient.revision !== null
+                    ? { 'document-epoch': otClient.epoch, 'since-revision': String(otClient.revision) }
+                    : {});
+                // Output arrives in numbered chunks while the code runs; a new run id (ours or
+                // anyone else's in the session) replaces what is shown
                 stompClient.subscribe(`/topic/output/${sessionId}`, msg => {
-                    const result = JSON.parse(msg.body);
-                    setExecutionOutput(result.output || result.error || 'Execution finished.');
-                    setIsExecuting(false);
-                    setActiveTab('output');
+                    const event = JSON.parse(msg.body);
+                    if (outputRunRef.current.runId !== event.runId) {
+                        outputRunRef.current = { runId: event.runId, seq: -1 };
+                        setExecutionOutput('');
+                        setIsExecuting(true);
+                        setActiveTab('output');
+                    }
+                    if (event.seq <= outputRunRef.current.seq) return;
+                    outputRunRef.current.seq = event.seq;
+                    if (event.type === 'COMPLETED') {
+                        const footer = event.exitCode !== undefined
+                            ? `\n[Exited with code ${event.exitCode}]`
+                            : `\n${event.error || 'Execution failed.'}`;
+                        setExecutionOutput(prev => prev + footer);
+                        setIsExecuting(false);
+                    } else {
+                        // stdout and stderr, interleaved as the program wrote them
+                        const text = event.segments.map(segment => segment.text).join('');
+                        setExecutionOutput(prev => prev + text);
+                    }
                 });
-                stompClient.subscribe(`/topic/chat/${sessionId}`, msg => setChatMessages(prev => [...prev, JSON.parse(msg.body)]));
-                stompClient.publish({ destination: `/app/chat/${sessionId}`, body: JSON.stringify({ sender: user, content: 'has joined!', type: 'JOIN' }) });
+                // Live messages, then the recent ones the server keeps in memory; both may carry the same message
+                stompClient.subscribe(`/topic/chat/${sessionId}`, msg => {
+                    const message = JSON.parse(msg.body);
+                    setChatMessages(prev => prev.some(m => m.messageId === message.messageId) ? prev : [...prev, message]);
+                });
+                stompClient.subscribe(`/app/chat/${sessionId}`, msg => {
+                    const recent = JSON.parse(msg.body);
+                    setChatMessages(prev => {
+                        const known = new Set(recent.messages.map(m => m.messageId));
+                        return [...recent.messages, ...prev.filter(m => !m.messageId || !known.has(m.messageId))];
+                    });
+                    setHasOlderChat(recent.hasMore);
+                });
+                // Subscribing to the presence topic is what marks us online. Diffs that arrive
+                // before the roster snapshot are held back and replayed on top of it.
+                let presenceVersion = null;
+                let heldBackUpdates = [];
+                const applyPresenceUpdate = update => {
+                    if (update.version <= presenceVersion) return;
+                    presenceVersion = update.version;
+                    setPresence(prev => {
+                        const next = { ...prev };
+                        (update.joined || []).forEach(username => { next[username] = 'ACTIVE'; });
+                        (update.left || []).forEach(username => { delete next[username]; });
+                        (update.idle || []).forEach(username => { next[username] = 'IDLE'; });
+                        (update.active || []).forEach(username => { next[username] = 'ACTIVE'; });
+                        return next;
+                    });
+                    const lines = [
+                        ...(update.joined || []).map(username => ({ sender: username, content: 'has joined!', type: 'JOIN' })),
+                        ...(update.left || []).map(username => ({ sender: username, content: 'has left the session', type: 'LEAVE' }))
+                    ];
+                    if (lines.length > 0) setChatMessages(prev => [...prev, ...lines]);
+                };
+                stompClient.subscribe(`/topic/presence/${sessionId}`, msg => {
+                    const update = JSON.parse(msg.body);
+                    if (presenceVersion === null) heldBackUpdates.push(update);
+                    else applyPresenceUpdate(update);
+                });
+                stompClient.subscribe(`/app/presence/${sessionId}`, msg => {
+                    const roster = JSON.parse(msg.body);
+                    presenceVersion = roster.version;
+                    setPresence(roster.users || {});
+                    heldBackUpdates.forEach(applyPresenceUpdate);
+                    heldBackUpdates = [];
+                });
+                // The server batches cursor moves into one frame per tick
                 stompClient.subscribe(`/topic/cursor/${sessionId}`, msg => {
-                    const cursorData = JSON.parse(msg.body);
-                    console.log('🎯 Received cursor data:', cursorData);
-                    // Ignore our own cursor updates
-                    if (cursorData.username !== user) {
-                        setRemoteSelections(prev => ({
-                            ...prev,
-                            [cursorData.username]: {
+                    const frame = JSON.parse(msg.body);
+                    // Each frame holds every cursor in the session, so users missing from it have left
+                    const next = {};
+                    frame.cursors
+                        // Ignore our own cursor updates
+                        .filter(cursorData => cursorData.username !== user)
+                        .forEach(cursorData => {
+                            next[cursorData.username] = {
                                 startLineNumber: cursorData.startLineNumber,
                                 startColumn: cursorData.startColumn,
                                 endLineNumber: cursorData.endLineNumber || cursorData.startLineNumber,
@@ -590,9 +710,9 @@ function EditorPage() {
                                 positionColumn: cursorData.positionColumn || cursorData.startColumn,
                                 username: cursorData.username,
                                 color: getUserColor(cursorData.username)
-                            }
-                        }));
-                    }
+                            };
+                        });
+                    setRemoteSelections(next);
                 });
             },
         });
@@ -920,7 +1040,39 @@ function EditorPage() {
         finally { setIsPermissionLoading(false); }
     };
 
-    const handleEditorChange = (value) => { if (stompClientRef.current?.connected) stompClientRef.current.publish({ destination: `/app/code/${sessionId}`, body: JSON.stringify({ content: value }) }); };
+    const applyRemoteOperations = (operations) => {
+        const model = editorRef.current?.getModel();
+        if (!model) {
+            setCodeContent(prev => applyOperations(prev, operations));
+            return;
+        }
+        applyingRemoteRef.current = true;
+        try {
+            operations.forEach(op => {
+                const start = model.getPositionAt(op.position);
+                const end = op.type === 'DELETE' ? model.getPositionAt(op.position + op.length) : start;
+                model.applyEdits([{
+                    range: new monacoRef.current.Range(start.lineNumber, start.column, end.lineNumber, end.column),
+                    text: op.type === 'INSERT' ? op.text : ''
+                }]);
+            });
+        } finally {
+            applyingRemoteRef.current = false;
+        }
+        setCodeContent(model.getValue());
+    };
+
+    const resetDocument = (snapshot) => {
+        setCodeContent(snapshot.content);
+        otClientRef.current?.reset(snapshot.revision, snapshot.epoch);
+    };
+
+    const handleEditorChange = (value, event) => {
+        if (applyingRemoteRef.current) return;
+        setCodeContent(value);
+        // While disconnected the client keeps the edits and sends them after the reconnect
+        otClientRef.current?.applyLocal(operationsFromMonacoChanges(event.changes));
+    };
 
     const handleRunCode = () => {
         setIsExecuting(true);
@@ -941,12 +1093,71 @@ function EditorPage() {
                 setIsExecuting(false); });
     };
 
+    // Keyset backfill: the page just before the oldest saved message we have
+    const handleLoadOlderChat = async () => {
+        const oldest = chatMessages.find(m => m.messageId);
+        if (!oldest || isChatLoading) return;
+        setIsChatLoading(true);
+        try {
+            const token = localStorage.getItem('jwt_token');
+            const query = `beforeSentAt=${oldest.sentAt}&beforeMessageId=${encodeURIComponent(oldest.messageId)}&limit=50`;
+            const response = await fetch(`http://localhost:8080/session-service/api/sessions/${sessionId}/chat?${query}`, {
+                headers: { 'Authorization': `Bearer ${token}` }
+            });
+            if (!response.ok) throw new Error('Failed to load older messages');
+            const page = await response.json();
+            setChatMessages(prev => {
+                const known = new Set(prev.map(m => m.messageId));
+                return [...page.messages.filter(m => !known.has(m.messageId)), ...prev];
+            });
+            setHasOlderChat(page.hasMore);
+        } catch (error) {
+            console.error(error);
+        } finally {
+            setIsChatLoading(false);
+        }
+    };
+
+    // Without beforeId: the newest page, replacing what we have; with it, the page just before
+    const fetchSnapshots = useCallback(async (beforeId) => {
+        setIsHistoryLoading(true);
+        try {
+            const token = localStorage.getItem('jwt_token');
+            const query = beforeId ? `beforeId=${beforeId}&limit=20` : 'limit=20';
+            const response = await fetch(`http://localhost:8080/session-service/api/sessions/${sessionId}/snapshots?${query}`, {
+                headers: { 'Authorization': `Bearer ${token}` }
+            });
+            if (!response.ok) throw new Error('Failed to load snapshots');
+            const page = await response.json();
+            setSnapshots(prev => beforeId ? [...prev, ...page.snapshots] : page.snapshots);
+            setHasOlderSnapshots(page.hasMore);
+        } catch (error) {
+            console.error(error);
+        } finally {
+            setIsHistoryLoading(false);
+        }
+    }, [sessionId]);
+
+    useEffect(() => {
+        if (activeTab === 'history' && joinStatus === 'APPROVED') fetchSnapshots();
+    }, [activeTab, joinStatus, fetchSnapshots]);
+
     const handleSendMessage = (message) => { if (message.trim() && stompClientRef.current?.connected) stompClientRef.current.publish({ destination: `/app/chat/${sessionId}`, body: JSON.stringify({ sender: currentUser, content: message, type: 'CHAT' }) }); };
 
     const handleBlockUser = async (usernameToBlock) => { const token = localStorage.getItem('jwt_token'); setIsPermissionLoading(true); try { const response = await fetch(`http://localhost:8080/session-service/api/sessions/${sessionId}/block/${usernameToBlock}`, { method: 'POST', headers: { 'Authorization': `Bearer ${token}` } }); if (!response.ok) throw new Error('Failed to block user'); fetchSessionDetails(token); } catch (error) { alert(error.message); } finally { setIsPermissionLoading(false); } };
 
     const handleExplainCode = () => { if (!editorRef.current) return; const selectedText = editorRef.current.getModel().getValueInRange(editorRef.current.getSelection()); if (!selectedText.trim()) { alert("Please select code to explain."); return; } setIsExplaining(true); setAiExplanation("🤖 AI is thinking..."); setActiveTab('ai-assistant'); fetch('http://localhost:8080/ai-service/api/ai/explain', { method: 'POST', headers: { 'Content-Type': 'application/json', 'Authorization': `Bearer ${localStorage.getItem('jwt_token')}` }, body: JSON.stringify({ text: selectedText }), }).then(res => res.text()).then(exp => setAiExplanation(exp)).catch(err => setAiExplanation(`Error: ${err.message}`)).finally(() => setIsExplaining(false)); };
 
+    const handleCopyWatchLink = async () => {
+        const link = `${window.location.origin}/session/${sessionId}/watch?language=${encodeURIComponent(language)}`;
+        try {
+            await navigator.clipboard.writeText(link);
+            alert('Watch link copied to the clipboard.');
+        } catch (error) {
+            alert(link);
+        }
+    };
+
     const handleSaveSnapshot = async () => {
         setIsHistoryLoading(true);
         const token = localStorage.getItem('jwt_token');
@@ -971,8 +1182,8 @@ function EditorPage() {
 
             if (!response.ok) throw new Error('Failed to save snapshot');
 
-            const updatedSession = await response.json();
-            setSessionDetails(updatedSession);
+            const snapshot = await response.json();
+            setSnapshots(prev => [snapshot, ...prev]);
         } catch (error) {
             alert(error.message);
         } finally {
@@ -1010,18 +1221,7 @@ function EditorPage() {
             );
 
             if (response.ok) {
-                // Send leave message to chat before disconnecting
-                if (stompClientRef.current?.connected) {
-                    stompClientRef.current.publish({
-                        destination: `/app/chat/${sessionId}`,
-                        body: JSON.stringify({
-                            sender: currentUser,
-                            content: 'has left the session',
-                            type: 'LEAVE'
-                        })
-                    });
-                }
-
+                // Others see us leave through presence once the connection closes
                 // alert("You have left the session successfully.");
                 navigate('/'); // Redirect to home page
 
@@ -1116,14 +1316,8 @@ function EditorPage() {
 
             const updatedSession = await response.json();
 
-            if (stompClientRef.current?.connected) {
-                stompClientRef.current.publish({
-                    destination: `/app/code/${sessionId}`,
-                    body: JSON.stringify({ content: updatedSession.codeContent })
-                });
-            }
-
-            setCodeContent(updatedSession.codeContent);
+            // session-service has the reverted code put into the live document, which sends it
+            // to everyone (us included) as an edit, even if this tab has gone away by then
             setSessionDetails(updatedSession);
         } catch (error) {
             alert(error.message);
@@ -1232,6 +1426,7 @@ function EditorPage() {
                                 <span>Session: <strong>{sessionId.substring(0)}</strong> | Language: <strong>{language.charAt(0).toUpperCase() + language.slice(1)}</strong></span>
                             </div>
                             <div>
+                                {isOwner && <Button variant="outline-secondary" size="sm" onClick={handleCopyWatchLink} className="me-2" title="Read-only link for a large audience">📡 Watch link</Button>}
                                 {isOwner && <Button variant="outline-warning" size="sm" onClick={handleSaveSnapshot} disabled={isHistoryLoading} className="me-2">{isHistoryLoading ? <Spinner as="span" size="sm" animation="border" /> : '💾 Save'}</Button>}
                                 <Button variant="outline-info" size="sm" onClick={handleExplainCode} disabled={isExplaining || isExecuting} className="me-2">{isExplaining ? <Spinner as="span" size="sm" animation="border" /> : '✨ Explain'}</Button>
                                 
@@ -1282,9 +1477,9 @@ function EditorPage() {
                     </div>
                     <div className="side-panel">
                         <Tabs activeKey={activeTab} onSelect={(k) => setActiveTab(k)} id="side-panel-tabs" className="mb-0 flex-shrink-0" fill>
-                            <Tab eventKey="chat" title="Chat 💬"><ChatPanel messages={chatMessages} onSendMessage={handleSendMessage} currentUser={currentUser} /></Tab>
-                            <Tab eventKey="participants" title="Users 👥">{sessionDetails && <ParticipantsPanel sessionDetails={sessionDetails} currentUsername={currentUser} onBlockUser={handleBlockUser} onApprove={(username) => handleApproveOrDeny(username, 'approve')} onDeny={(username) => handleApproveOrDeny(username, 'deny')}    onChangeRole={handleChangeRole} isLoading={isPermissionLoading || isHistoryLoading} onLeaveSession={handleLeaveSession} />}</Tab>
-                            <Tab eventKey="history" title="History 💾"><div className="panel-content">{isHistoryLoading && <div className="text-center"><Spinner animation="border" size="sm" /></div>}<ListGroup variant="flush">{sessionDetails?.history?.length > 0 ? (sessionDetails.history.map(snap => (<ListGroup.Item key={snap.id} className="bg-dark text-white d-flex justify-content-between align-items-center"><div className="snapshot-timestamp small">{new Date(snap.timestamp).toLocaleString()}</div>{isOwner && (<Button variant="outline-warning" size="sm" onClick={() => handleRevertToSnapshot(snap.id)} disabled={isHistoryLoading}>Revert</Button>)}</ListGroup.Item>))) : (<p className="text-muted text-center mt-3">No snapshots saved.</p>)}</ListGroup></div></Tab>
+                            <Tab eventKey="chat" title="Chat 💬"><ChatPanel messages={chatMessages} onSendMessage={handleSendMessage} currentUser={currentUser} hasOlder={hasOlderChat} isLoadingOlder={isChatLoading} onLoadOlder={handleLoadOlderChat} /></Tab>
+                            <Tab eventKey="participants" title="Users 👥">{sessionDetails && <ParticipantsPanel sessionDetails={sessionDetails} presence={presence} currentUsername={currentUser} onBlockUser={handleBlockUser} onApprove={(username) => handleApproveOrDeny(username, 'approve')} onDeny={(username) => handleApproveOrDeny(username, 'deny')}    onChangeRole={handleChangeRole} isLoading={isPermissionLoading || isHistoryLoading} onLeaveSession={handleLeaveSession} />}</Tab>
+                            <Tab eventKey="history" title="History 💾"><div className="panel-content">{isHistoryLoading && <div className="text-center"><Spinner animation="border" size="sm" /></div>}<ListGroup variant="flush">{snapshots.length > 0 ? (snapshots.map(snap => (<ListGroup.Item key={snap.id} className="bg-dark text-white d-flex justify-content-between align-items-center"><div><div className="snapshot-timestamp small">{new Date(snap.timestamp).toLocaleString()}</div><div className="text-muted small">{[snap.automatic ? 'auto' : snap.author, snap.size != null && `${snap.size} chars`].filter(Boolean).join(' · ')}</div></div>{isOwner && (<Button variant="outline-warning" size="sm" onClick={() => handleRevertToSnapshot(snap.id)} disabled={isHistoryLoading}>Revert</Button>)}</ListGroup.Item>))) : (!isHistoryLoading && <p className="text-muted text-center mt-3">No snapshots saved.</p>)}</ListGroup>{hasOlderSnapshots && <div className="text-center my-2"><Button variant="link" size="sm" onClick={() => fetchSnapshots(snapshots[snapshots.length - 1].id)} disabled={isHistoryLoading}>Load older snapshots</Button></div>}</div></Tab>
                             <Tab eventKey="input" title="Input (stdin)">
                                 <div className="panel-content" style={{ padding: 0 }}>
                                     <Form.Control
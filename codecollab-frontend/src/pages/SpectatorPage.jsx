@@ -0,0 +1,89 @@
+import React, { useEffect, useState } from 'react';
+import { useParams, useSearchParams } from 'react-router-dom';
+import Editor from '@monaco-editor/react';
+import { Badge } from 'react-bootstrap';
+import { applyOperations } from '../utils/otClient';
+
+// Read-only view for large audiences (classes, streams). The spectator endpoint sends one
+// snapshot, then every edit in order; nothing is sent back, so there is no STOMP session,
+// chat or presence behind it.
+const SpectatorPage = () => {
+    const { sessionId } = useParams();
+    const [searchParams] = useSearchParams();
+    const language = searchParams.get('language') || 'java';
+    const [code, setCode] = useState(null);
+    const [status, setStatus] = useState('connecting');
+
+    useEffect(() => {
+        let socket;
+        let retryTimer;
+        let attempts = 0;
+        let stopped = false;
+        const decoder = new TextDecoder();
+
+        const connect = () => {
+            const query = new URLSearchParams({ token: localStorage.getItem('jwt_token') || '', sessionId });
+            socket = new WebSocket(`ws://localhost:8080/collaboration-service/ws-spectate?${query}`);
+            socket.binaryType = 'arraybuffer';
+            socket.onopen = () => {
+                attempts = 0;
+                setStatus('live');
+            };
+            socket.onmessage = (event) => {
+                const frame = JSON.parse(decoder.decode(event.data));
+                if (frame.type === 'SNAPSHOT') {
+                    setCode(frame.content);
+                } else {
+                    setCode(current => applyOperations(current ?? '', frame.operations));
+                }
+            };
+            socket.onclose = (event) => {
+                if (stopped) return;
+                // 1013: the session or server has as many spectators as it takes; try again later
+                setStatus(event.code === 1013 ? 'full' : 'reconnecting');
+                retryTimer = setTimeout(connect, Math.min(30000, 1000 * 2 ** attempts++));
+            };
+        };
+
+        connect();
+        return () => {
+            stopped = true;
+            clearTimeout(retryTimer);
+            socket?.close();
+        };
+    }, [sessionId]);
+
+    const badge = {
+        live: <Badge bg="success">Live</Badge>,
+        connecting: <Badge bg="secondary">Connecting…</Badge>,
+        reconnecting: <Badge bg="warning" text="dark">Reconnecting…</Badge>,
+        full: <Badge bg="danger">Spectator limit reached, retrying…</Badge>,
+    }[status];
+
+    return (
+        <div className="editor-page-container">
+            <div className="editor-container">
+                <div className="controls p-2 border-bottom border-secondary bg-dark d-flex justify-content-between align-items-center">
+                    <span>Watching session: <strong>{sessionId}</strong> | Language: <strong>{language.charAt(0).toUpperCase() + language.slice(1)}</strong></span>
+                    {badge}
+                </div>
+                <Editor
+                    height="calc(100% - 49px)"
+                    theme="vs-dark"
+                    language={language}
+                    value={code ?? ''}
+                    options={{
+                        automaticLayout: true,
+                        readOnly: true,
+                        domReadOnly: true,
+                        wordWrap: 'on',
+                        lineNumbers: 'on',
+                        minimap: { enabled: false },
+                    }}
+                />
+            </div>
+        </div>
+    );
+};
+
+export default SpectatorPage;
@@ -0,0 +1,182 @@
+// Client half of the operational-transform edit protocol.
+// Mirrors OperationTransformer.java: the operation that was applied first wins ties.
+
+const insert = (position, text) => ({ type: 'INSERT', position, text });
+const del = (position, length) => ({ type: 'DELETE', position, length });
+const span = (op) => (op.type === 'INSERT' ? op.text.length : op.length);
+
+const transformOne = (op, other, opWinsTies) => {
+    const pos = op.position;
+    const otherPos = other.position;
+
+    if (op.type === 'INSERT') {
+        if (other.type === 'INSERT') {
+            const shift = otherPos < pos || (otherPos === pos && !opWinsTies);
+            return [insert(shift ? pos + span(other) : pos, op.text)];
+        }
+        const otherEnd = otherPos + other.length;
+        if (pos <= otherPos) return [op];
+        return [insert(pos >= otherEnd ? pos - other.length : otherPos, op.text)];
+    }
+
+    const end = pos + op.length;
+    if (other.type === 'INSERT') {
+        if (otherPos <= pos) return [del(pos + span(other), op.length)];
+        if (otherPos >= end) return [op];
+        return [del(pos, otherPos - pos), del(pos + span(other), end - otherPos)];
+    }
+
+    const otherEnd = otherPos + other.length;
+    if (end <= otherPos) return [op];
+    if (pos >= otherEnd) return [del(pos - other.length, op.length)];
+    const overlap = Math.min(end, otherEnd) - Math.max(pos, otherPos);
+    const remaining = op.length - overlap;
+    return remaining === 0 ? [] : [del(Math.min(pos, otherPos), remaining)];
+};
+
+// Returns [client', applied'] for two operation lists written against the same text.
+export const transform = (client, applied) => {
+    if (client.length === 0 || applied.length === 0) return [client, applied];
+    if (client.length === 1 && applied.length === 1) {
+        return [transformOne(client[0], applied[0], false), transformOne(applied[0], client[0], true)];
+    }
+    if (client.length > 1) {
+        const [headClient, headApplied] = transform(client.slice(0, 1), applied);
+        const [tailClient, tailApplied] = transform(client.slice(1), headApplied);
+        return [[...headClient, ...tailClient], tailApplied];
+    }
+    const [headClient, headApplied] = transform(client, applied.slice(0, 1));
+    const [tailClient, tailApplied] = transform(headClient, applied.slice(1));
+    return [tailClient, [...headApplied, ...tailApplied]];
+};
+
+// Converts Monaco's onDidChangeModelContent changes into sequential operations.
+// Monaco reports every change against the pre-edit text, so applying them from the
+// highest offset down keeps the lower offsets valid.
+export const operationsFromMonacoChanges = (changes) => {
+    const ops = [];
+    [...changes]
+        .sort((a, b) => b.rangeOffset - a.rangeOffset)
+        .forEach(change => {
+            if (change.rangeLength > 0) ops.push(del(change.rangeOffset, change.rangeLength));
+            if (change.text) ops.push(insert(change.rangeOffset, change.text));
+        });
+    return ops;
+};
+
+// Tracks the single in-flight edit and the edits typed while waiting for its acknowledgement.
+// Survives reconnects: while the connection is down, edits are kept locally, and once it is
+// back the client catches up on what it missed and sends what it has not sent yet.
+// Revisions are numbered per epoch, i.e. per load of the document on the server; an edit
+// from another epoch means the server reloaded it, and only a fresh snapshot can follow.
+export class OtClient {
+    constructor(clientId, send, applyRemote, resync) {
+        this.clientId = clientId;
+        this.send = send;               // (baseRevision, operations) => void
+        this.applyRemote = applyRemote; // (operations) => void
+        this.resync = resync;           // () => void, asks the server for a snapshot
+        this.epoch = null;
+        this.revision = null;
+        this.pending = null;
+        this.pendingSent = false;       // false once the connection that carried it is gone
+        this.buffer = null;
+        this.queued = [];
+        this.suspended = false;
+    }
+
+    // Starts over from a server snapshot. Any unacknowledged local edits are dropped,
+    // because the snapshot is what the server and all other clients agree on.
+    reset(revision, epoch) {
+        this.revision = revision;
+        this.epoch = epoch;
+        this.pending = null;
+        this.buffer = null;
+        this.resume();
+    }
+
+    // The connection dropped: hold remote edits and local sends until catchUp() or reset().
+    suspend() {
+        this.suspended = true;
+        this.pendingSent = false;
+    }
+
+    // Applies the edits missed while disconnected (oldest first), then sends our unsent edits.
+    // If the server applied our in-flight edit, its echo is among them and acknowledges it.
+    // If not, the edit is sent again; the server recognises a duplicate of one it did apply.
+    catchUp(edits) {
+        this.suspended = false;
+        edits.forEach(message => this.receive(message));
+        this.resume();
+    }
+
+    isSynced() {
+        return this.revision !== null && !this.suspended;
+    }
+
+    applyLocal(operations) {
+        if (operations.length === 0 || this.revision === null) return;
+        if (this.pending || this.suspended) {
+            this.buffer = this.buffer ? [...this.buffer, ...operations] : operations;
+            return;
+        }
+        this.pending = operations;
+        this.pendingSent = true;
+        this.send(this.revision, operations);
+    }
+
+    receive(message) {
+        if (!this.isSynced()) {
+            this.queued.push(message);
+            return;
+        }
+        if (message.epoch !== this.epoch) {
+            // Held until the snapshot arrives; reset() then skips what it already contains
+            this.suspend();
+            this.queued.push(message);
+            this.resync();
+            return;
+        }
+        if (message.revision <= this.revision) return; // already part of our snapshot
+
+        if (message.clientId === this.clientId && this.pending) {
+            this.revision = message.revision;
+            this.pending = this.buffer;
+            this.buffer = null;
+            this.pendingSent = this.pending !== null;
+            if (this.pending) this.send(this.revision, this.pending);
+            return;
+        }
+
+        let remote = message.operations || [];
+        if (this.pending) {
+            [this.pending, remote] = transform(this.pending, remote);
+        }
+        if (this.buffer) {
+            [this.buffer, remote] = transform(this.buffer, remote);
+        }
+        this.revision = message.revision;
+        this.applyRemote(remote);
+    }
+
+    resume() {
+        this.suspended = false;
+        const queued = this.queued;
+        this.queued = [];
+        queued.forEach(message => this.receive(message));
+        if (!this.pending && this.buffer) {
+            this.pending = this.buffer;
+            this.buffer = null;
+        }
+        if (this.pending && !this.pendingSent) {
+            this.pendingSent = true;
+            this.send(this.revision, this.pending);
+        }
+    }
+}
+
+// Applies operations to a plain string (used before the editor is mounted).
+export const applyOperations = (text, operations) => operations.reduce((current, op) => (
+    op.type === 'INSERT'
+        ? current.slice(0, op.position) + op.text + current.slice(op.position)
+        : current.slice(0, op.position) + current.slice(op.position + op.length)
+), text);